@@ -1,15 +1,33 @@
 package org.blackaho.misc.datagencli;
 
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocatedFileStatus;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.fs.RemoteIterator;
 import org.apache.spark.api.java.function.MapPartitionsFunction;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.DataFrameWriter;
 import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Encoders;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.RowFactory;
 import org.apache.spark.sql.SparkSession;
 import org.apache.spark.sql.catalyst.encoders.RowEncoder;
+import org.apache.spark.sql.functions;
+import org.apache.spark.sql.streaming.StreamingQuery;
+import org.apache.spark.sql.streaming.StreamingQueryException;
+import org.apache.spark.sql.streaming.StreamingQueryProgress;
 import org.apache.spark.sql.types.DataType;
 import org.apache.spark.sql.types.DataTypes;
 import org.apache.spark.sql.types.StructType;
+import org.apache.spark.storage.StorageLevel;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -18,15 +36,33 @@ import java.util.List;
 public class BigDataGenCLI extends DataGenCLI {
 
 
-  static final String OPTION_OUTPUTFORMAT = "--format=";
   static final String OPTION_PARTITIONBY = "--partitionby=";
   static final String OPTION_REPARTITION = "--repartition=";
   static final String OPTION_COALESCE = "--coalesce=";
+  static final String OPTION_TARGETFILEMB = "--target-file-mb=";
+  static final String OPTION_AUTOREPARTITION = "--auto-repartition=";
+  static final String OPTION_PUSHDOWN = "--pushdown=";
+  static final String OPTION_STREAMING = "--streaming";
+  static final String OPTION_ROWSPERSECOND = "--rows-per-second=";
+  static final String OPTION_NUMPARTITIONS = "--num-partitions=";
+
+  static final long SIZING_SAMPLE_ROWS = 10000L;
+  static final String SIZING_SAMPLE_SUFFIX = "_datagencli_sizing_sample";
+  static final String ID_COLUMN = "id";  // row number column of spark range
+  static final long STREAMING_PROGRESS_CHECK_INTERVAL_IN_MILISECS = 1000L;
 
-  String outputFormat = "csv";
   List<String> partitionBy = new ArrayList<>();
   int repartition = -1;
   int coalesce = -1;
+  double targetFileMbytes = 0;
+  boolean autoRepartition = true;  // repartition by --partitionby columns, see isAutoRepartition()
+  boolean pushdown = true;
+  boolean streaming = false;
+  long rowsPerSecond = 1000L;
+  int streamingPartitions = -1;
+
+  // average bytes per row on output format, estimated from a sample (see estimateAverageBytesPerRow())
+  protected double bytesPerRow = 0;
 
 
   public static void main(String[] args) {
@@ -41,16 +77,26 @@ public class BigDataGenCLI extends DataGenCLI {
   @Override
   public void parseOptions(String[] args) {
     super.parseOptions(args);
-    // additional parameters for BigDataGenCli --format=orc/avro/parquet
+    // additional parameters for BigDataGenCli (--format=orc/avro/parquet is parsed by base class)
     for (String arg : args) {
-      if (arg.startsWith(OPTION_OUTPUTFORMAT)) {
-        outputFormat = arg.substring(OPTION_OUTPUTFORMAT.length(), arg.length());
-      } else if (arg.startsWith(OPTION_PARTITIONBY)) {
+      if (arg.startsWith(OPTION_PARTITIONBY)) {
         partitionBy = parseCSVStringAsList(arg.substring(OPTION_PARTITIONBY.length(), arg.length()));
       } else if (arg.startsWith(OPTION_REPARTITION)) {
         repartition = Integer.parseInt(arg.substring(OPTION_REPARTITION.length(), arg.length()));
       } else if (arg.startsWith(OPTION_COALESCE)) {
         coalesce = Integer.parseInt(arg.substring(OPTION_COALESCE.length(), arg.length()));
+      } else if (arg.startsWith(OPTION_TARGETFILEMB)) {
+        targetFileMbytes = Double.parseDouble(arg.substring(OPTION_TARGETFILEMB.length(), arg.length()));
+      } else if (arg.startsWith(OPTION_AUTOREPARTITION)) {
+        autoRepartition = Boolean.parseBoolean(arg.substring(OPTION_AUTOREPARTITION.length(), arg.length()));
+      } else if (arg.startsWith(OPTION_PUSHDOWN)) {
+        pushdown = Boolean.parseBoolean(arg.substring(OPTION_PUSHDOWN.length(), arg.length()));
+      } else if (arg.equals(OPTION_STREAMING)) {
+        streaming = true;
+      } else if (arg.startsWith(OPTION_ROWSPERSECOND)) {
+        rowsPerSecond = Long.parseLong(arg.substring(OPTION_ROWSPERSECOND.length(), arg.length()));
+      } else if (arg.startsWith(OPTION_NUMPARTITIONS)) {
+        streamingPartitions = Integer.parseInt(arg.substring(OPTION_NUMPARTITIONS.length(), arg.length()));
       }
 
     }
@@ -73,8 +119,20 @@ public class BigDataGenCLI extends DataGenCLI {
       err.println(USAGE);
       return false;
     }
-    if (! (Arrays.asList("csv","orc","parquet","avro","delta").contains(this.outputFormat)) ) {
-      err.println("Option --format has invalid data, accepted values are csv, parquet, orc, avro and delta");
+    if (this.targetFileMbytes < 0 || (this.targetFileMbytes > 0 && (this.repartition > 0 || this.coalesce > 0))) {
+      err.println("Option --target-file-mb must be positive and cannot be used with --repartition or --coalesce");
+      return false;
+    }
+    if (this.replaySpeedup > 0) {
+      err.println("Option --replay is not supported with BigDataGenCLI, please use --streaming with --rows-per-second instead");
+      return false;
+    }
+    if (this.streaming && (this.checkpointFilename == null || this.targetFileMbytes > 0 || this.sortBy != null)) {
+      err.println("Option --streaming requires --checkpoint (streaming checkpoint location) and cannot be used with --target-file-mb or --sortby");
+      return false;
+    }
+    if (this.rowsPerSecond <= 0 || this.streamingPartitions == 0 || this.streamingPartitions < -1) {
+      err.println("Options --rows-per-second and --num-partitions (streaming partitions) must be positive");
       return false;
     }
     return true;
@@ -84,6 +142,11 @@ public class BigDataGenCLI extends DataGenCLI {
 
   // override methods that will use spark
 
+  @Override
+  protected List<String> getSupportedOutputFormats() {
+    return Arrays.asList("csv","orc","parquet","avro","delta");
+  }
+
   @Override
   protected boolean prepareOutputFile() {
     // we let spark handle file creation
@@ -91,45 +154,367 @@ public class BigDataGenCLI extends DataGenCLI {
   }
 
   @Override
-  protected void runWithNumberOfRows(long numberOfRowsToGenerate) {
+  protected boolean prepareCheckpoint() {
+    // with --streaming, checkpoint is spark streaming checkpoint location, handled by spark
+    return this.streaming || super.prepareCheckpoint();
+  }
+
+  @Override
+  protected void runWithRowRange(long firstRow, long lastRow) {
     SparkSession sparkSession = SparkSession.builder().getOrCreate();
-    // create dataset from range and apply row generator function to gen data
-    Dataset ds = sparkSession
-      .range(1L, numberOfRowsToGenerate+1L)
-      .mapPartitions(new RowGeneratorFunction(this.fields,this.header), RowEncoder.apply(getSchema()));
-    // uses repartition/coalesce if applicable
-    ds = this.repartition > 0 ? ds.repartition(this.repartition) : ds;
+    if (this.streaming) {
+      runStreaming(sparkSession, firstRow, lastRow);
+      sparkSession.close();
+      return;
+    }
+    // with --target-file-mb, size partitions so each one (i.e., each task) writes a file of about that size
+    int numPartitions = -1;
+    if (this.targetFileMbytes > 0) {
+      double rangeBytes = (lastRow - firstRow + 1L) * estimateAverageBytesPerRow();
+      numPartitions = (int) Math.max(1L, Math.round(rangeBytes / (this.targetFileMbytes * 1024L * 1024L)));
+    }
+    Dataset ds = createDataset(sparkSession, firstRow, lastRow, numPartitions);
+    // uses repartition/coalesce if applicable (with --sortby, see sortDataset()), coalesce keeps sort order
+    int partitions = numPartitions > 0 ? numPartitions : sparkSession.sparkContext().defaultParallelism();
+    ds = this.sortBy != null ? sortDataset(ds, this.repartition > 0 ? this.repartition : partitions)
+        : repartitionDataset(ds, partitions);
     ds = this.coalesce > 0 ? ds.coalesce(this.coalesce) : ds;
     // and writes the data
-    ds.write()
-      .format(this.outputFormat)
+    if (this.moreOutputFilenames.isEmpty()) {
+      writeDataset(ds, this.outputFilename);
+    } else {
+      writeDatasetOutputs(ds);
+    }
+    sparkSession.close();
+  }
+
+  /**
+   * Generates rows firstRow to lastRow as a stream, at --rows-per-second, writing them with spark structured streaming
+   * to output (any format supporting streaming writes, e.g., parquet or delta). Row numbers come from spark "rate"
+   * source, whose offsets (seconds since start, each with a fixed range of values) are recorded on --checkpoint, so
+   * a restarted generation continues from last committed row range, and file sinks write each row exactly once.
+   * Stops when all rows were written.
+   */
+  protected void runStreaming(SparkSession sparkSession, long firstRow, long lastRow) {
+    int partitions = this.streamingPartitions > 0 ? this.streamingPartitions : sparkSession.sparkContext().defaultParallelism();
+    Dataset<Long> rowNumbers = sparkSession.readStream()
+        .format("rate")
+        .option("rowsPerSecond", this.rowsPerSecond)
+        .option("numPartitions", partitions)
+        .load()
+        .select(functions.col("value").plus(firstRow).as(ID_COLUMN))
+        .filter(functions.col(ID_COLUMN).leq(lastRow))
+        .as(Encoders.LONG());
+    Dataset ds = repartitionDataset(generateDataset(rowNumbers), partitions);
+    ds = this.coalesce > 0 ? ds.coalesce(this.coalesce) : ds;
+    StreamingQuery query = ds.writeStream()
+        .format(this.outputFormat)
+        .option("sep", this.separator)
+        .option("header", this.header!=null ? "true" : "false")
+        .option("checkpointLocation", this.checkpointFilename)
+        .option("path", this.outputFilename)
+        .partitionBy(this.partitionBy.toArray(new String[] {}))
+        .start();
+    try {
+      // rate source offset is number of seconds, each with rowsPerSecond rows: stop after offset with last row
+      long rowsToGenerate = lastRow - firstRow + 1L;
+      while (!query.awaitTermination(STREAMING_PROGRESS_CHECK_INTERVAL_IN_MILISECS)) {
+        StreamingQueryProgress progress = query.lastProgress();
+        if (progress != null && progress.sources().length > 0) {
+          String endOffset = progress.sources()[0].endOffset();
+          long offset;
+          try {
+            offset = parseStreamingOffset(endOffset);
+          } catch (NumberFormatException ex) {
+            // we can't know when all rows were written, stop instead of generating forever
+            err.println("ERROR on streaming generation: unexpected source offset " + endOffset + ", stopping");
+            query.stop();
+            continue;
+          }
+          if (offset * this.rowsPerSecond >= rowsToGenerate) {
+            query.stop();
+          }
+        }
+      }
+    } catch (StreamingQueryException ex) {
+      err.println("ERROR on streaming generation: " + ex.getMessage());
+    }
+  }
+
+  /**
+   * @return rate source offset (number of seconds since start), or 0 if there's none yet
+   * @throws NumberFormatException if offset isn't a rate source offset
+   */
+  protected static long parseStreamingOffset(String offset) {
+    return offset == null ? 0L : Long.parseLong(offset.trim());
+  }
+
+  /**
+   * Creates dataset from range and apply row generator function to gen data.
+   * Fields that don't need Faker (rowNumber, sequence, randomLong and randomDouble) are pushed down as spark column
+   * expressions (see createPushdownColumn()), so spark generates them with whole-stage codegen. Only the other fields
+   * are generated by row generator function, which also returns row number (id) so all columns are selected in order.
+   * @param numPartitions - number of partitions, or -1 to use spark default
+   */
+  protected Dataset createDataset(SparkSession sparkSession, long firstRow, long lastRow, int numPartitions) {
+    int partitions = numPartitions > 0 ? numPartitions : sparkSession.sparkContext().defaultParallelism();
+    return generateDataset(sparkSession.range(firstRow, lastRow+1L, 1L, partitions));
+  }
+
+  /**
+   * Generates rows (see createDataset()) for row numbers (in id column) of a dataset (batch or streaming)
+   * @param range - dataset with row numbers
+   */
+  protected Dataset generateDataset(Dataset<Long> range) {
+    StructType schema = getSchema();
+
+    // column expression for each field, or null for fields generated by row generator function
+    Column[] columns = new Column[this.fields.size()];
+    List<String> functionFields = new ArrayList<>();
+    List<String> functionHeader = new ArrayList<>();
+    StructType functionSchema = new StructType().add(ID_COLUMN, DataTypes.LongType);
+    functionFields.add("rowNumber");
+    functionHeader.add(ID_COLUMN);
+    for (int pos = 0; pos < this.fields.size(); pos++) {
+      columns[pos] = this.pushdown
+          ? createPushdownColumn(FakerRowGenerator.FieldSpec.parse(this.fields.get(pos)), pos)
+          : null;
+      if (columns[pos] == null) {
+        String columnName = "_c" + pos;
+        functionFields.add(this.fields.get(pos));
+        functionHeader.add(columnName);
+        functionSchema = functionSchema.add(columnName, schema.fields()[pos].dataType());
+        columns[pos] = functions.col(columnName);
+      }
+      columns[pos] = columns[pos].as(schema.fields()[pos].name());
+    }
+
+    Dataset ds = range.toDF();
+    if (functionFields.size() > 1) {
+      RowGeneratorFunction rowGeneratorFunction = new RowGeneratorFunction(
+          RowGeneratorPlan.compile(functionFields, functionHeader, this.separator, this.seed));
+      ds = range.mapPartitions(rowGeneratorFunction, RowEncoder.apply(functionSchema));
+    }
+    return ds.select(columns);
+  }
+
+  /**
+   * Creates a spark column expression for a field, based on row number (range id column) and seeded rand().
+   * Values have same type and range as the ones from FakerRowGenerator, but (with --seed) not the same values.
+   * @param fieldSpec - parsed field
+   * @param pos - position of field, used to have a different seed for each column
+   * @return column expression, or null if the field can't be pushed down
+   */
+  protected Column createPushdownColumn(FakerRowGenerator.FieldSpec fieldSpec, int pos) {
+    Object[] args = fieldSpec.arguments;
+    Column rand = this.seed != null ? functions.rand(FakerRowGenerator.rowSeed(this.seed, -1L - pos)) : functions.rand();
+    switch (fieldSpec.specType) {
+      case ROWNUMBER:
+        return functions.col(ID_COLUMN);
+      case SEQUENCE:
+        // start + (rowNumber-1) * increment
+        return functions.col(ID_COLUMN).minus(1L).multiply((long) args[1]).plus((long) args[0]);
+      case RANDOM_LONG: {
+        // like faker.number().numberBetween(min,max): min (inclusive) to max (exclusive)
+        long min = (long) args[0];
+        long max = (long) args[1];
+        return max <= min
+            ? functions.lit(min)
+            : functions.floor(rand.multiply(max - min)).plus(min).cast(DataTypes.LongType);
+      }
+      case RANDOM_DOUBLE: {
+        // like faker.number().randomDouble(decimals,min,max)
+        int decimals = (int) args[0];
+        long min = (long) args[1];
+        long max = (long) args[2];
+        return functions.round(rand.multiply((double) (max - min)).plus((double) min), decimals);
+      }
+      case TIMESTAMP_BETWEEN: {
+        // start to end epoch milisecs (inclusive), as seconds cast to timestamp (time zone independent)
+        long start = (long) args[0];
+        long end = (long) args[1];
+        return functions.floor(rand.multiply((double) (end - start + 1L))).plus(start).divide(1000.0)
+            .cast(DataTypes.TimestampType);
+      }
+      case CDC_OP:
+      case CDC_KEY: {
+        // position on block of inserts, updates and deletes, as FieldSpec.getCdcOperation() and getCdcKey()
+        long inserts = (long) args[0];
+        long updates = (long) args[1];
+        long deletes = (long) args[2];
+        long initialKeys = (long) args[3];
+        Column event = functions.col(ID_COLUMN).minus(1L);
+        Column block = functions.floor(event.divide(inserts + updates + deletes)).cast(DataTypes.LongType);
+        Column blockPos = functions.pmod(event, functions.lit(inserts + updates + deletes));
+        if (fieldSpec.specType == FakerRowGenerator.FieldSpec.SpecType.CDC_OP) {
+          return functions.when(blockPos.lt(inserts), "c").when(blockPos.lt(inserts + updates), "u").otherwise("d");
+        }
+        Column deleted = block.multiply(deletes);
+        Column liveKeys = block.multiply(inserts).plus(inserts + initialKeys).minus(deleted);
+        return functions.when(blockPos.lt(inserts), block.multiply(inserts).plus(blockPos).plus(initialKeys + 1L))
+            .when(blockPos.lt(inserts + updates),
+                functions.floor(rand.multiply(liveKeys)).cast(DataTypes.LongType).plus(deleted).plus(1L))
+            .otherwise(deleted.plus(blockPos).minus(inserts + updates - 1L));
+      }
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * With --partitionby, each task would write a file for each partition value (e.g., 1000 tasks and 200 countries
+   * give 200000 files). Instead, rows are automatically repartitioned by partition columns (the same hash shuffle as
+   * a repartition(col) added by hand, so it does not avoid the shuffle, it just saves adding it), so all rows with the
+   * same partition values are written by the same task (a file per value, split by --target-file-mb if it's used).
+   * Generated values aren't changed, so partition columns keep their relation with the other columns of each row.
+   * Not used with --repartition, as it already sets how data is shuffled, nor with --auto-repartition=false (e.g.,
+   * when there are few tasks, so writing without a shuffle is cheaper than a file per value and task).
+   * @return true if rows are repartitioned by partition columns before writing them
+   */
+  protected boolean isAutoRepartition() {
+    return this.autoRepartition && !this.partitionBy.isEmpty() && this.repartition <= 0;
+  }
+
+  /**
+   * Repartitions dataset: with --repartition to that number of partitions, or, with automatic repartition (see
+   * isAutoRepartition()), by partition columns
+   * @param partitions - number of partitions, with automatic repartition
+   */
+  protected Dataset repartitionDataset(Dataset ds, int partitions) {
+    if (this.repartition > 0) {
+      return ds.repartition(this.repartition);
+    } else if (isAutoRepartition()) {
+      return ds.repartition(partitions, this.partitionBy.stream().map(functions::col).toArray(Column[]::new));
+    }
+    return ds;
+  }
+
+  /**
+   * Sorts dataset by --sortby column: rows are range partitioned by it and sorted within each partition (spark spills
+   * to disk as needed), so each file is sorted, and files are in order (rows of part i come before rows of part i+1).
+   * Range partitioning replaces any other repartition (e.g., by partition columns), keeping its number of partitions.
+   * @param partitions - number of partitions (--repartition, or from --target-file-mb)
+   */
+  protected Dataset sortDataset(Dataset ds, int partitions) {
+    return ds.repartitionByRange(partitions, functions.col(this.sortBy)).sortWithinPartitions(this.sortBy);
+  }
+
+  /**
+   * Writes dataset to several outputs (--out given more than once, each with its --format): rows are generated
+   * once, persisted (on executors memory, spilling to disk) by the first write, and the other writes read them from
+   * there, instead of generating them again for each output (which, without --seed, would also be different rows).
+   */
+  protected void writeDatasetOutputs(Dataset ds) {
+    List<String> formats = getOutputFormats();
+    Dataset persisted = ds.persist(StorageLevel.MEMORY_AND_DISK());
+    try {
+      writeDataset(persisted, this.outputFilename, formats.get(0));
+      for (int i = 0; i < this.moreOutputFilenames.size(); i++) {
+        writeDataset(persisted, this.moreOutputFilenames.get(i), formats.get(i + 1));
+      }
+    } finally {
+      persisted.unpersist();
+    }
+  }
+
+  protected void writeDataset(Dataset ds, String path) {
+    writeDataset(ds, path, this.outputFormat);
+  }
+
+  protected void writeDataset(Dataset ds, String path, String format) {
+    DataFrameWriter writer = ds.write()
+      .format(format)
       .option("sep", this.separator)
       .option("header", this.header!=null ? "true" : "false")
-      .partitionBy(this.partitionBy.toArray(new String[] {}))
-      .save(this.outputFilename);
-    sparkSession.close();
+      .partitionBy(this.partitionBy.toArray(new String[] {}));
+    if (isAutoRepartition() && this.targetFileMbytes > 0 && this.bytesPerRow > 0) {
+      // a task writes all rows of a partition value, split them in files of --target-file-mb
+      writer = writer.option("maxRecordsPerFile",
+          Math.max(1L, Math.round(this.targetFileMbytes * 1024L * 1024L / this.bytesPerRow)));
+    }
+    writer.save(path);
+  }
+
+  /**
+   * Estimates bytes per row on output format (e.g., parquet is compressed, csv is not), writing a sample of rows
+   * (next to output path, then deleted). Used to get number of rows for --mbs and file sizes for --target-file-mb.
+   * @return average number of bytes per row, in output format
+   */
+  @Override
+  protected double estimateAverageBytesPerRow() {
+    if (bytesPerRow == 0) {
+      SparkSession sparkSession = SparkSession.builder().getOrCreate();
+      String samplePath = this.outputFilename + SIZING_SAMPLE_SUFFIX;
+      writeDataset(createDataset(sparkSession, 1L, SIZING_SAMPLE_ROWS, 1), samplePath);
+      try {
+        Path path = new Path(samplePath);
+        FileSystem fs = path.getFileSystem(sparkSession.sparkContext().hadoopConfiguration());
+        long sampleBytes = 0;
+        RemoteIterator<LocatedFileStatus> files = fs.listFiles(path, true);
+        while (files.hasNext()) {
+          LocatedFileStatus file = files.next();
+          if (isDataFile(file.getPath(), fs.makeQualified(path))) {
+            sampleBytes += file.getLen();
+          }
+        }
+        fs.delete(path, true);
+        bytesPerRow = Math.max(1.0, (double) sampleBytes / SIZING_SAMPLE_ROWS);
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+    }
+    return bytesPerRow;
   }
 
+  /**
+   * @return false for metadata files of output (under root): files or directories starting with "_" or ".", e.g.,
+   *   _SUCCESS, .crc files or delta _delta_log directory (json commits and checkpoints)
+   */
+  protected static boolean isDataFile(Path file, Path root) {
+    String rootPath = root.toUri().getPath();
+    for (Path current = file; current != null && !current.toUri().getPath().equals(rootPath);
+         current = current.getParent()) {
+      if (current.getName().startsWith(".") || current.getName().startsWith("_")) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Generates rows for a partition. Row generators are created from a (compiled) plan and kept in cache on each
+   * executor JVM, so they (and their Faker objects) are reused by all tasks using same plan.
+   */
   public static class RowGeneratorFunction implements MapPartitionsFunction<Long,Row> {
 
-    ArrayList<String> fields;
-    ArrayList<String> header;
+    static final RowGeneratorCache EXECUTOR_ROW_GENERATORS = new RowGeneratorCache();
+
+    RowGeneratorPlan plan;
 
     RowGeneratorFunction(List<String> fields1, List<String> header1) {
-      this.fields = new ArrayList<>(fields1);
-      this.header = header1 == null ? new ArrayList<>() : new ArrayList<>(header1);
+      this(RowGeneratorPlan.compile(fields1, header1, ",", null));
+    }
+
+    RowGeneratorFunction(RowGeneratorPlan plan) {
+      this.plan = plan;
     }
 
     @Override
     public Iterator<Row> call(Iterator<Long> iterator) throws Exception {
-      RowGenerator rowGen = RowGeneratorFactory.createDefaultRowGenerator()
-          .setFields(this.fields)
-          .setHeader(this.header);
+      RowGenerator rowGen = EXECUTOR_ROW_GENERATORS.get(plan.getSignature(), plan::createRowGenerator);
 
       List<Row> partitionRows = new ArrayList<>();
       while (iterator.hasNext()) {
         Long rowNum = iterator.next();
-        partitionRows.add(RowFactory.create(rowGen.generateRow(rowNum).toArray()));
+        Object[] rowValues = rowGen.generateRow(rowNum).toArray();
+        for (int i = 0; i < rowValues.length; i++) {
+          if (rowValues[i] instanceof Instant) {  // spark TimestampType
+            rowValues[i] = Timestamp.from((Instant) rowValues[i]);
+          } else if (rowValues[i] instanceof LocalDate) {  // spark DateType
+            rowValues[i] = Date.valueOf((LocalDate) rowValues[i]);
+          }
+        }
+        partitionRows.add(RowFactory.create(rowValues));
       }
 
       return partitionRows.iterator();
@@ -149,6 +534,10 @@ public class BigDataGenCLI extends DataGenCLI {
         dataType = DataTypes.LongType;
       } else if (val instanceof Double) {
         dataType = DataTypes.DoubleType;
+      } else if (val instanceof Instant) {
+        dataType = DataTypes.TimestampType;
+      } else if (val instanceof LocalDate) {
+        dataType = DataTypes.DateType;
       } else {
         dataType = DataTypes.StringType;
       }
@@ -0,0 +1,137 @@
+package org.blackaho.misc.datagencli;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Journal of a (long running) generation, so it can be resumed if interrupted. Journal is a text file with
+ * the signature of generation options, the seed used and, periodically appended, lines with next row to generate and
+ * output file size (byte offset) when all rows before it were written, e.g.:
+ * <pre>
+ * signature fields=[name.firstName]|separator=,|...
+ * seed 1234
+ * 10001 91234
+ * 20001 182313
+ * </pre>
+ * Only complete lines (ended with new line) are considered, so a journal interrupted while writing a line is still valid.
+ */
+public class CheckpointJournal {
+
+  static final String SIGNATURE_PREFIX = "signature ";
+  static final String SEED_PREFIX = "seed ";
+
+  protected final File journalFile;
+  protected String signature = null;
+  protected Long seed = null;
+  protected long nextRow = 1L;
+  protected long byteOffset = 0L;
+  protected boolean hasCheckpoint = false;
+  protected FileOutputStream journalStream = null;
+
+  public CheckpointJournal(File journalFile) {
+    this.journalFile = journalFile;
+  }
+
+  /**
+   * Reads journal file, if it exists.
+   * @return true if journal file exists and was read, false if there's no journal file (i.e., a new generation)
+   */
+  public boolean read() throws IOException {
+    if (!journalFile.exists()) {
+      return false;
+    }
+    String content = new String(Files.readAllBytes(journalFile.toPath()), StandardCharsets.UTF_8);
+    // only lines ended with a new line are complete (e.g., "2001 1" could be a partially written "2001 1234")
+    String[] lines = content.substring(0, content.lastIndexOf('\n') + 1).split("\n");
+    for (String line : lines) {
+      if (line.startsWith(SIGNATURE_PREFIX)) {
+        signature = line.substring(SIGNATURE_PREFIX.length());
+      } else if (line.startsWith(SEED_PREFIX)) {
+        seed = Long.parseLong(line.substring(SEED_PREFIX.length()).trim());
+      } else {
+        readCheckpointLine(line);
+      }
+    }
+    return signature != null && seed != null;
+  }
+
+  protected void readCheckpointLine(String line) {
+    String[] values = line.trim().split(" ");
+    if (values.length == 2) { // ignore empty lines
+      nextRow = Long.parseLong(values[0]);
+      byteOffset = Long.parseLong(values[1]);
+      hasCheckpoint = true;
+    }
+  }
+
+  /**
+   * Starts a new journal, writing signature and seed for this generation.
+   */
+  public void start(String signature, long seed) throws IOException {
+    this.signature = signature;
+    this.seed = seed;
+    this.nextRow = 1L;
+    this.byteOffset = 0L;
+    this.hasCheckpoint = false;
+    journalStream = new FileOutputStream(journalFile, false);
+    write(SIGNATURE_PREFIX + signature + "\n" + SEED_PREFIX + seed + "\n");
+  }
+
+  /**
+   * Continues an existing journal (previously read with read()), appending new checkpoints to it.
+   */
+  public void resume() throws IOException {
+    journalStream = new FileOutputStream(journalFile, true);
+    write("\n"); // ends any incomplete line
+  }
+
+  /**
+   * Registers a checkpoint: all rows before nextRow are written and output has byteOffset bytes.
+   * Caller must make sure output is flushed and synced to disk before calling this.
+   */
+  public void checkpoint(long nextRow, long byteOffset) throws IOException {
+    this.nextRow = nextRow;
+    this.byteOffset = byteOffset;
+    this.hasCheckpoint = true;
+    write(nextRow + " " + byteOffset + "\n");
+  }
+
+  public void close() throws IOException {
+    if (journalStream != null) {
+      journalStream.close();
+      journalStream = null;
+    }
+  }
+
+  protected void write(String text) throws IOException {
+    journalStream.write(text.getBytes(StandardCharsets.UTF_8));
+    journalStream.getFD().sync();
+  }
+
+  public String getSignature() {
+    return signature;
+  }
+
+  public Long getSeed() {
+    return seed;
+  }
+
+  /**
+   * @return true if there's a checkpoint (i.e., nextRow and byteOffset are from a checkpoint)
+   */
+  public boolean hasCheckpoint() {
+    return hasCheckpoint;
+  }
+
+  public long getNextRow() {
+    return nextRow;
+  }
+
+  public long getByteOffset() {
+    return byteOffset;
+  }
+
+}
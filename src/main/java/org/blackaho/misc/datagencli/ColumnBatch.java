@@ -0,0 +1,192 @@
+package org.blackaho.misc.datagencli;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Batch of generated rows in columnar format (see RowGenerator.generateBatch()), for columnar writers (e.g., Parquet,
+ * ORC, Arrow or Spark ColumnarBatch): a vector per column, with primitive values and no object per value.
+ *  - LONG - long[] values
+ *  - DOUBLE - double[] values
+ *  - TIMESTAMP - long[] microseconds since epoch (UTC), from Instant values
+ *  - DATE - long[] days since epoch, from LocalDate values
+ *  - STRING - UTF-8 bytes of all values and offsets: value i is bytes from offsets[i] to offsets[i+1]
+ * Values that don't match the type of their column are null (see isNull()).
+ */
+public class ColumnBatch {
+
+  public enum ColumnType { LONG, DOUBLE, TIMESTAMP, DATE, STRING }
+
+  protected final long startRow;
+  protected final int size;
+  protected final ColumnType[] columnTypes;
+  protected final long[][] longs;
+  protected final double[][] doubles;
+  protected final int[][] offsets;
+  protected final OutputBuffer[] strings;
+  protected final boolean[][] nulls;
+
+  /**
+   * Creates an empty batch (all values null), to be filled by a row generator
+   * @param columnTypes - type of each column
+   * @param startRow - row number of first row
+   * @param size - number of rows
+   */
+  public ColumnBatch(ColumnType[] columnTypes, long startRow, int size) {
+    this.columnTypes = columnTypes;
+    this.startRow = startRow;
+    this.size = size;
+    int columns = columnTypes.length;
+    longs = new long[columns][];
+    doubles = new double[columns][];
+    offsets = new int[columns][];
+    strings = new OutputBuffer[columns];
+    nulls = new boolean[columns][];
+    for (int column = 0; column < columns; column++) {
+      switch (columnTypes[column]) {
+        case DOUBLE:
+          doubles[column] = new double[size];
+          break;
+        case STRING:
+          offsets[column] = new int[size + 1];
+          strings[column] = new OutputBuffer(size * 16);
+          break;
+        default:
+          longs[column] = new long[size];
+      }
+      nulls[column] = new boolean[size];
+    }
+  }
+
+  /**
+   * Infers column types from values of a row, as BigDataGenCLI.getSchema() does
+   * @param row - sample row (e.g., from RowGenerator.generateRow())
+   * @return type of each column
+   */
+  public static ColumnType[] inferColumnTypes(List row) {
+    ColumnType[] types = new ColumnType[row.size()];
+    for (int i = 0; i < types.length; i++) {
+      Object value = row.get(i);
+      if (value instanceof Long) {
+        types[i] = ColumnType.LONG;
+      } else if (value instanceof Double) {
+        types[i] = ColumnType.DOUBLE;
+      } else if (value instanceof Instant) {
+        types[i] = ColumnType.TIMESTAMP;
+      } else if (value instanceof LocalDate) {
+        types[i] = ColumnType.DATE;
+      } else {
+        types[i] = ColumnType.STRING;
+      }
+    }
+    return types;
+  }
+
+  /**
+   * Sets value of a row (index in batch) as an object, converted to column type (or null if it doesn't match).
+   * Rows of STRING columns must be set in order.
+   */
+  public void setValue(int column, int row, Object value) {
+    switch (columnTypes[column]) {
+      case LONG:
+        if (value instanceof Long) {
+          longs[column][row] = (Long) value;
+        } else {
+          nulls[column][row] = true;
+        }
+        break;
+      case DOUBLE:
+        if (value instanceof Double) {
+          doubles[column][row] = (Double) value;
+        } else {
+          nulls[column][row] = true;
+        }
+        break;
+      case TIMESTAMP:
+        if (value instanceof Instant) {
+          Instant instant = (Instant) value;
+          longs[column][row] = instant.getEpochSecond() * 1000000L + instant.getNano() / 1000;
+        } else {
+          nulls[column][row] = true;
+        }
+        break;
+      case DATE:
+        if (value instanceof LocalDate) {
+          longs[column][row] = ((LocalDate) value).toEpochDay();
+        } else {
+          nulls[column][row] = true;
+        }
+        break;
+      default:
+        if (value != null) {
+          strings[column].writeUtf8(value.toString());
+        } else {
+          nulls[column][row] = true;
+        }
+        offsets[column][row + 1] = strings[column].size();
+    }
+  }
+
+  /**
+   * Appends chars as value of next row (index in batch) of a STRING column
+   */
+  public void setString(int column, int row, char[] chars, int length) {
+    strings[column].writeUtf8(chars, 0, length);
+    offsets[column][row + 1] = strings[column].size();
+  }
+
+  public long getStartRow() {
+    return startRow;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public ColumnType[] getColumnTypes() {
+    return columnTypes;
+  }
+
+  /**
+   * @return values of a LONG, TIMESTAMP or DATE column
+   */
+  public long[] getLongs(int column) {
+    return longs[column];
+  }
+
+  /**
+   * @return values of a DOUBLE column
+   */
+  public double[] getDoubles(int column) {
+    return doubles[column];
+  }
+
+  /**
+   * @return offsets of values of a STRING column on getBytes(column) (size()+1 offsets)
+   */
+  public int[] getOffsets(int column) {
+    return offsets[column];
+  }
+
+  /**
+   * @return UTF-8 bytes of values of a STRING column (only the first getOffsets(column)[size()] bytes are used)
+   */
+  public byte[] getBytes(int column) {
+    return strings[column].bytes;
+  }
+
+  public boolean isNull(int column, int row) {
+    return nulls[column][row];
+  }
+
+  /**
+   * @return value of a STRING column row (creates a String, mostly for tests)
+   */
+  public String getString(int column, int row) {
+    int start = offsets[column][row];
+    return new String(strings[column].bytes, start, offsets[column][row + 1] - start, StandardCharsets.UTF_8);
+  }
+
+}
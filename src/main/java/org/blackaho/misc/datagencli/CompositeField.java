@@ -0,0 +1,216 @@
+package org.blackaho.misc.datagencli;
+
+import com.github.javafaker.Faker;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Composite fields, e.g., address{city,state,zipCode} or person{firstName,lastName,email}: a group of columns filled
+ * from one record, generated once per row, so its parts are consistent with each other and derived parts reuse the
+ * ones already generated (instead of a Faker call per column):
+ *  - address: streetAddress, buildingNumber, streetName, city, state, stateAbbr, zipCode (of state), country,
+ *    countryCode and fullAddress (built from the other parts)
+ *  - person: firstName, lastName, fullName, username and email (built from first and last name)
+ * Other parts (and other groups) map to Faker calls, e.g., name{firstName,title} to name.firstName and name.title.
+ *
+ * A composite field is expanded to a field per part (see expandFields()), e.g., address{city,state}.city and
+ * address{city,state}.state, so options (e.g., --header) have one entry per column.
+ */
+public class CompositeField implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  protected static final Pattern COMPOSITE_REGEXP = Pattern.compile("(\\w+)\\{(\\w+(?:,\\w+)*)\\}");
+  // expanded field: group definition (with #n for repeated groups, e.g., 2 addresses) and part
+  protected static final Pattern PART_REGEXP = Pattern.compile("((\\w+)\\{(\\w+(?:,\\w+)*)\\}(?:#\\d+)?)\\.(\\w+)");
+
+  // US states (and abbreviations, in same order) from Faker, as zip codes are by state abbreviation
+  private static volatile List<String> states;
+  private static volatile List<String> stateAbbrs;
+
+  protected final String group;
+  protected final List<String> parts;
+
+  protected CompositeField(String group, List<String> parts) {
+    this.group = group;
+    this.parts = parts;
+  }
+
+  /**
+   * Expands composite fields to a field per part, e.g., address{city,state} to address{city,state}.city and
+   * address{city,state}.state. Repeated groups are numbered (e.g., address{city}#2.city), so each has its own record.
+   * @param fields - fields definition
+   * @return fields, with composite fields expanded
+   */
+  public static List<String> expandFields(List<String> fields) {
+    List<String> expandedFields = new ArrayList<>();
+    Map<String, Integer> occurrences = new HashMap<>();
+    for (String field : fields) {
+      Matcher m = COMPOSITE_REGEXP.matcher(field);
+      if (m.matches()) {
+        int occurrence = occurrences.merge(field, 1, Integer::sum);
+        String groupKey = occurrence > 1 ? field + "#" + occurrence : field;
+        for (String part : m.group(2).split(",")) {
+          expandedFields.add(groupKey + "." + part);
+        }
+      } else {
+        expandedFields.add(field);
+      }
+    }
+    return expandedFields;
+  }
+
+  /**
+   * @return true if field is a part of an expanded composite field (e.g., address{city,state}.city)
+   */
+  public static boolean isPart(String field) {
+    return PART_REGEXP.matcher(field).matches();
+  }
+
+  /**
+   * Parses part of an expanded composite field
+   * @param field - expanded field, e.g., address{city,state}.state
+   * @return group key (e.g., address{city,state}), composite field and index of part (e.g., 1)
+   */
+  public static Object[] parsePart(String field) {
+    Matcher m = PART_REGEXP.matcher(field);
+    if (!m.matches()) {
+      throw new IllegalArgumentException("Not a composite field part: " + field);
+    }
+    List<String> parts = Arrays.asList(m.group(3).split(","));
+    return new Object[] {m.group(1), new CompositeField(m.group(2), parts), parts.indexOf(m.group(4))};
+  }
+
+  /**
+   * Generates a record for this composite field
+   * @param faker - faker used to generate values (with its Random seeded for row, when using a seed)
+   * @return values of parts, in parts order
+   */
+  public Object[] generate(Faker faker) {
+    Map<String, Object> record = new HashMap<>();
+    Object[] values = new Object[parts.size()];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = getPart(parts.get(i), record, faker);
+    }
+    return values;
+  }
+
+  /**
+   * Gets value of part from record, generating it (and parts it's derived from) if not generated yet
+   */
+  protected Object getPart(String part, Map<String, Object> record, Faker faker) {
+    Object value = record.get(part);
+    if (value == null) {
+      value = generatePart(part, record, faker);
+      record.put(part, value);
+    }
+    return value;
+  }
+
+  protected Object generatePart(String part, Map<String, Object> record, Faker faker) {
+    if ("address".equals(group)) {
+      switch (part) {
+        case "streetAddress":
+          return getPart("buildingNumber", record, faker) + " " + getPart("streetName", record, faker);
+        case "state":
+        case "stateAbbr": {
+          initStates(faker);
+          int state = faker.random().nextInt(stateAbbrs.size());
+          record.put("state", states.get(state));
+          record.put("stateAbbr", stateAbbrs.get(state));
+          return record.get(part);
+        }
+        case "zipCode":
+          return faker.numerify(faker.address().zipCodeByState((String) getPart("stateAbbr", record, faker)));
+        case "country":
+          return "United States";  // states and zip codes are from US
+        case "countryCode":
+          return "US";
+        case "fullAddress":
+          return getPart("streetAddress", record, faker) + ", " + getPart("city", record, faker) + ", "
+              + getPart("stateAbbr", record, faker) + " " + getPart("zipCode", record, faker);
+        default:
+          break;
+      }
+    } else if ("person".equals(group)) {
+      switch (part) {
+        case "firstName":
+          return faker.name().firstName();
+        case "lastName":
+          return faker.name().lastName();
+        case "fullName":
+          return getPart("firstName", record, faker) + " " + getPart("lastName", record, faker);
+        case "username":
+          return (getPart("firstName", record, faker) + "." + getPart("lastName", record, faker))
+              .toLowerCase().replaceAll("[^a-z0-9.]", "");
+        case "email":
+          return faker.internet().emailAddress((String) getPart("username", record, faker));
+        default:
+          break;
+      }
+    }
+    return callFaker(group + "." + part, faker);
+  }
+
+  /**
+   * Calls Faker method chain for field (e.g., address.city), as unknown fields, returns "" if there's no such method
+   */
+  protected static Object callFaker(String field, Faker faker) {
+    Method[] methodChain = FakerFieldIndex.getMethodChain(field);
+    if (methodChain == null) {
+      return "";
+    }
+    try {
+      Object value = faker;
+      for (Method method : methodChain) {
+        value = method.invoke(value);
+      }
+      return value;
+    } catch (Exception ex) {
+      return "";
+    }
+  }
+
+  /**
+   * Reads states (and their abbreviations) from Faker data (not on its public API), once per JVM
+   */
+  @SuppressWarnings("unchecked")
+  protected static void initStates(Faker faker) {
+    if (stateAbbrs == null) {
+      synchronized (CompositeField.class) {
+        if (stateAbbrs == null) {
+          try {
+            Method fakeValuesService = Faker.class.getDeclaredMethod("fakeValuesService");
+            fakeValuesService.setAccessible(true);
+            Object service = fakeValuesService.invoke(faker);
+            Method fetchObject = service.getClass().getMethod("fetchObject", String.class);
+            List<String> stateNames = (List<String>) fetchObject.invoke(service, "address.state");
+            List<String> abbrs = (List<String>) fetchObject.invoke(service, "address.state_abbr");
+            if (stateNames.size() != abbrs.size()) {
+              throw new IllegalStateException("states and abbreviations don't match");
+            }
+            states = stateNames;
+            stateAbbrs = abbrs;
+          } catch (Exception | LinkageError ex) {
+            // fallback, states are just their abbreviations
+            List<String> abbrs = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+              abbrs.add(faker.address().stateAbbr());
+            }
+            states = abbrs;
+            stateAbbrs = abbrs;
+          }
+        }
+      }
+    }
+  }
+
+}
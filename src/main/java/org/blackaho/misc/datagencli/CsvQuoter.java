@@ -0,0 +1,91 @@
+package org.blackaho.misc.datagencli;
+
+/**
+ * Quotes values for CSV lines as in RFC 4180: values containing the separator, a double quote or a line break are
+ * enclosed in double quotes, with double quotes inside them doubled (e.g., say "hi", there becomes "say ""hi"", there").
+ * Each value is scanned once: chars above the highest special char (most letters, for usual separators) are skipped
+ * with a single comparison, others are checked with a lookup table. Only values that need quoting pay for it.
+ * With a multi-char separator, values starting or ending with part of it are quoted too (see overlapsSeparator()).
+ */
+public class CsvQuoter {
+
+  protected final String separator;
+  protected final char separatorFirstChar;
+  // ASCII chars that (may) need quoting: double quote, CR, LF and first char of separator
+  protected final boolean[] specialChars = new boolean[128];
+  protected final char maxSpecialChar;
+
+  public CsvQuoter(String separator) {
+    this.separator = separator;
+    this.separatorFirstChar = separator.isEmpty() ? '"' : separator.charAt(0);
+    specialChars['"'] = true;
+    specialChars['\n'] = true;
+    specialChars['\r'] = true;
+    if (separatorFirstChar < 128) {
+      specialChars[separatorFirstChar] = true;
+    }
+    this.maxSpecialChar = (char) Math.max('"', separatorFirstChar);
+  }
+
+  /**
+   * @return true if value must be quoted
+   */
+  public boolean needsQuoting(String value) {
+    int length = value.length();
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c <= maxSpecialChar && (c < 128 ? specialChars[c] : c == separatorFirstChar)) {
+        if (c != separatorFirstChar || separator.length() == 1 || value.startsWith(separator, i)) {
+          return true;
+        }
+      }
+    }
+    return separator.length() > 1 && overlapsSeparator(value);
+  }
+
+  /**
+   * With a multi-char separator, a value starting with the end of it or ending with the start of it (e.g., "a|" with
+   * "||") would make the separator found at the wrong position on the line, so it's quoted too.
+   * @return true if value starts with a suffix or ends with a prefix of separator
+   */
+  protected boolean overlapsSeparator(String value) {
+    int separatorLength = separator.length();
+    for (int n = Math.min(separatorLength - 1, value.length()); n > 0; n--) {
+      if (value.regionMatches(0, separator, separatorLength - n, n)
+          || value.regionMatches(value.length() - n, separator, 0, n)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return true if some value generated by template may need quoting
+   */
+  public boolean mayNeedQuoting(StringTemplate template) {
+    return template.mayContain(c -> c == '"' || c == '\n' || c == '\r' || separator.indexOf(c) >= 0);
+  }
+
+  /**
+   * Appends value to line, quoted if needed
+   */
+  public void append(StringBuilder line, String value) {
+    if (!needsQuoting(value)) {
+      line.append(value);
+      return;
+    }
+    int quotePos = value.indexOf('"');
+    if (quotePos < 0) {
+      line.append('"').append(value).append('"');
+      return;
+    }
+    line.append('"');
+    int start = 0;
+    for (; quotePos >= 0; quotePos = value.indexOf('"', quotePos + 1)) {
+      line.append(value.substring(start, quotePos + 1)).append('"');
+      start = quotePos + 1;
+    }
+    line.append(value.substring(start)).append('"');
+  }
+
+}
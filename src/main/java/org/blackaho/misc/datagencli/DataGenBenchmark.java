@@ -0,0 +1,228 @@
+package org.blackaho.misc.datagencli;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Benchmark of generation throughput (see --benchmark), without JMH, so it can run from the uber-jar on any box:
+ * after a warm-up (per field set), sweeps thread counts x field sets x sinks, generating rows in chunks (as a
+ * generation run) for a while on each case, and measures rows/sec, MB/sec and p99 chunk latency (time to generate
+ * and write a chunk).
+ *
+ * Sinks are: null (discards output, generation only), file (temporary file), stdout and gzip (gzip compressed to a
+ * temporary file).
+ */
+public class DataGenBenchmark {
+
+  static final long WARMUP_MILISECS = 3000L;
+  static final long CASE_MILISECS = 2000L;
+  static final List<String> SINKS = Arrays.asList("null", "file", "stdout", "gzip");
+
+  protected final Map<String, List<String>> fieldSets;
+  protected final List<Integer> threadCounts;
+  protected final OutputStream stdout;
+  // creates a DataGenCLI ready to generate chunks (row generator, encoder and chunk generator) for fields and threads
+  protected final BiFunction<List<String>, Integer, DataGenCLI> caseFactory;
+  protected long warmupMilisecs = WARMUP_MILISECS;
+  protected long caseMilisecs = CASE_MILISECS;
+
+  /**
+   * Result of a case (field set, threads and sink)
+   */
+  public static class Result {
+    final String fieldSet;
+    final int threads;
+    final String sink;
+    final long rows;
+    final long bytes;
+    final long nanos;
+    final long p99ChunkNanos;
+
+    Result(String fieldSet, int threads, String sink, long rows, long bytes, long nanos, long p99ChunkNanos) {
+      this.fieldSet = fieldSet;
+      this.threads = threads;
+      this.sink = sink;
+      this.rows = rows;
+      this.bytes = bytes;
+      this.nanos = nanos;
+      this.p99ChunkNanos = p99ChunkNanos;
+    }
+
+    public double getRowsPerSec() {
+      return rows * 1e9 / nanos;
+    }
+
+    /**
+     * @return megabytes (of uncompressed output) per second
+     */
+    public double getMbytesPerSec() {
+      return bytes * 1e9 / nanos / (1024.0 * 1024.0);
+    }
+
+    public double getP99ChunkMilisecs() {
+      return p99ChunkNanos / 1e6;
+    }
+  }
+
+  public DataGenBenchmark(Map<String, List<String>> fieldSets, List<Integer> threadCounts, OutputStream stdout,
+                          BiFunction<List<String>, Integer, DataGenCLI> caseFactory) {
+    this.fieldSets = fieldSets;
+    this.threadCounts = threadCounts;
+    this.stdout = stdout;
+    this.caseFactory = caseFactory;
+  }
+
+  /**
+   * @return representative field sets: numeric (computed directly), template (compiled templates and dates)
+   *   and text (Faker calls)
+   */
+  public static Map<String, List<String>> getDefaultFieldSets() {
+    Map<String, List<String>> fieldSets = new LinkedHashMap<>();
+    fieldSets.put("numeric", Arrays.asList("rowNumber", "sequence(1:1)", "randomLong(1:1000000)", "randomDouble(2:0:1000)"));
+    fieldSets.put("template", Arrays.asList("rowNumber", "randomString(??##-??##)", "regexify([a-f0-9]{16})",
+        "dateBetween(2000-01-01:2030-12-31)"));
+    fieldSets.put("text", Arrays.asList("rowNumber", "name.fullName", "address.city", "internet.emailAddress"));
+    return fieldSets;
+  }
+
+  /**
+   * @return 1, 2, 4, ... up to number of available processors (and that number, if not a power of 2)
+   */
+  public static List<Integer> getDefaultThreadCounts() {
+    int processors = Runtime.getRuntime().availableProcessors();
+    List<Integer> threadCounts = new ArrayList<>();
+    for (int threads = 1; threads < processors; threads *= 2) {
+      threadCounts.add(threads);
+    }
+    threadCounts.add(processors);
+    return threadCounts;
+  }
+
+  /**
+   * Runs warm-up and all cases
+   * @param listener - called with result of each case, as it ends (e.g., to print progress)
+   * @return results of all cases
+   */
+  public List<Result> run(Consumer<Result> listener) throws IOException {
+    List<Result> results = new ArrayList<>();
+    int maxThreads = Collections.max(threadCounts);
+    for (Map.Entry<String, List<String>> fieldSet : fieldSets.entrySet()) {
+      runCase(fieldSet.getKey(), fieldSet.getValue(), maxThreads, "null", warmupMilisecs);
+      for (int threads : threadCounts) {
+        for (String sink : SINKS) {
+          Result result = runCase(fieldSet.getKey(), fieldSet.getValue(), threads, sink, caseMilisecs);
+          results.add(result);
+          listener.accept(result);
+        }
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Generates chunks (as DataGenCLI.runWithRowRange() does) and writes them to sink, for milisecs
+   */
+  protected Result runCase(String fieldSetName, List<String> fields, int threads, String sink, long milisecs)
+      throws IOException {
+    DataGenCLI dataGenCLI = caseFactory.apply(fields, threads);
+    File tmpFile = "file".equals(sink) || "gzip".equals(sink) ? File.createTempFile("datagencli-benchmark", ".tmp") : null;
+    OutputStream out = createSink(sink, tmpFile);
+    try {
+      List<Long> chunkNanos = new ArrayList<>();
+      long rows = 0L;
+      long bytes = 0L;
+      long startNanos = System.nanoTime();
+      long endNanos = startNanos + milisecs * 1000000L;
+      long nextRow = 1L;
+      do {
+        long chunkStartNanos = System.nanoTime();
+        long chunkEnd = nextRow + dataGenCLI.chunkGenerator.nextChunkSize() - 1L;
+        byte[] chunk = dataGenCLI.generateChunk(nextRow, chunkEnd);
+        out.write(chunk);
+        chunkNanos.add(System.nanoTime() - chunkStartNanos);
+        rows += chunkEnd - nextRow + 1L;
+        bytes += chunk.length;
+        nextRow = chunkEnd + 1L;
+      } while (System.nanoTime() < endNanos);
+      out.flush();
+      if (out instanceof GZIPOutputStream) {
+        ((GZIPOutputStream) out).finish();
+      }
+      long nanos = System.nanoTime() - startNanos;
+      Collections.sort(chunkNanos);
+      long p99ChunkNanos = chunkNanos.get((int) Math.ceil(chunkNanos.size() * 0.99) - 1);
+      return new Result(fieldSetName, threads, sink, rows, bytes, nanos, p99ChunkNanos);
+    } finally {
+      dataGenCLI.chunkGenerator.close();
+      if (out != stdout) {
+        out.close();
+      }
+      if (tmpFile != null && !tmpFile.delete()) {
+        tmpFile.deleteOnExit();
+      }
+    }
+  }
+
+  protected OutputStream createSink(String sink, File tmpFile) throws IOException {
+    switch (sink) {
+      case "file":
+        return new BufferedOutputStream(new FileOutputStream(tmpFile), 1 << 16);
+      case "gzip":
+        return new GZIPOutputStream(new FileOutputStream(tmpFile), 1 << 16);
+      case "stdout":
+        return stdout;
+      default:
+        return new OutputStream() {
+          @Override
+          public void write(int b) {
+            // discarded
+          }
+
+          @Override
+          public void write(byte[] b, int off, int len) {
+            // discarded
+          }
+        };
+    }
+  }
+
+  public static String formatTableHeader() {
+    return String.format(Locale.ROOT, "%-10s %7s %-6s %14s %10s %14s", "fields", "threads", "sink", "rows/s", "MB/s", "p99 chunk ms");
+  }
+
+  public static String formatTableRow(Result result) {
+    return String.format(Locale.ROOT, "%-10s %7d %-6s %14.0f %10.1f %14.2f", result.fieldSet, result.threads, result.sink,
+        result.getRowsPerSec(), result.getMbytesPerSec(), result.getP99ChunkMilisecs());
+  }
+
+  /**
+   * @return results as a JSON array, an object per case
+   */
+  public static String formatJson(List<Result> results) {
+    StringBuilder json = new StringBuilder("[");
+    for (Result result : results) {
+      if (json.length() > 1) {
+        json.append(",\n ");
+      }
+      json.append(String.format(Locale.ROOT, "{\"fields\":\"%s\",\"threads\":%d,\"sink\":\"%s\",\"rows\":%d,\"bytes\":%d,"
+              + "\"rowsPerSec\":%.0f,\"mbPerSec\":%.3f,\"p99ChunkMs\":%.3f}", result.fieldSet, result.threads,
+          result.sink, result.rows, result.bytes, result.getRowsPerSec(), result.getMbytesPerSec(),
+          result.getP99ChunkMilisecs()));
+    }
+    return json.append("]").toString();
+  }
+
+}
@@ -1,12 +1,29 @@
 package org.blackaho.misc.datagencli;
 
-import java.io.FileNotFoundException;
+import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.LongStream;
 
 /**
@@ -25,11 +42,47 @@ public class DataGenCLI {
   static final String OPTION_HEADERLINE = "--headerline=";
   static final String OPTION_OUT = "--out=";
   static final String OPTION_SLEEP = "--sleep=";
+  static final String OPTION_TIMINGS = "--timings";
+  static final String OPTION_SERVER = "--server=";
+  static final String OPTION_SEED = "--seed=";
+  static final String OPTION_CHECKPOINT = "--checkpoint=";
+  static final String OPTION_WORKER = "--worker=";
+  static final String OPTION_ROWRANGE = "--row-range=";
+  static final String OPTION_REPLAY = "--replay=";
+  static final String OPTION_OUTPUTFORMAT = "--format=";
+  static final String OPTION_WIDTHS = "--widths=";
+  static final String OPTION_CSVQUOTING = "--csv-quoting=";
+  static final String OPTION_TABLE = "--table=";
+  static final String OPTION_BATCHSIZE = "--batch-size=";
+  static final String OPTION_THREADS = "--threads=";
+  static final String OPTION_PARALLELWRITE = "--parallel-write";
+  static final String OPTION_CACHEDIR = "--cache-dir=";
+  static final String OPTION_CACHEMBS = "--cache-mbs=";
+  static final String OPTION_BENCHMARK = "--benchmark";
+  static final String OPTION_CDC = "--cdc=";
+  static final String OPTION_SORTBY = "--sortby=";
+  static final String OPTION_SORTMBS = "--sort-mbs=";
 
-  static final String USAGE = "Usage: java -jar datagencli.jar [ --listfields | --rows=<number of rows to gen> | --mbs=<megabytes to gen> ] "
+  static final int CHUNK_SIZE_IN_ROWS = ParallelChunkGenerator.INITIAL_CHUNK_SIZE_IN_ROWS;
+  static final long CHECKPOINT_INTERVAL_IN_MILISECS = 10000L;
+  static final long REPLAY_CHUNK_IN_MILISECS = 10L;
+  static final int SAMPLE_ROWS = 1000;
+  static final List<String> FORMATS_WITHOUT_HEADERLINE = Arrays.asList("jsonl", "fixed", "pgcopy", "sql");
+
+  static final String USAGE = "Usage: java -jar datagencli.jar [ --listfields | --server=<port> | --benchmark[=<table | json>] "
+      + "| --rows=<number of rows to gen> | --mbs=<megabytes to gen> | --row-range=<first row>:<last row> ] [ --worker=<worker number>/<number of workers> ] "
       + "[ --header=<comma separated list of field names>  | --headerline=<header line to generate> ] "
       + "--separator=<fields separator char> --fields=<comma separated list of fields to gen> "
-      + "--sleep=<milisecs to sleep after generating each row> --out=<output filename>";
+      + "--sleep=<milisecs to sleep after generating each row> --out=<output filename> [ --timings ] "
+      + "--seed=<seed for deterministic data> --checkpoint=<checkpoint file, to resume generation if interrupted> "
+      + "--replay=<speed-up, writes rows when their eventTime arrives> "
+      + "--format=<csv | jsonl | fixed | pgcopy | sql> --widths=<comma separated list of column widths, for fixed format> "
+      + "--csv-quoting=<true | false> --table=<table name, for sql format> --batch-size=<rows per INSERT, for sql format> "
+      + "--threads=<number of threads generating rows> [ --parallel-write ] "
+      + "--cache-dir=<directory caching generated datasets, requires --seed> --cache-mbs=<max megabytes of cache> "
+      + "--cdc=<inserts>:<updates>:<deletes>[:<initial keys>] "
+      + "--sortby=<column to sort rows by, from --header or col0, col1, ...> --sort-mbs=<max megabytes of rows sorted in memory> "
+      + "(--out and --format can be repeated, to write each row to several outputs, e.g., --out=a.csv --out=b.jsonl --format=csv --format=jsonl)";
 
   // fields set with options
   boolean listFieldsOnly = false;
@@ -41,11 +94,48 @@ public class DataGenCLI {
   String outputFilename = null;
   List<String> fields = new ArrayList<>();
   long sleepInMilisecs = 0;
+  boolean showTimings = false;
+  int serverPort = -1;
+  Long seed = null;
+  String checkpointFilename = null;
+  int workerNumber = 0;
+  int numberOfWorkers = 0;
+  boolean hasRowRange = false;
+  long rowRangeStart = 0;
+  long rowRangeEnd = 0;
+  double replaySpeedup = 0;
+  boolean eventTimeFromNow = false;
+  String outputFormat = "csv";
+  List<Integer> widths = null;
+  boolean csvQuoting = true;
+  String table = null;
+  int batchSize = 1000;
+  int threads = 0;  // 0 for number of available processors
+  boolean parallelWrite = false;
+  String cacheDir = null;
+  long cacheMbytes = 1024;
+  String benchmarkOutput = null;  // table or json, with --benchmark
+  String cdc = null;  // inserts:updates:deletes[:initialKeys] ratios, with --cdc
+  String sortBy = null;  // column name
+  long sortMbytes = 256;
+  List<String> moreOutputFilenames = new ArrayList<>();  // with several --out, the ones after the first (outputFilename)
+  List<String> moreOutputFormats = new ArrayList<>();  // --format of each of them, empty if there's a single --format
 
   // vars needed for run()
   protected PrintWriter err = new PrintWriter(System.err,true); //NOSONAR - we really want to write to stderr
-  protected PrintWriter out = new PrintWriter(System.out); //NOSONAR - we really want to write to stdout, buffered
+  protected OutputStream out = new BufferedOutputStream(System.out, 1 << 16); //NOSONAR - we really want to write to stdout, buffered
   protected RowGenerator rowGenerator = null;
+  protected OutputEncoder outputEncoder = null;  // null for csv, i.e., lines from rowGenerator.generateRowLine()
+  protected FileOutputStream outputFileStream = null;
+  protected ParallelFileWriter parallelFileWriter = null;  // with --parallel-write, instead of outputFileStream
+  protected List<OutputStream> moreOutputs = new ArrayList<>();  // streams of moreOutputFilenames
+  protected CheckpointJournal checkpointJournal = null;
+  protected ExecutorService executor = null;  // null to generate on own thread pool, with --threads threads
+  protected ParallelChunkGenerator chunkGenerator = null;
+  protected DatasetCache datasetCache = null;
+  protected DatasetCache.EntryWriter cacheEntry = null;  // dataset being cached, as it's written to output
+  protected long checkpointIntervalInMilisecs = CHECKPOINT_INTERVAL_IN_MILISECS;
+  protected final AtomicLong firstRowTimeInMilisecs = new AtomicLong(0);
 
 
   public static void main(String[] args) {
@@ -58,76 +148,732 @@ public class DataGenCLI {
   }
 
 
+  /**
+   * Sets executor where rows are generated, for callers embedding DataGenCLI (e.g., to share a thread pool between
+   * runs). Executor is not shut down at the end of run(), and shouldn't be the one calling run() if it has a fixed
+   * number of threads (run() waits for rows generated on it). --threads (if set) is the number of rows slices
+   * generated at the same time on it.
+   * @param executor - executor to use, or null to use a thread pool created (and shut down) by run()
+   * @return this object
+   */
+  public DataGenCLI setExecutor(ExecutorService executor) {
+    this.executor = executor;
+    return this;
+  }
+
+  /**
+   * @return generator of chunks of rows, on executor set with setExecutor() or on a new thread pool
+   */
+  protected ParallelChunkGenerator createChunkGenerator() {
+    return executor != null ? new ParallelChunkGenerator(executor, threads) : new ParallelChunkGenerator(threads);
+  }
+
   /**
    * If applicable, sets output to specific file instead of console.
    * @return true if file was created for output, false case not.
    */
-  protected boolean prepareOutputFile() throws FileNotFoundException {
-    if (outputFilename!=null) {
-      out = new PrintWriter(new FileOutputStream(outputFilename));
+  protected boolean prepareOutputFile() throws IOException {
+    if (outputFilename != null && parallelWrite) {
+      // preallocated to expected length, truncated to length written at the end
+      parallelFileWriter = new ParallelFileWriter(new File(outputFilename), getExpectedOutputBytes());
+      return true;
+    } else if (outputFilename!=null) {
+      boolean resuming = checkpointJournal != null && checkpointJournal.getByteOffset() > 0;
+      if (resuming) {
+        // discard anything written after last checkpoint, and continue from there
+        try (RandomAccessFile outputFile = new RandomAccessFile(outputFilename, "rw")) {
+          outputFile.setLength(checkpointJournal.getByteOffset());
+        }
+      }
+      outputFileStream = new FileOutputStream(outputFilename, resuming);
+      out = new BufferedOutputStream(outputFileStream, 1 << 16);
+      for (String moreOutputFilename : moreOutputFilenames) {
+        moreOutputs.add(new BufferedOutputStream(new FileOutputStream(moreOutputFilename), 1 << 16));
+      }
       return true;
     } else {
       return false;
     }
   }
 
-  public void run() {
-    rowGenerator = RowGeneratorFactory.createDefaultRowGenerator()
+  /**
+   * Creates row generator according to options (fields, separator, header)
+   * @return row generator to be used on run()
+   */
+  protected RowGenerator createRowGenerator() {
+    return configureRowGenerator(RowGeneratorFactory.createDefaultRowGenerator());
+  }
+
+  /**
+   * Sets fields, separator, header and seed (if any) on a row generator
+   * @return row generator passed as parameter
+   */
+  protected RowGenerator configureRowGenerator(RowGenerator newRowGenerator) {
+    newRowGenerator
         .setFields(fields)
         .setFieldsSeparator(separator)
         .setHeader(header)
-        .setHeaderLine(headerLine);
+        .setHeaderLine(headerLine)
+        .setQuoting(csvQuoting);
+    return seed != null ? newRowGenerator.setSeed(seed) : newRowGenerator;
+  }
+
+  /**
+   * Signature of the row generator definition (fields, separator, header), used to cache row generators.
+   * @return signature string
+   */
+  protected String getRowGeneratorSignature() {
+    return "fields=" + fields + "|separator=" + separator + "|header=" + header + "|headerLine=" + headerLine
+        + "|seed=" + seed + "|csvQuoting=" + csvQuoting;
+  }
+
+  public void run() {
+    if (serverPort >= 0) {
+      runAsServer();
+      return;
+    }
+    if (benchmarkOutput != null) {
+      runBenchmark();
+      return;
+    }
+    if (checkpointFilename != null && !listFieldsOnly && !prepareCheckpoint()) {
+      return;
+    }
+    rowGenerator = createRowGenerator();
+    outputEncoder = createOutputEncoder();
 
     boolean closeOutAtEnd = false;
     try {
       closeOutAtEnd = prepareOutputFile(); // if applicable sets output to a specific file, instead of console.
-    } catch (FileNotFoundException ex) {
+    } catch (IOException ex) {
       err.println("ERROR opening output file "+outputFilename + ", stop processing.");
       return;
     }
 
-    if (listFieldsOnly) {
-      runWithListFields();
-    } else if (nRows != 0) {
-      runWithNumberOfRows();
-    } else if (nMbytes != 0) {
-      runWithNumberOfMegabytes();
+    if (cacheDir != null && !listFieldsOnly) {
+      try {
+        datasetCache = new DatasetCache(Paths.get(cacheDir), cacheMbytes * 1024L * 1024L);
+      } catch (IOException ex) {
+        err.println("ERROR using cache directory " + cacheDir + ": " + ex.getMessage());
+        closeQuietly(closeOutAtEnd);
+        return;
+      }
+    }
+    chunkGenerator = listFieldsOnly ? null : createChunkGenerator();
+    try {
+      if (listFieldsOnly) {
+        runWithListFields();
+      } else if (hasRowRange) {
+        runWithRowRange(rowRangeStart, rowRangeEnd);
+      } else if (nRows != 0) {
+        runWithNumberOfRows();
+      } else if (nMbytes != 0) {
+        runWithNumberOfMegabytes();
+      }
+    } catch (IOException ex) {
+      err.println("ERROR writing output: " + ex.getMessage());
+    } finally {
+      closeQuietly(closeOutAtEnd);
     }
+    if (showTimings) {
+      printTimings();
+    }
+  }
+
+  /**
+   * Prints (to stderr) time from JVM start to main() and to first generated row, useful to measure startup latency
+   * (e.g., when using an AppCDS archive, see README).
+   */
+  protected void printTimings() {
+    long jvmStartTime = ManagementFactory.getRuntimeMXBean().getStartTime();
+    err.println("Timings: jvm-start-to-first-row=" + (firstRowTimeInMilisecs.get() - jvmStartTime) + "ms"
+        + " jvm-start-to-end=" + (System.currentTimeMillis() - jvmStartTime) + "ms");
+  }
 
-    if (closeOutAtEnd) {
-      out.close();
+  /**
+   * Reads checkpoint journal (if it exists) to resume generation from last checkpoint, or starts a new one.
+   * Seed is kept in journal, so resumed generation continues generating the same data.
+   * @return true if ok to continue, false if checkpoint can't be used (error message written to err)
+   */
+  protected boolean prepareCheckpoint() {
+    CheckpointJournal journal = new CheckpointJournal(new File(checkpointFilename));
+    try {
+      if (journal.read()) {
+        if (seed != null && !seed.equals(journal.getSeed())) {
+          err.println("ERROR: Checkpoint " + checkpointFilename + " was created with a different --seed, stop processing.");
+          return false;
+        }
+        seed = journal.getSeed();
+        if (!getCheckpointSignature().equals(journal.getSignature())) {
+          err.println("ERROR: Checkpoint " + checkpointFilename + " was created with different options, stop processing.");
+          return false;
+        }
+        journal.resume();
+      } else {
+        seed = seed != null ? seed : new Random().nextLong();
+        journal.start(getCheckpointSignature(), seed);
+      }
+    } catch (IOException | RuntimeException ex) {
+      err.println("ERROR using checkpoint file " + checkpointFilename + ": " + ex.getMessage());
+      return false;
     }
+    checkpointJournal = journal;
+    return true;
   }
 
-  protected void runWithNumberOfRows() {
+  /**
+   * Signature of the output definition (row generator and format options), used as key of cached datasets
+   * @return signature string
+   */
+  protected String getOutputSignature() {
+    return getRowGeneratorSignature() + "|format=" + outputFormat + "|widths=" + widths + "|table=" + table + "|batch=" + batchSize;
+  }
+
+  protected String getCheckpointSignature() {
+    return getOutputSignature() + "|rows=" + nRows + "|mbs=" + nMbytes + "|out=" + outputFilename
+        + "|worker=" + workerNumber + "/" + numberOfWorkers + "|row-range=" + rowRangeStart + ":" + rowRangeEnd;
+  }
+
+  protected void closeQuietly(boolean closeOut) {
+    if (chunkGenerator != null) {
+      chunkGenerator.close();
+    }
+    try {
+      if (cacheEntry != null) {
+        // not committed, generation was interrupted
+        cacheEntry.discard();
+      }
+      if (parallelFileWriter != null) {
+        parallelFileWriter.close();
+      } else if (closeOut) {
+        out.close();
+        for (OutputStream moreOut : moreOutputs) {
+          moreOut.close();
+        }
+        moreOutputs.clear();
+      }
+      if (checkpointJournal != null) {
+        checkpointJournal.close();
+      }
+    } catch (IOException ex) {
+      err.println("ERROR closing output: " + ex.getMessage());
+    }
+  }
+
+  protected void runWithNumberOfRows() throws IOException {
     runWithNumberOfRows(nRows);
   }
 
-  protected void runWithNumberOfMegabytes() {
-    // get a sample of 1000 rows get average size per line. then, use it to calc number of rows needed.
+  protected void runAsServer() {
+    try {
+      DataGenServer server = new DataGenServer(serverPort);
+      server.start();
+      err.println("DataGen server listening on http://localhost:" + server.getPort() + DataGenServer.GENERATE_PATH);
+    } catch (IOException ex) {
+      err.println("ERROR starting server on port " + serverPort + ": " + ex.getMessage());
+    }
+  }
+
+  /**
+   * Runs benchmark (see DataGenBenchmark) on default field sets (or --fields) and thread counts (or --threads), with
+   * other options (e.g., --format) as given, and prints results (to stderr, as stdout is one of the sinks)
+   */
+  protected void runBenchmark() {
+    DataGenBenchmark benchmark = createBenchmark();
+    boolean json = "json".equals(benchmarkOutput);
+    if (!json) {
+      err.println(DataGenBenchmark.formatTableHeader());
+    }
+    try {
+      List<DataGenBenchmark.Result> results = benchmark.run(result -> {
+        if (!json) {
+          err.println(DataGenBenchmark.formatTableRow(result));
+        }
+      });
+      if (json) {
+        err.println(DataGenBenchmark.formatJson(results));
+      }
+    } catch (IOException ex) {
+      err.println("ERROR running benchmark: " + ex.getMessage());
+    }
+  }
+
+  protected DataGenBenchmark createBenchmark() {
+    Map<String, List<String>> fieldSets = fields.isEmpty()
+        ? DataGenBenchmark.getDefaultFieldSets()
+        : Collections.singletonMap("custom", fields);
+    List<Integer> threadCounts = threads > 0 ? Collections.singletonList(threads) : DataGenBenchmark.getDefaultThreadCounts();
+    return new DataGenBenchmark(fieldSets, threadCounts, out, this::createBenchmarkCase);
+  }
+
+  /**
+   * Creates a DataGenCLI with same options as this one, for fields and threads of a benchmark case, ready to
+   * generate chunks (see generateChunk())
+   */
+  protected DataGenCLI createBenchmarkCase(List<String> caseFields, int caseThreads) {
+    DataGenCLI dataGenCLI = new DataGenCLI();
+    dataGenCLI.fields = caseFields;
+    dataGenCLI.threads = caseThreads;
+    dataGenCLI.separator = separator;
+    dataGenCLI.csvQuoting = csvQuoting;
+    dataGenCLI.seed = seed;
+    dataGenCLI.outputFormat = outputFormat;
+    dataGenCLI.widths = caseFields.equals(fields) ? widths : null;
+    dataGenCLI.table = table != null ? table : "benchmark";
+    dataGenCLI.batchSize = batchSize;
+    dataGenCLI.executor = executor;
+    dataGenCLI.rowGenerator = dataGenCLI.createRowGenerator();
+    dataGenCLI.outputEncoder = dataGenCLI.createOutputEncoder();
+    dataGenCLI.chunkGenerator = dataGenCLI.createChunkGenerator();
+    return dataGenCLI;
+  }
+
+  protected void runWithNumberOfMegabytes() throws IOException {
+    long rowsToGenerate = (long) ((nMbytes*1024L*1024L)/estimateAverageBytesPerRow());
+    runWithNumberOfRows(rowsToGenerate);
+  }
+
+  /**
+   * Get a sample of 1000 rows to get average size per line, used to calc number of rows needed for --mbs.
+   * Sample is generated with getSampleRowGenerator(), so every worker gets the same estimate (and so the same
+   * total number of rows).
+   * @return average number of bytes per row
+   */
+  protected double estimateAverageBytesPerRow() {
     // number of bytes will an approach, but we avoid having a sync/shared counter between threads
-    double avgBytesPerRow = LongStream.range(0,1000).parallel()
-        .map( n -> rowGenerator.generateRowLine(n).getBytes().length+1 )
+    RowGenerator sampleRowGenerator = getSampleRowGenerator();
+    if (outputEncoder != null) {
+      OutputBuffer buffer = new OutputBuffer();
+      for (long n = 1; n <= SAMPLE_ROWS; n++) {
+        outputEncoder.encodeRow(n, sampleRowGenerator.generateRow(n), buffer);
+      }
+      return (double) buffer.size() / SAMPLE_ROWS;
+    }
+    return LongStream.rangeClosed(1L, SAMPLE_ROWS).parallel()
+        .map( n -> sampleRowGenerator.generateRowLine(n).getBytes(StandardCharsets.UTF_8).length+1 )
         .average().getAsDouble();
-    long rowsToGenerate = (long) ((nMbytes*1024L*1024L)/avgBytesPerRow);
-    runWithNumberOfRows(rowsToGenerate);
   }
 
-  protected void runWithNumberOfRows(long numberOfRowsToGenerate) {
-    if (header != null || headerLine != null) out.println(rowGenerator.generateHeaderLine());
-    LongStream.range(1L,numberOfRowsToGenerate+1L).parallel().forEach( rowNum -> { // do in parallel
-      out.println(rowGenerator.generateRowLine(rowNum));
-      if (rowNum%1000==0) out.flush(); // flush output every 1000 lines
-      try {
-        if (sleepInMilisecs > 0) {
-          out.flush(); // with sleep, we flush every line
-          Thread.sleep(sleepInMilisecs);
-        }
-      } catch (Exception ex) {
-        // just get back to our life
+  /**
+   * Row generator for samples of rows (see estimateAverageBytesPerRow() and --format=fixed widths). When splitting
+   * generation between workers (--worker or --row-range) without --seed, sample is always generated with a seed, so
+   * every worker gets the same results from it.
+   */
+  protected RowGenerator getSampleRowGenerator() {
+    return (numberOfWorkers > 0 || hasRowRange) && seed == null
+        ? configureRowGenerator(RowGeneratorFactory.createDefaultRowGenerator()).setSeed(0L)
+        : rowGenerator;
+  }
+
+  /**
+   * @return sample of rows (SAMPLE_ROWS), generated with getSampleRowGenerator()
+   */
+  protected List<List> generateSampleRows() {
+    RowGenerator sampleRowGenerator = getSampleRowGenerator();
+    return LongStream.rangeClosed(1L, SAMPLE_ROWS).mapToObj(sampleRowGenerator::generateRow)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Generates numberOfRowsToGenerate rows, or, with --worker=i/n, this worker slice of them.
+   */
+  protected void runWithNumberOfRows(long numberOfRowsToGenerate) throws IOException {
+    runWithRowRange(getWorkerFirstRow(numberOfRowsToGenerate), getWorkerLastRow(numberOfRowsToGenerate));
+  }
+
+  /**
+   * Worker i of n generates rows from (total*(i-1)/n)+1 to total*i/n (all of them, without --worker)
+   * @return first row of this worker slice of numberOfRows
+   */
+  protected long getWorkerFirstRow(long numberOfRows) {
+    return numberOfWorkers > 0 ? (numberOfRows * (workerNumber - 1L)) / numberOfWorkers + 1L : 1L;
+  }
+
+  /**
+   * @return last row of this worker slice of numberOfRows (see getWorkerFirstRow())
+   */
+  protected long getWorkerLastRow(long numberOfRows) {
+    return numberOfWorkers > 0 ? (numberOfRows * workerNumber) / numberOfWorkers : numberOfRows;
+  }
+
+  /**
+   * Expected output length with --mbs (used to preallocate the file with --parallel-write): --mbs target or, with
+   * --worker, the rows of this worker slice times estimated bytes per row (about 1/n of target)
+   * @return expected number of bytes, 0 if unknown (e.g., with --rows)
+   */
+  protected long getExpectedOutputBytes() {
+    long targetBytes = nMbytes * 1024L * 1024L;
+    if (targetBytes <= 0 || numberOfWorkers <= 0) {
+      return targetBytes;
+    }
+    double bytesPerRow = estimateAverageBytesPerRow();
+    long numberOfRows = (long) (targetBytes / bytesPerRow);
+    return (long) Math.ceil((getWorkerLastRow(numberOfRows) - getWorkerFirstRow(numberOfRows) + 1L) * bytesPerRow);
+  }
+
+  /**
+   * Generates rows in chunks: rows of each chunk are generated in parallel, and chunks are written in order,
+   * so output is always in row number order (and, with a checkpoint, we know which rows were already written).
+   * Chunk size adapts to the cost of rows (see ParallelChunkGenerator.nextChunkSize()), except with --sleep or --replay.
+   * Header is only written by the slice with first row (row number 1), unless format needs it on every output
+   * (e.g., pgcopy, where each output must be a complete file, with header and trailer).
+   */
+  protected void runWithRowRange(long firstRow, long lastRow) throws IOException {
+    if (parallelFileWriter != null) {
+      runWithParallelWrites(firstRow, lastRow);
+      return;
+    } else if (!moreOutputs.isEmpty()) {
+      runWithMultipleOutputs(firstRow, lastRow);
+      return;
+    } else if (sortBy != null) {
+      runWithSortBy(firstRow, lastRow);
+      return;
+    }
+    long nextRow = checkpointJournal != null && checkpointJournal.hasCheckpoint() ? checkpointJournal.getNextRow() : firstRow;
+    long bytesWritten = checkpointJournal != null ? checkpointJournal.getByteOffset() : 0L;
+    long lastCheckpointTime = System.currentTimeMillis();
+    if (datasetCache != null) {
+      DatasetCache.CachedDataset cached = writeFromCache(lastRow);
+      if (cached != null) {
+        nextRow = cached.getRows() + 1L;
+        bytesWritten = cached.getLength();
       }
-    });
+    }
+    boolean headerOnEveryOutput = outputEncoder != null && outputEncoder.isHeaderOnEveryOutput();
+    byte[] headerBytes = nextRow == 1L || (headerOnEveryOutput && nextRow == firstRow) ? generateHeader() : null;
+    if (headerBytes != null) {
+      bytesWritten += write(headerBytes);
+    }
+    byte[] trailerBytes = null;
+    if (outputEncoder != null) {
+      outputEncoder.setRowRange(firstRow, lastRow);
+      trailerBytes = outputEncoder.encodeTrailer();
+    }
+    // with sleep, we generate one row per thread and flush each chunk
+    int chunkSize = sleepInMilisecs > 0 ? chunkGenerator.getThreads() : 0;
+    // with replay, chunks have rows of a few milisecs (after speed-up), written (and flushed) when their time arrives
+    FakerRowGenerator.FieldSpec replayField = replaySpeedup > 0 ? getReplayEventTimeField() : null;
+    Instant replayStartEventTime = replayField != null ? replayField.getEventTime(nextRow) : null;
+    long replayStartNanos = System.nanoTime();
+    if (replayField != null) {
+      double rowsPerChunk = (double) replayField.arguments[1] * replaySpeedup * REPLAY_CHUNK_IN_MILISECS / 1000.0;
+      chunkSize = (int) Math.max(1.0, Math.min(rowsPerChunk, CHUNK_SIZE_IN_ROWS));
+    }
+    long chunkStart = nextRow;
+    while (chunkStart <= lastRow) {
+      long chunkEnd = Math.min(chunkStart + (chunkSize > 0 ? chunkSize : chunkGenerator.nextChunkSize()) - 1L, lastRow);
+      byte[] chunk = generateChunk(chunkStart, chunkEnd);
+      if (replayField != null) {
+        // waits for (speeded up) event time of last row of chunk, including its max jitter
+        long eventNanos = Duration.between(replayStartEventTime, replayField.getEventTime(chunkEnd)).toNanos()
+            + replayField.getJitterNanos();
+        sleepNanos((long) (eventNanos / replaySpeedup) - (System.nanoTime() - replayStartNanos));
+      }
+      bytesWritten += write(chunk);
+      if (cacheEntry != null) {
+        cacheEntry.markRow(chunkEnd);
+      }
+      if (chunkEnd == lastRow && trailerBytes != null) {
+        // written with last chunk, so it's covered by last checkpoint (and not written again on resume)
+        bytesWritten += write(trailerBytes);
+      }
+      if (showTimings) firstRowTimeInMilisecs.compareAndSet(0, System.currentTimeMillis());
+      if (sleepInMilisecs > 0) {
+        out.flush();
+        sleep(sleepInMilisecs);
+      } else if (replayField != null) {
+        out.flush();
+      }
+      if (checkpointJournal != null && (chunkEnd == lastRow
+          || System.currentTimeMillis() - lastCheckpointTime >= checkpointIntervalInMilisecs)) {
+        out.flush();
+        outputFileStream.getFD().sync();
+        checkpointJournal.checkpoint(chunkEnd + 1L, bytesWritten);
+        lastCheckpointTime = System.currentTimeMillis();
+      }
+      chunkStart = chunkEnd + 1L;
+    }
+    out.flush();
+    if (cacheEntry != null) {
+      cacheEntry.commit();
+      cacheEntry = null;
+    }
+  }
+
+  /**
+   * Writes rows from 1 to lastRow from cache, zero-copy when writing to a file, or, if there's no such dataset cached,
+   * its first rows (from a larger dataset) when format allows it. Otherwise, starts caching output as it's written.
+   * @return rows written from cache, or null if none were
+   */
+  protected DatasetCache.CachedDataset writeFromCache(long lastRow) throws IOException {
+    String key = DatasetCache.key(getOutputSignature());
+    // rows of sql (last INSERT) and pgcopy (trailer) depend on last row, first rows of a larger dataset can't be used
+    boolean allowPrefix = Arrays.asList("csv", "jsonl", "fixed").contains(outputFormat);
+    DatasetCache.CachedDataset cached = datasetCache.lookup(key, lastRow, allowPrefix);
+    if (cached == null) {
+      cacheEntry = datasetCache.startEntry(key, lastRow);
+      return null;
+    }
     out.flush();
+    datasetCache.transferTo(cached, outputFileStream != null ? outputFileStream.getChannel() : Channels.newChannel(out));
+    if (showTimings) firstRowTimeInMilisecs.compareAndSet(0, System.currentTimeMillis());
+    return cached;
+  }
+
+  /**
+   * Generates rows with --parallel-write: each thread generates chunks and writes them on their region of the output
+   * file (see ParallelFileWriter), instead of writing all chunks from one thread. Rows are in the same order (and
+   * so is output) as in runWithRowRange().
+   */
+  protected void runWithParallelWrites(long firstRow, long lastRow) throws IOException {
+    boolean headerOnEveryOutput = outputEncoder != null && outputEncoder.isHeaderOnEveryOutput();
+    byte[] headerBytes = firstRow == 1L || headerOnEveryOutput ? generateHeader() : null;
+    if (headerBytes != null) {
+      parallelFileWriter.append(headerBytes);
+    }
+    byte[] trailerBytes = null;
+    if (outputEncoder != null) {
+      outputEncoder.setRowRange(firstRow, lastRow);
+      trailerBytes = outputEncoder.encodeTrailer();
+    }
+    chunkGenerator.generateChunks(firstRow, lastRow, getRowEncoder(), (sequence, chunk) -> {
+      parallelFileWriter.writeChunk(sequence, chunk);
+      if (showTimings) firstRowTimeInMilisecs.compareAndSet(0, System.currentTimeMillis());
+    });
+    if (trailerBytes != null) {
+      parallelFileWriter.append(trailerBytes);
+    }
+  }
+
+  /**
+   * Generates rows for several outputs (--out given more than once, each with its --format): each row is generated
+   * once and encoded to every output, on the thread generating it (see ParallelChunkGenerator.generateChunkOutputs()),
+   * so writing n outputs costs generating rows once plus encoding them n times, instead of generating them n times.
+   */
+  protected void runWithMultipleOutputs(long firstRow, long lastRow) throws IOException {
+    List<OutputStream> outputs = new ArrayList<>();
+    outputs.add(out);
+    outputs.addAll(moreOutputs);
+    List<String> formats = getOutputFormats();
+    OutputEncoder[] encoders = new OutputEncoder[outputs.size()];
+    byte[][] trailers = new byte[outputs.size()][];
+    for (int i = 0; i < encoders.length; i++) {
+      encoders[i] = i == 0 ? outputEncoder : createOutputEncoder(formats.get(i));
+      boolean headerOnEveryOutput = encoders[i] != null && encoders[i].isHeaderOnEveryOutput();
+      byte[] headerBytes = firstRow == 1L || headerOnEveryOutput ? generateHeader(encoders[i]) : null;
+      if (headerBytes != null) {
+        outputs.get(i).write(headerBytes);
+      }
+      if (encoders[i] != null) {
+        encoders[i].setRowRange(firstRow, lastRow);
+        trailers[i] = encoders[i].encodeTrailer();
+      }
+    }
+    ParallelChunkGenerator.MultiRowEncoder rowEncoder = (rowNum, buffers) -> {
+      List row = rowGenerator.generateRow(rowNum);
+      for (int i = 0; i < encoders.length; i++) {
+        if (encoders[i] != null) {
+          encoders[i].encodeRow(rowNum, row, buffers[i]);
+        } else {
+          buffers[i].writeUtf8(rowGenerator.formatRowLine(row)).write((byte) '\n');
+        }
+      }
+    };
+    long chunkStart = firstRow;
+    while (chunkStart <= lastRow) {
+      long chunkEnd = Math.min(chunkStart + chunkGenerator.nextChunkSize() - 1L, lastRow);
+      byte[][] chunks = chunkGenerator.generateChunkOutputs(chunkStart, chunkEnd, encoders.length, rowEncoder);
+      for (int i = 0; i < chunks.length; i++) {
+        outputs.get(i).write(chunks[i]);
+      }
+      if (showTimings) firstRowTimeInMilisecs.compareAndSet(0, System.currentTimeMillis());
+      chunkStart = chunkEnd + 1L;
+    }
+    for (int i = 0; i < outputs.size(); i++) {
+      if (trailers[i] != null) {
+        outputs.get(i).write(trailers[i]);
+      }
+      outputs.get(i).flush();
+    }
+  }
+
+  /**
+   * Generates rows sorted by --sortby column, with at most --sort-mbs of rows in memory (see ExternalRowSorter): rows
+   * are generated in parallel (as binary records) and added to the sorter, which spills them to sorted runs on
+   * temporary files (next to --out file), then runs are merged while rows are encoded to output. Rows are encoded
+   * with their output position as row number, so formats grouping rows (e.g., sql batches) group them as written.
+   */
+  protected void runWithSortBy(long firstRow, long lastRow) throws IOException {
+    File tmpDir = outputFilename != null ? new File(outputFilename).getAbsoluteFile().getParentFile() : null;
+    int sortColumn = getColumnNames().indexOf(sortBy);
+    try (ExternalRowSorter sorter = new ExternalRowSorter(sortColumn, sortMbytes * 1024L * 1024L, tmpDir)) {
+      ParallelChunkGenerator.RowEncoder recordEncoder =
+          (rowNum, buffer) -> ExternalRowSorter.writeRow(rowNum, rowGenerator.generateRow(rowNum), buffer);
+      long chunkStart = firstRow;
+      while (chunkStart <= lastRow) {
+        long chunkEnd = Math.min(chunkStart + chunkGenerator.nextChunkSize() - 1L, lastRow);
+        sorter.addRows(chunkGenerator.generateChunk(chunkStart, chunkEnd, recordEncoder));
+        chunkStart = chunkEnd + 1L;
+      }
+      boolean headerOnEveryOutput = outputEncoder != null && outputEncoder.isHeaderOnEveryOutput();
+      byte[] headerBytes = firstRow == 1L || headerOnEveryOutput ? generateHeader() : null;
+      if (headerBytes != null) {
+        write(headerBytes);
+      }
+      byte[] trailerBytes = null;
+      if (outputEncoder != null) {
+        outputEncoder.setRowRange(firstRow, lastRow);
+        trailerBytes = outputEncoder.encodeTrailer();
+      }
+      OutputBuffer buffer = new OutputBuffer();
+      long[] position = new long[] {firstRow};
+      sorter.merge((rowNumber, values) -> {
+        if (outputEncoder != null) {
+          outputEncoder.encodeRow(position[0], values, buffer);
+        } else {
+          buffer.writeUtf8(rowGenerator.formatRowLine(values)).write((byte) '\n');
+        }
+        position[0]++;
+        if (buffer.size() >= OutputBuffer.DEFAULT_CAPACITY) {
+          out.write(buffer.bytes, 0, buffer.size());
+          buffer.reset();
+        }
+        if (showTimings) firstRowTimeInMilisecs.compareAndSet(0, System.currentTimeMillis());
+      });
+      out.write(buffer.bytes, 0, buffer.size());
+      if (trailerBytes != null) {
+        write(trailerBytes);
+      }
+      out.flush();
+    }
+  }
+
+  /**
+   * Generates rows from chunkStart to chunkEnd (inclusive), in parallel (see getRowEncoder())
+   * @return encoded rows (lines in UTF-8), in row number order
+   */
+  protected byte[] generateChunk(long chunkStart, long chunkEnd) {
+    return chunkGenerator.generateChunk(chunkStart, chunkEnd, getRowEncoder());
+  }
+
+  /**
+   * @return encoder of a row: line from rowGenerator.generateRowLine() or row encoded with outputEncoder
+   */
+  protected ParallelChunkGenerator.RowEncoder getRowEncoder() {
+    if (outputEncoder != null) {
+      return (rowNum, buffer) -> outputEncoder.encodeRow(rowNum, rowGenerator.generateRow(rowNum), buffer);
+    }
+    return (rowNum, buffer) -> buffer.writeUtf8(rowGenerator.generateRowLine(rowNum)).write((byte) '\n');
+  }
+
+  /**
+   * @return header (including end of line), or null if there's no header
+   */
+  protected byte[] generateHeader() {
+    return generateHeader(outputEncoder);
+  }
+
+  /**
+   * @return header (including end of line) of an output with encoder (null for csv), or null if there's no header
+   */
+  protected byte[] generateHeader(OutputEncoder encoder) {
+    if (encoder != null) {
+      return encoder.encodeHeader();
+    }
+    return header != null || headerLine != null
+        ? (rowGenerator.generateHeaderLine() + "\n").getBytes(StandardCharsets.UTF_8)
+        : null;
+  }
+
+  /**
+   * Creates encoder for --format (null for csv, written as lines from row generator)
+   */
+  protected OutputEncoder createOutputEncoder() {
+    return createOutputEncoder(outputFormat);
+  }
+
+  /**
+   * Creates encoder for format (null for csv)
+   */
+  protected OutputEncoder createOutputEncoder(String format) {
+    if ("jsonl".equals(format)) {
+      return new JsonLinesEncoder(getColumnNames());
+    } else if ("fixed".equals(format)) {
+      // widths from a sample, the same on every worker (see getSampleRowGenerator()), so their outputs are aligned
+      int[] columnWidths = widths != null
+          ? widths.stream().mapToInt(Integer::intValue).toArray()
+          : FixedWidthEncoder.computeWidths(generateSampleRows(), header, fields.size());
+      return new FixedWidthEncoder(columnWidths, header);
+    } else if ("pgcopy".equals(format)) {
+      // types from a sample (not a single row, whose values may be null or not typical), the same on every worker
+      List<List> sample = generateSampleRows();
+      return new PgCopyEncoder(PgCopyEncoder.inferColumnTypes(sample, sample.get(0).size()));
+    } else if ("sql".equals(format)) {
+      return new SqlInsertEncoder(table, getColumnNames(), batchSize);
+    }
+    return null;
+  }
+
+  /**
+   * @return column names from --header, or col0, col1, ... if there's no header
+   */
+  protected List<String> getColumnNames() {
+    return header != null
+        ? header
+        : IntStream.range(0, fields.size()).mapToObj(pos -> "col" + pos).collect(Collectors.toList());
+  }
+
+  /**
+   * @return format of each output, in --out order: with several --out, each one has its own --format (n-th --format
+   *   for n-th --out), or all have the same one if there's a single --format
+   */
+  protected List<String> getOutputFormats() {
+    List<String> formats = new ArrayList<>();
+    formats.add(outputFormat);
+    for (int i = 0; i < moreOutputFilenames.size(); i++) {
+      formats.add(i < moreOutputFormats.size() ? moreOutputFormats.get(i) : outputFormat);
+    }
+    return formats;
+  }
+
+  /**
+   * @return output formats accepted on --format
+   */
+  protected List<String> getSupportedOutputFormats() {
+    return Arrays.asList("csv", "jsonl", "fixed", "pgcopy", "sql");
+  }
+
+  protected long write(byte[] bytes) throws IOException {
+    out.write(bytes);
+    if (cacheEntry != null) {
+      cacheEntry.write(bytes);
+    }
+    return bytes.length;
+  }
+
+  protected static void sleepNanos(long nanos) {
+    if (nanos > 0) {
+      sleep(nanos / 1000000L);
+      LockSupport.parkNanos(nanos % 1000000L);
+    }
+  }
+
+  /**
+   * @return first eventTime field, used by --replay to pace rows, or null if there's none
+   */
+  protected FakerRowGenerator.FieldSpec getReplayEventTimeField() {
+    return fields.stream()
+        .map(FakerRowGenerator.FieldSpec::parse)
+        .filter(fieldSpec -> fieldSpec.specType == FakerRowGenerator.FieldSpec.SpecType.EVENT_TIME)
+        .findFirst().orElse(null);
+  }
+
+  protected static void sleep(long milisecs) {
+    try {
+      Thread.sleep(milisecs);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt(); // just get back to our life
+    }
   }
 
   protected void runWithListFields() {
@@ -139,7 +885,8 @@ public class DataGenCLI {
 
 
   public void parseOptions(String[] args) {
-
+    List<String> outputFilenames = new ArrayList<>();
+    List<String> outputFormats = new ArrayList<>();
     for (String arg : args) {
       if (arg.startsWith(OPTION_LISTFIELDS)) {
         listFieldsOnly = true;
@@ -152,35 +899,172 @@ public class DataGenCLI {
       } else if (arg.startsWith(OPTION_HEADERLINE)) {
         headerLine = arg.substring(OPTION_HEADERLINE.length(), arg.length());
       } else if (arg.startsWith(OPTION_OUT)) {
-        outputFilename = arg.substring(OPTION_OUT.length(), arg.length());
+        outputFilenames.add(arg.substring(OPTION_OUT.length(), arg.length()));
       } else if (arg.startsWith(OPTION_FIELDS)) {
-        fields = parseCSVStringAsList(arg.substring(OPTION_FIELDS.length(), arg.length()));
+        // composite fields (e.g., address{city,state}) are expanded to a field (column) per part
+        fields = CompositeField.expandFields(parseCSVStringAsList(arg.substring(OPTION_FIELDS.length(), arg.length())));
       } else if (arg.startsWith(OPTION_HEADER)) {
         header = parseCSVStringAsList(arg.substring(OPTION_HEADER.length(), arg.length()));
       } else if (arg.startsWith(OPTION_SLEEP)) {
         sleepInMilisecs = Long.parseLong(arg.substring(OPTION_SLEEP.length(), arg.length()));
+      } else if (arg.startsWith(OPTION_PARALLELWRITE)) {
+        parallelWrite = true;
+      } else if (arg.startsWith(OPTION_CACHEDIR)) {
+        cacheDir = arg.substring(OPTION_CACHEDIR.length(), arg.length());
+      } else if (arg.startsWith(OPTION_CACHEMBS)) {
+        cacheMbytes = Long.parseLong(arg.substring(OPTION_CACHEMBS.length(), arg.length()));
+      } else if (arg.equals(OPTION_BENCHMARK) || arg.startsWith(OPTION_BENCHMARK + "=")) {
+        benchmarkOutput = arg.startsWith(OPTION_BENCHMARK + "=") ? arg.substring(OPTION_BENCHMARK.length() + 1) : "table";
+      } else if (arg.startsWith(OPTION_SORTBY)) {
+        sortBy = arg.substring(OPTION_SORTBY.length(), arg.length());
+      } else if (arg.startsWith(OPTION_SORTMBS)) {
+        sortMbytes = Long.parseLong(arg.substring(OPTION_SORTMBS.length(), arg.length()));
+      } else if (arg.startsWith(OPTION_CDC)) {
+        cdc = arg.substring(OPTION_CDC.length(), arg.length());
+      } else if (arg.startsWith(OPTION_TIMINGS)) {
+        showTimings = true;
+      } else if (arg.startsWith(OPTION_SERVER)) {
+        serverPort = Integer.parseInt(arg.substring(OPTION_SERVER.length(), arg.length()));
+      } else if (arg.startsWith(OPTION_SEED)) {
+        seed = Long.parseLong(arg.substring(OPTION_SEED.length(), arg.length()));
+      } else if (arg.startsWith(OPTION_CHECKPOINT)) {
+        checkpointFilename = arg.substring(OPTION_CHECKPOINT.length(), arg.length());
+      } else if (arg.startsWith(OPTION_WORKER)) {
+        String[] worker = arg.substring(OPTION_WORKER.length(), arg.length()).split("/");
+        workerNumber = Integer.parseInt(worker[0].trim());
+        numberOfWorkers = worker.length > 1 ? Integer.parseInt(worker[1].trim()) : -1;
+      } else if (arg.startsWith(OPTION_OUTPUTFORMAT)) {
+        outputFormats.add(arg.substring(OPTION_OUTPUTFORMAT.length(), arg.length()));
+      } else if (arg.startsWith(OPTION_WIDTHS)) {
+        widths = parseCSVStringAsList(arg.substring(OPTION_WIDTHS.length(), arg.length())).stream()
+            .map(Integer::parseInt).collect(Collectors.toList());
+      } else if (arg.startsWith(OPTION_CSVQUOTING)) {
+        csvQuoting = Boolean.parseBoolean(arg.substring(OPTION_CSVQUOTING.length(), arg.length()));
+      } else if (arg.startsWith(OPTION_TABLE)) {
+        table = arg.substring(OPTION_TABLE.length(), arg.length());
+      } else if (arg.startsWith(OPTION_BATCHSIZE)) {
+        batchSize = Integer.parseInt(arg.substring(OPTION_BATCHSIZE.length(), arg.length()));
+      } else if (arg.startsWith(OPTION_THREADS)) {
+        threads = Integer.parseInt(arg.substring(OPTION_THREADS.length(), arg.length()));
+      } else if (arg.startsWith(OPTION_REPLAY)) {
+        replaySpeedup = Double.parseDouble(arg.substring(OPTION_REPLAY.length(), arg.length()));
+      } else if (arg.startsWith(OPTION_ROWRANGE)) {
+        String[] rowRange = arg.substring(OPTION_ROWRANGE.length(), arg.length()).split(":");
+        hasRowRange = true;
+        rowRangeStart = Long.parseLong(rowRange[0].trim());
+        rowRangeEnd = rowRange.length > 1 ? Long.parseLong(rowRange[1].trim()) : -1L;
       }
     }
+    // several --out (and --format) are outputs for the same rows, first one is the main output
+    if (!outputFilenames.isEmpty()) {
+      outputFilename = outputFilenames.get(0);
+      moreOutputFilenames = new ArrayList<>(outputFilenames.subList(1, outputFilenames.size()));
+    }
+    if (!outputFormats.isEmpty()) {
+      outputFormat = outputFormats.get(0);
+      moreOutputFormats = new ArrayList<>(outputFormats.subList(1, outputFormats.size()));
+    }
+    if (cdc != null) {
+      addCdcFields();
+    }
+    // "now" is resolved once, so all threads (and spark executors) generate event times from the same start
+    List<String> resolvedFields = FakerRowGenerator.resolveEventTimeNow(fields, Instant.now());
+    if (!resolvedFields.equals(fields)) {
+      fields = resolvedFields;
+      eventTimeFromNow = true;
+    }
+  }
+
+  /**
+   * With --cdc, rows are change events: an op (c, u or d) and a key field (see cdcOp and cdcKey fields on
+   * FakerRowGenerator) are added before --fields (the payload), and "op" and "key" before --header, if set
+   */
+  protected void addCdcFields() {
+    String opField = "cdcOp(" + cdc + ")";
+    if (!fields.isEmpty() && fields.get(0).equals(opField)) {
+      return;  // already added (options parsed again)
+    }
+    List<String> cdcFields = new ArrayList<>(Arrays.asList(opField, "cdcKey(" + cdc + ")"));
+    cdcFields.addAll(fields);
+    fields = cdcFields;
+    if (header != null) {
+      List<String> cdcHeader = new ArrayList<>(Arrays.asList("op", "key"));
+      cdcHeader.addAll(header);
+      header = cdcHeader;
+    }
   }
 
+  /**
+   * Splits a comma separated list, ignoring commas inside parentheses or braces, e.g.,
+   * "rowNumber,weighted(a=0.7,b=0.3)" is split as "rowNumber" and "weighted(a=0.7,b=0.3)"
+   */
   protected List<String> parseCSVStringAsList(String csvStr) {
-    return Arrays.asList(csvStr.split(","))
-        .stream()
+    List<String> values = new ArrayList<>();
+    int depth = 0;
+    int start = 0;
+    for (int i = 0; i < csvStr.length(); i++) {
+      char c = csvStr.charAt(i);
+      if (c == '(' || c == '{') {
+        depth++;
+      } else if ((c == ')' || c == '}') && depth > 0) {
+        depth--;
+      } else if (c == ',' && depth == 0) {
+        values.add(csvStr.substring(start, i));
+        start = i + 1;
+      }
+    }
+    values.add(csvStr.substring(start));
+    return values.stream()
         .map(String::trim)
         .filter(s -> !s.isEmpty())
         .collect(Collectors.toList());
   }
 
+  /**
+   * Builds distributions of distribution fields (e.g., zipf(100:1.1)), so they're cached for generation
+   * @return error of first invalid distribution field (e.g., weighted with a negative weight), or null if all are valid
+   */
+  protected String checkDistributionFields() {
+    for (String field : fields) {
+      if (Distribution.isDistribution(field)) {
+        try {
+          Distribution.getDistribution(field);
+        } catch (IllegalArgumentException ex) {
+          return field + " (" + ex.getMessage() + ")";
+        }
+      }
+    }
+    return null;
+  }
+
   public boolean checkOptions() {
     // error checking
-    if (listFieldsOnly) {
+    if (benchmarkOutput != null && !Arrays.asList("table", "json").contains(benchmarkOutput)) {
+      err.println("ERROR: Option --benchmark has invalid value, accepted values are table, json");
+      err.println(USAGE);
+      return false;
+    } else if (benchmarkOutput != null && (nRows != 0 || nMbytes != 0 || hasRowRange || outputFilename != null
+        || numberOfWorkers != 0 || checkpointFilename != null || sleepInMilisecs > 0 || replaySpeedup > 0
+        || parallelWrite || cacheDir != null || cdc != null || sortBy != null || serverPort >= 0)) {
+      // benchmark generates its own rows to its own sinks, these options would be silently ignored
+      err.println("ERROR: Option --benchmark cannot be used with --rows, --mbs, --row-range, --out, --worker, "
+          + "--checkpoint, --sleep, --replay, --parallel-write, --cache-dir, --cdc, --sortby or --server");
+      err.println(USAGE);
+      return false;
+    }
+    if (listFieldsOnly || serverPort >= 0 || benchmarkOutput != null) {
       return true;
     }
+    String invalidDistribution = checkDistributionFields();
     if (nRows != 0 && nMbytes != 0) {
       err.println("ERROR: Options --rows=numberOfRows and --mbs=megabytesToGenerate cannot be used together.");
       err.println(USAGE);
       return false;
-    } else if (fields.isEmpty() || (nRows == 0 && nMbytes == 0)) {
+    } else if (hasRowRange && (nRows != 0 || nMbytes != 0 || numberOfWorkers != 0)) {
+      err.println("ERROR: Option --row-range cannot be used with --rows, --mbs or --worker.");
+      err.println(USAGE);
+      return false;
+    } else if (fields.isEmpty() || (nRows == 0 && nMbytes == 0 && !hasRowRange)) {
       err.println(USAGE);
       return false;
     } else if (headerLine==null && header!=null && (fields.size()!=header.size())) {
@@ -191,6 +1075,90 @@ public class DataGenCLI {
       err.println("ERROR: Either --rows, --mbs or --sleep have negative or invalid values");
       err.println(USAGE);
       return false;
+    } else if (hasRowRange && (rowRangeStart < 1 || rowRangeEnd < rowRangeStart)) {
+      err.println("ERROR: Option --row-range must be <first row>:<last row>, with 1 <= first row <= last row");
+      err.println(USAGE);
+      return false;
+    } else if (numberOfWorkers < 0 || workerNumber < 0 || workerNumber > numberOfWorkers
+        || (numberOfWorkers > 0 && workerNumber == 0)) {
+      err.println("ERROR: Option --worker must be <worker number>/<number of workers>, with 1 <= worker number <= number of workers");
+      err.println(USAGE);
+      return false;
+    } else if (checkpointFilename != null && outputFilename == null) {
+      err.println("ERROR: Option --checkpoint requires --out (output file)");
+      err.println(USAGE);
+      return false;
+    } else if (!moreOutputFormats.isEmpty() && moreOutputFormats.size() != moreOutputFilenames.size()) {
+      err.println("ERROR: With several --out, use a single --format (for all of them) or a --format for each one");
+      err.println(USAGE);
+      return false;
+    } else if (!getSupportedOutputFormats().containsAll(getOutputFormats())) {
+      err.println("ERROR: Option --format has invalid value, accepted values are " + String.join(", ", getSupportedOutputFormats()));
+      err.println(USAGE);
+      return false;
+    } else if (headerLine != null && getOutputFormats().stream().anyMatch(FORMATS_WITHOUT_HEADERLINE::contains)) {
+      String format = getOutputFormats().stream().filter(FORMATS_WITHOUT_HEADERLINE::contains).findFirst().get();
+      err.println("ERROR: Option --headerline is not supported with --format=" + format + ", please use --header instead");
+      err.println(USAGE);
+      return false;
+    } else if (!moreOutputFilenames.isEmpty() && (checkpointFilename != null || parallelWrite || cacheDir != null
+        || sleepInMilisecs > 0 || replaySpeedup > 0)) {
+      err.println("ERROR: Several --out can't be used with --checkpoint, --parallel-write, --cache-dir, --sleep or --replay");
+      err.println(USAGE);
+      return false;
+    } else if (sortBy != null && (!getColumnNames().contains(sortBy) || sortMbytes <= 0 || checkpointFilename != null
+        || parallelWrite || cacheDir != null || sleepInMilisecs > 0 || replaySpeedup > 0 || !moreOutputFilenames.isEmpty())) {
+      err.println("ERROR: Option --sortby must be a column of --header (or col0, col1, ... without it), with a positive --sort-mbs, "
+          + "and can't be used with --checkpoint, --parallel-write, --cache-dir, --sleep, --replay or several --out");
+      err.println(USAGE);
+      return false;
+    } else if (widths != null && (widths.size() != fields.size() || widths.stream().anyMatch(width -> width <= 0))) {
+      err.println("ERROR: Option --widths must have a positive width for each field on --fields");
+      err.println(USAGE);
+      return false;
+    } else if (getOutputFormats().contains("sql") && (table == null || table.isEmpty())) {
+      err.println("ERROR: Option --format=sql requires --table (table name)");
+      err.println(USAGE);
+      return false;
+    } else if (getOutputFormats().contains("sql") && !SqlInsertEncoder.isValidTableName(table)) {
+      err.println("ERROR: Option --table must be a table name, as name or schema.name (letters, digits and _): " + table);
+      err.println(USAGE);
+      return false;
+    } else if (parallelWrite && (outputFilename == null || checkpointFilename != null || sleepInMilisecs > 0
+        || replaySpeedup > 0)) {
+      err.println("ERROR: Option --parallel-write requires --out (output file), and can't be used with --checkpoint, --sleep or --replay");
+      err.println(USAGE);
+      return false;
+    } else if (cacheDir != null && (seed == null || numberOfWorkers != 0 || hasRowRange || checkpointFilename != null
+        || parallelWrite || sleepInMilisecs > 0 || replaySpeedup > 0 || cacheMbytes <= 0)) {
+      err.println("ERROR: Option --cache-dir requires --seed (and a positive --cache-mbs), and can't be used with --worker, --row-range, --checkpoint, --parallel-write, --sleep or --replay");
+      err.println(USAGE);
+      return false;
+    } else if (cdc != null
+        && FakerRowGenerator.FieldSpec.parse(fields.get(0)).specType != FakerRowGenerator.FieldSpec.SpecType.CDC_OP) {
+      err.println("ERROR: Option --cdc must be <inserts>:<updates>:<deletes>[:<initial keys>], with deletes <= inserts, and inserts or initial keys > 0");
+      err.println(USAGE);
+      return false;
+    } else if (invalidDistribution != null) {
+      err.println("ERROR: Invalid distribution field on --fields: " + invalidDistribution);
+      err.println(USAGE);
+      return false;
+    } else if (threads < 0) {
+      err.println("ERROR: Option --threads must be positive");
+      err.println(USAGE);
+      return false;
+    } else if (batchSize <= 0) {
+      err.println("ERROR: Option --batch-size must be positive");
+      err.println(USAGE);
+      return false;
+    } else if (eventTimeFromNow && (numberOfWorkers != 0 || hasRowRange || checkpointFilename != null)) {
+      err.println("ERROR: eventTime(now:...) can't be used with --worker, --row-range or --checkpoint (each run would have a different start), please use an ISO instant or epoch milisecs start");
+      err.println(USAGE);
+      return false;
+    } else if (replaySpeedup < 0 || (replaySpeedup > 0 && getReplayEventTimeField() == null)) {
+      err.println("ERROR: Option --replay must be a positive speed-up and requires an eventTime(start:ratePerSec:jitter) field");
+      err.println(USAGE);
+      return false;
     }
     return true;
   }
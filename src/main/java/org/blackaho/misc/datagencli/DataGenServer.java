@@ -0,0 +1,175 @@
+package org.blackaho.misc.datagencli;
+
+import com.github.javafaker.Faker;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * Local (loopback only) HTTP server for generating data, so callers that generate data many times avoid paying
+ * JVM startup, Faker yaml loading and JIT warm-up on each run.
+ * Generation requests use same options as DataGenCLI, passed as query string (or form encoded POST body) without
+ * the leading "--", e.g.: GET /generate?rows=100&fields=name.firstName,randomLong(1:10)&separator=;
+ * Generated rows are streamed back (chunked transfer encoding). Row generators are kept in cache, keyed by fields,
+ * separator and header, so repeated requests reuse them (and a single, warm, Faker object is shared by all).
+ */
+public class DataGenServer {
+
+  static final String GENERATE_PATH = "/generate";
+  // options a request can use: the ones that only change generated rows and their format (none of them reads or
+  // writes files, or runs anything else than generating rows to the response)
+  static final List<String> SERVER_OPTIONS = Arrays.asList("rows", "mbs", "separator", "fields", "header",
+      "headerline", "seed", "worker", "row-range", "format", "widths", "csv-quoting", "table", "batch-size", "cdc",
+      "timings");
+  static final Pattern OPTION_NAME_REGEXP = Pattern.compile("[a-z][a-z-]*");
+
+  protected final HttpServer httpServer;
+  protected final ExecutorService executor;
+  // rows of all requests are generated on one thread pool, instead of one per request
+  protected final ExecutorService generationExecutor;
+  protected final RowGeneratorCache rowGeneratorCache = new RowGeneratorCache();
+  protected final Faker faker = new Faker();
+
+  public DataGenServer(int port) throws IOException {
+    httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    httpServer.createContext(GENERATE_PATH, this::handleGenerate);
+    executor = Executors.newCachedThreadPool();
+    httpServer.setExecutor(executor);
+    generationExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+        ParallelChunkGenerator.createThreadFactory());
+  }
+
+  public void start() {
+    httpServer.start();
+  }
+
+  public void stop() {
+    httpServer.stop(0);
+    executor.shutdown();
+    generationExecutor.shutdown();
+  }
+
+  public int getPort() {
+    return httpServer.getAddress().getPort();
+  }
+
+  protected void handleGenerate(HttpExchange exchange) throws IOException {
+    boolean responseStarted = false;
+    boolean aborted = false;
+    try {
+      String query = "POST".equalsIgnoreCase(exchange.getRequestMethod())
+          ? readFully(exchange.getRequestBody())
+          : exchange.getRequestURI().getRawQuery();
+      StringWriter errors = new StringWriter();
+      DataGenCLI dataGenCLI = createRequestDataGenCLI();
+      dataGenCLI.err = new PrintWriter(errors, true);
+      String[] args = parseQueryAsArgs(query, dataGenCLI.err);
+      if (args == null) {
+        sendError(exchange, errors.toString());
+        return;
+      }
+      dataGenCLI.parseOptions(args);
+      if (!dataGenCLI.checkOptions()) {
+        sendError(exchange, errors.toString());
+        return;
+      }
+      dataGenCLI.createRowGenerator(); // created (and cached) before response starts, so its errors are sent as such
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+      exchange.sendResponseHeaders(200, 0); // length 0 means chunked transfer encoding
+      responseStarted = true;
+      OutputStream responseBody = exchange.getResponseBody();
+      dataGenCLI.out = new BufferedOutputStream(responseBody, 1 << 16);
+      dataGenCLI.run();
+      responseBody.close();
+    } catch (RuntimeException ex) {
+      if (responseStarted) {
+        // status was already sent, so instead of ending the response (as if all rows were sent), rethrow to abort
+        // it: the server closes the connection, and the client gets an incomplete chunked response
+        aborted = true;
+        throw ex;
+      }
+      sendError(exchange, "ERROR: " + ex);
+    } finally {
+      if (!aborted) {
+        exchange.close();
+      }
+    }
+  }
+
+  /**
+   * Creates a DataGenCLI for a request, using (and filling) this server row generators cache.
+   * @return DataGenCLI object to handle request
+   */
+  protected DataGenCLI createRequestDataGenCLI() {
+    return new DataGenCLI() {
+      @Override
+      protected RowGenerator createRowGenerator() {
+        return rowGeneratorCache.get(getRowGeneratorSignature(),
+            () -> configureRowGenerator(RowGeneratorFactory.createFakerRowGenerator(faker)));
+      }
+    }.setExecutor(generationExecutor);
+  }
+
+  /**
+   * Converts query string (e.g., rows=10&amp;fields=name.firstName) to DataGenCLI args (--rows=10 --fields=name.firstName)
+   * @return args, or null if query has invalid or unsupported options, see SERVER_OPTIONS (error written to err)
+   */
+  protected static String[] parseQueryAsArgs(String query, PrintWriter err) throws UnsupportedEncodingException {
+    List<String> args = new ArrayList<>();
+    if (query == null) {
+      return new String[] {};
+    }
+    for (String param : query.split("&")) {
+      if (param.isEmpty()) continue;
+      int eqPos = param.indexOf('=');
+      String name = URLDecoder.decode(eqPos < 0 ? param : param.substring(0, eqPos), "UTF-8");
+      if (!OPTION_NAME_REGEXP.matcher(name).matches()) {
+        err.println("ERROR: Invalid option name " + name);
+        return null;
+      } else if (!SERVER_OPTIONS.contains(name)) {
+        err.println("ERROR: Option " + name + " is not supported by server");
+        return null;
+      }
+      args.add(eqPos < 0 ? "--" + name : "--" + name + "=" + URLDecoder.decode(param.substring(eqPos + 1), "UTF-8"));
+    }
+    return args.toArray(new String[] {});
+  }
+
+  protected static void sendError(HttpExchange exchange, String message) throws IOException {
+    byte[] messageBytes = message.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    exchange.sendResponseHeaders(400, messageBytes.length);
+    try (OutputStream responseBody = exchange.getResponseBody()) {
+      responseBody.write(messageBytes);
+    }
+  }
+
+  protected static String readFully(InputStream in) throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    byte[] bytes = new byte[4096];
+    int n;
+    while ((n = in.read(bytes)) > 0) {
+      buffer.write(bytes, 0, n);
+    }
+    return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,315 @@
+package org.blackaho.misc.datagencli;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Local cache of generated datasets (e.g., fixtures regenerated by every CI run), so generating again the same
+ * dataset (same fields, seed, format, ... and number of rows) copies the cached file to output (with
+ * FileChannel.transferTo(), zero-copy when output is a file) instead of generating it.
+ *
+ * Datasets are content-addressed: named by the hash of their definition (see key()) and their number of rows, e.g.,
+ * 3fa4...-1000000.data, with an index of byte offsets of chunk ends (.idx), so a dataset can also reuse the first rows
+ * of a larger cached dataset with the same definition (for formats where rows don't depend on the number of rows).
+ * Least recently used datasets (by modification time, updated on each hit) are evicted to keep cache size under
+ * its budget.
+ */
+public class DatasetCache {
+
+  static final String DATA_SUFFIX = ".data";
+  static final String INDEX_SUFFIX = ".idx";
+  static final String TMP_SUFFIX = ".tmp";
+  static final long STALE_TMP_MILISECS = 24L * 3600L * 1000L;
+
+  protected final Path dir;
+  protected final long budgetBytes;
+
+  /**
+   * @param dir - cache directory (created if it doesn't exist)
+   * @param budgetBytes - max size of cached datasets
+   */
+  public DatasetCache(Path dir, long budgetBytes) throws IOException {
+    this.dir = Files.createDirectories(dir);
+    this.budgetBytes = budgetBytes;
+  }
+
+  /**
+   * @return key of a dataset definition (SHA-256 of definition, in hex)
+   */
+  public static String key(String definition) {
+    try {
+      StringBuilder key = new StringBuilder();
+      for (byte b : MessageDigest.getInstance("SHA-256").digest(definition.getBytes(StandardCharsets.UTF_8))) {
+        key.append(String.format("%02x", b));
+      }
+      return key.toString();
+    } catch (NoSuchAlgorithmException ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  /**
+   * Dataset (or first rows of a dataset) found on cache
+   */
+  public static class CachedDataset {
+    final Path path;
+    final long rows;    // rows that can be used (all rows of dataset, or first rows of a larger one)
+    final long length;  // bytes of those rows
+
+    CachedDataset(Path path, long rows, long length) {
+      this.path = path;
+      this.rows = rows;
+      this.length = length;
+    }
+
+    public long getRows() {
+      return rows;
+    }
+
+    public long getLength() {
+      return length;
+    }
+  }
+
+  /**
+   * Looks up a dataset with rows rows, or, if allowPrefix, the first rows of a larger dataset with the same key
+   * (as many as its index allows, up to rows). Marks dataset as used (for LRU eviction).
+   * @return dataset found, or null if there's none
+   */
+  public CachedDataset lookup(String key, long rows, boolean allowPrefix) throws IOException {
+    Path exact = dataPath(key, rows);
+    if (Files.isRegularFile(exact)) {
+      touch(exact);
+      return new CachedDataset(exact, rows, Files.size(exact));
+    }
+    if (!allowPrefix) {
+      return null;
+    }
+    // smallest larger dataset, with an index entry closest to (and not after) rows
+    Path larger = null;
+    long largerRows = Long.MAX_VALUE;
+    for (Path path : listDatasets()) {
+      long datasetRows = parseRows(path, key);
+      if (datasetRows > rows && datasetRows < largerRows) {
+        larger = path;
+        largerRows = datasetRows;
+      }
+    }
+    if (larger == null) {
+      return null;
+    }
+    long prefixRows = 0L;
+    long prefixLength = 0L;
+    try (DataInputStream index = new DataInputStream(Files.newInputStream(indexPath(larger)))) {
+      while (index.available() > 0) {
+        long row = index.readLong();
+        long offset = index.readLong();
+        if (row > rows) {
+          break;
+        }
+        prefixRows = row;
+        prefixLength = offset;
+      }
+    } catch (IOException ex) {
+      return null;  // no index (e.g., evicted meanwhile), not reused
+    }
+    if (prefixRows == 0L) {
+      return null;
+    }
+    touch(larger);
+    return new CachedDataset(larger, prefixRows, prefixLength);
+  }
+
+  /**
+   * Copies dataset (its first getLength() bytes) to target, zero-copy if target is a file channel
+   */
+  public void transferTo(CachedDataset dataset, WritableByteChannel target) throws IOException {
+    try (FileChannel channel = FileChannel.open(dataset.path, StandardOpenOption.READ)) {
+      long position = 0L;
+      while (position < dataset.length) {
+        position += channel.transferTo(position, dataset.length - position, target);
+      }
+    }
+  }
+
+  /**
+   * Starts a new cached dataset, written (to a temporary file) along with output, see EntryWriter
+   */
+  public EntryWriter startEntry(String key, long rows) throws IOException {
+    return new EntryWriter(key, rows);
+  }
+
+  /**
+   * Writes a dataset to cache: bytes as they're written to output, and an index entry at the end of each chunk.
+   * Dataset is only visible on cache after commit() (so an interrupted generation isn't cached).
+   */
+  public class EntryWriter implements Closeable {
+    protected final String key;
+    protected final long rows;
+    protected final Path tmpData;
+    protected final Path tmpIndex;
+    protected final OutputStream data;
+    protected final DataOutputStream index;
+    protected long length = 0L;
+    protected boolean closed = false;
+
+    protected EntryWriter(String key, long rows) throws IOException {
+      this.key = key;
+      this.rows = rows;
+      String tmpName = key + "-" + rows + "." + UUID.randomUUID();
+      this.tmpData = dir.resolve(tmpName + DATA_SUFFIX + TMP_SUFFIX);
+      this.tmpIndex = dir.resolve(tmpName + INDEX_SUFFIX + TMP_SUFFIX);
+      this.data = new BufferedOutputStream(Files.newOutputStream(tmpData), 1 << 16);
+      this.index = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmpIndex)));
+    }
+
+    public void write(byte[] bytes) throws IOException {
+      data.write(bytes);
+      length += bytes.length;
+    }
+
+    /**
+     * Records that rows up to row (inclusive) end at current length
+     */
+    public void markRow(long row) throws IOException {
+      index.writeLong(row);
+      index.writeLong(length);
+    }
+
+    /**
+     * Moves dataset into cache (unless it's larger than cache budget) and evicts least recently used datasets
+     */
+    public void commit() throws IOException {
+      close();
+      if (length + Files.size(tmpIndex) > budgetBytes) {
+        delete();
+        return;
+      }
+      Files.move(tmpIndex, indexPath(dataPath(key, rows)), StandardCopyOption.REPLACE_EXISTING);
+      Files.move(tmpData, dataPath(key, rows), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      evict();
+    }
+
+    /**
+     * Discards dataset (no-op if already committed)
+     */
+    public void discard() throws IOException {
+      close();
+      delete();
+    }
+
+    protected void delete() throws IOException {
+      Files.deleteIfExists(tmpData);
+      Files.deleteIfExists(tmpIndex);
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        try {
+          data.close();
+        } finally {
+          index.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * Deletes least recently used datasets until cache is within budget, and temporary files left by interrupted runs
+   */
+  public synchronized void evict() throws IOException {
+    List<Path> datasets = listDatasets();
+    long totalBytes = 0L;
+    for (Path path : datasets) {
+      totalBytes += sizeIfExists(path) + sizeIfExists(indexPath(path));
+    }
+    datasets.sort(Comparator.comparing(DatasetCache::lastModified));
+    for (Path path : datasets) {
+      if (totalBytes <= budgetBytes) {
+        break;
+      }
+      totalBytes -= sizeIfExists(path) + sizeIfExists(indexPath(path));
+      Files.deleteIfExists(path);
+      Files.deleteIfExists(indexPath(path));
+    }
+    try (DirectoryStream<Path> tmpFiles = Files.newDirectoryStream(dir, "*" + TMP_SUFFIX)) {
+      for (Path path : tmpFiles) {
+        if (System.currentTimeMillis() - lastModified(path).toMillis() > STALE_TMP_MILISECS) {
+          Files.deleteIfExists(path);
+        }
+      }
+    }
+  }
+
+  protected List<Path> listDatasets() throws IOException {
+    List<Path> datasets = new ArrayList<>();
+    try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*" + DATA_SUFFIX)) {
+      for (Path path : files) {
+        datasets.add(path);
+      }
+    }
+    return datasets;
+  }
+
+  protected Path dataPath(String key, long rows) {
+    return dir.resolve(key + "-" + rows + DATA_SUFFIX);
+  }
+
+  protected static Path indexPath(Path dataPath) {
+    String name = dataPath.getFileName().toString();
+    return dataPath.resolveSibling(name.substring(0, name.length() - DATA_SUFFIX.length()) + INDEX_SUFFIX);
+  }
+
+  /**
+   * @return number of rows of dataset, or -1 if it's not a dataset of key
+   */
+  protected static long parseRows(Path dataPath, String key) {
+    String name = dataPath.getFileName().toString();
+    if (!name.startsWith(key + "-") || !name.endsWith(DATA_SUFFIX)) {
+      return -1L;
+    }
+    try {
+      return Long.parseLong(name.substring(key.length() + 1, name.length() - DATA_SUFFIX.length()));
+    } catch (NumberFormatException ex) {
+      return -1L;
+    }
+  }
+
+  protected static void touch(Path path) throws IOException {
+    Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+  }
+
+  protected static FileTime lastModified(Path path) {
+    try {
+      return Files.getLastModifiedTime(path);
+    } catch (IOException ex) {
+      return FileTime.fromMillis(0L);
+    }
+  }
+
+  protected static long sizeIfExists(Path path) throws IOException {
+    return Files.exists(path) ? Files.size(path) : 0L;
+  }
+
+}
@@ -0,0 +1,209 @@
+package org.blackaho.misc.datagencli;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Statistical distributions, used for fields:
+ *  - zipf(n:s) - long from 1 to n, with probability of k proportional to 1/k^s (e.g., hot keys)
+ *  - normal(mean:stddev) - double, normal (gaussian) distribution
+ *  - lognormal(mu:sigma) - double, exp() of a normal(mu:sigma) value (e.g., amounts)
+ *  - poisson(lambda) - long, number of events with mean lambda (e.g., counts)
+ *  - weighted(value1=weight1,value2=weight2,...) - one of the values, with probability proportional to its weight
+ * Discrete distributions (zipf, poisson and weighted) use an alias table (Vose's method), built once per JVM for each
+ * field definition, so sampling is constant time: one random int and one random double per value.
+ */
+public abstract class Distribution {
+
+  protected static final Pattern ZIPF_REGEXP = Pattern.compile("zipf\\((\\d+):(\\d+\\.?\\d*)\\)");
+  protected static final Pattern NORMAL_REGEXP = Pattern.compile("normal\\((-?\\d+\\.?\\d*):(\\d+\\.?\\d*)\\)");
+  protected static final Pattern LOGNORMAL_REGEXP = Pattern.compile("lognormal\\((-?\\d+\\.?\\d*):(\\d+\\.?\\d*)\\)");
+  protected static final Pattern POISSON_REGEXP = Pattern.compile("poisson\\((\\d+\\.?\\d*)\\)");
+  protected static final Pattern WEIGHTED_REGEXP = Pattern.compile("weighted\\((.+)\\)");
+  protected static final int MAX_TABLE_SIZE = 1 << 24;
+
+  private static final ConcurrentMap<String, Distribution> distributionCache = new ConcurrentHashMap<>();
+
+  /**
+   * Samples a value from this distribution
+   * @param random - random generator to use
+   * @return sampled value (Long, Double or String, depending on distribution)
+   */
+  public abstract Object sample(Random random);
+
+  /**
+   * @return true if field is one of the distribution fields (e.g., zipf(100:1.1))
+   */
+  public static boolean isDistribution(String field) {
+    return ZIPF_REGEXP.matcher(field).matches() || NORMAL_REGEXP.matcher(field).matches()
+        || LOGNORMAL_REGEXP.matcher(field).matches() || POISSON_REGEXP.matcher(field).matches()
+        || WEIGHTED_REGEXP.matcher(field).matches();
+  }
+
+  /**
+   * Gets (and caches) distribution for a field, so tables are only built once per JVM
+   * @param field - field definition, e.g., zipf(100:1.1)
+   * @return distribution
+   * @throws IllegalArgumentException if field is not a valid distribution
+   */
+  public static Distribution getDistribution(String field) {
+    Distribution distribution = distributionCache.get(field);
+    if (distribution == null) {
+      distribution = createDistribution(field);
+      distributionCache.putIfAbsent(field, distribution);
+    }
+    return distribution;
+  }
+
+  protected static Distribution createDistribution(String field) {
+    Matcher m;
+    if ((m = ZIPF_REGEXP.matcher(field)).matches()) {
+      int n = Integer.parseInt(m.group(1));
+      double s = Double.parseDouble(m.group(2));
+      checkTableSize(field, n);
+      double[] weights = new double[n];
+      for (int k = 1; k <= n; k++) {
+        weights[k-1] = Math.pow(k, -s);
+      }
+      return new AliasTable(weights, 1L, null);
+    } else if ((m = LOGNORMAL_REGEXP.matcher(field)).matches()) {
+      return new Gaussian(Double.parseDouble(m.group(1)), Double.parseDouble(m.group(2)), true);
+    } else if ((m = NORMAL_REGEXP.matcher(field)).matches()) {
+      return new Gaussian(Double.parseDouble(m.group(1)), Double.parseDouble(m.group(2)), false);
+    } else if ((m = POISSON_REGEXP.matcher(field)).matches()) {
+      double lambda = Double.parseDouble(m.group(1));
+      // values above lambda + 12 stddevs (probability < 1e-30) are left out of the table
+      long maxValue = (long) Math.ceil(lambda + 12 * Math.sqrt(lambda) + 12);
+      checkTableSize(field, maxValue + 1);
+      double[] weights = new double[(int) maxValue + 1];
+      double logWeight = -lambda; // log of e^-lambda * lambda^k / k!, computed incrementally
+      for (int k = 0; k <= maxValue; k++) {
+        logWeight += k == 0 ? 0.0 : Math.log(lambda) - Math.log(k);
+        weights[k] = Math.exp(logWeight);
+      }
+      return new AliasTable(weights, 0L, null);
+    } else if ((m = WEIGHTED_REGEXP.matcher(field)).matches()) {
+      List<Object> values = new ArrayList<>();
+      List<Double> weights = new ArrayList<>();
+      for (String valueWeight : m.group(1).split(",")) {
+        int eqPos = valueWeight.lastIndexOf('=');
+        if (eqPos < 0) {
+          throw new IllegalArgumentException("Invalid value=weight " + valueWeight + " on " + field);
+        }
+        values.add(valueWeight.substring(0, eqPos).trim());
+        weights.add(Double.parseDouble(valueWeight.substring(eqPos + 1).trim()));
+      }
+      return new AliasTable(weights.stream().mapToDouble(Double::doubleValue).toArray(), 0L, values.toArray());
+    }
+    throw new IllegalArgumentException("Invalid distribution " + field);
+  }
+
+  protected static void checkTableSize(String field, long size) {
+    if (size > MAX_TABLE_SIZE) {
+      throw new IllegalArgumentException("Distribution " + field + " would need a table with more than "
+          + MAX_TABLE_SIZE + " values");
+    }
+  }
+
+  /**
+   * Discrete distribution sampled with an alias table (Vose's method): pick a column i uniformly, then return i with
+   * probability[i], or alias[i] otherwise.
+   */
+  static class AliasTable extends Distribution {
+    final double[] probability;
+    final int[] alias;
+    final long firstValue;
+    final Object[] values;
+
+    /**
+     * @param weights - (not normalized) weight of each value
+     * @param firstValue - value of first weight, when values are longs (index + firstValue)
+     * @param values - values for each weight, or null if values are longs
+     */
+    AliasTable(double[] weights, long firstValue, Object[] values) {
+      int n = weights.length;
+      double total = 0.0;
+      for (double weight : weights) {
+        if (weight < 0 || Double.isNaN(weight)) {
+          throw new IllegalArgumentException("Invalid weight " + weight);
+        }
+        total += weight;
+      }
+      if (n == 0 || total <= 0) {
+        throw new IllegalArgumentException("Weights must have a positive sum");
+      }
+      this.probability = new double[n];
+      this.alias = new int[n];
+      this.firstValue = firstValue;
+      this.values = values;
+
+      // scaled probabilities (average 1.0), split in small (< 1) and large (>= 1) worklists
+      double[] scaled = new double[n];
+      int[] small = new int[n];
+      int[] large = new int[n];
+      int smallCount = 0;
+      int largeCount = 0;
+      for (int i = 0; i < n; i++) {
+        scaled[i] = weights[i] * n / total;
+        if (scaled[i] < 1.0) {
+          small[smallCount++] = i;
+        } else {
+          large[largeCount++] = i;
+        }
+      }
+      while (smallCount > 0 && largeCount > 0) {
+        int less = small[--smallCount];
+        int more = large[--largeCount];
+        probability[less] = scaled[less];
+        alias[less] = more;
+        scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+        if (scaled[more] < 1.0) {
+          small[smallCount++] = more;
+        } else {
+          large[largeCount++] = more;
+        }
+      }
+      // remaining ones (only rounding errors away from 1.0)
+      while (largeCount > 0) {
+        probability[large[--largeCount]] = 1.0;
+      }
+      while (smallCount > 0) {
+        probability[small[--smallCount]] = 1.0;
+      }
+    }
+
+    @Override
+    public Object sample(Random random) {
+      int column = random.nextInt(probability.length);
+      int index = random.nextDouble() < probability[column] ? column : alias[column];
+      return values != null ? values[index] : Long.valueOf(firstValue + index);
+    }
+  }
+
+  /**
+   * Normal distribution (or log-normal, i.e., exp() of a normal value)
+   */
+  static class Gaussian extends Distribution {
+    final double mean;
+    final double stddev;
+    final boolean logNormal;
+
+    Gaussian(double mean, double stddev, boolean logNormal) {
+      this.mean = mean;
+      this.stddev = stddev;
+      this.logNormal = logNormal;
+    }
+
+    @Override
+    public Object sample(Random random) {
+      double value = mean + stddev * random.nextGaussian();
+      return logNormal ? Math.exp(value) : value;
+    }
+  }
+
+}
@@ -0,0 +1,400 @@
+package org.blackaho.misc.datagencli;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts rows by a column with bounded memory (external merge sort), for --sortby: rows are added as generated (in a
+ * compact binary row format, see writeRow()) and kept in memory, as their binary record and sort value, up to a
+ * memory budget. Then they're sorted and spilled to a temporary file (a sorted run), as binary records. At the end,
+ * runs (and rows still in memory) are k-way merged, with a priority queue holding the current row of each run, so
+ * only a read buffer per run is kept in memory, whatever the number of rows. Fan-in of merges is bounded (see
+ * MAX_MERGE_RUNS): with more runs than that, groups of them are first merged to intermediate runs, so the number of
+ * open files (and read buffers) stays bounded, whatever the number of runs.
+ *
+ * Rows with the same sort value keep row number order, so sorted output is deterministic.
+ */
+public class ExternalRowSorter implements Closeable {
+
+  static final int ROW_OVERHEAD_BYTES = 96;  // heap used by a row in memory, besides its record (objects, references)
+  static final int RUN_BUFFER_BYTES = 1 << 16;
+  static final int MAX_MERGE_RUNS = 64;  // max runs merged at once (rows in memory count as a run)
+
+  // value types of binary row format
+  static final byte NULL_VALUE = 0;
+  static final byte LONG_VALUE = 1;
+  static final byte INTEGER_VALUE = 2;
+  static final byte DOUBLE_VALUE = 3;
+  static final byte STRING_VALUE = 4;
+  static final byte INSTANT_VALUE = 5;
+  static final byte DATE_VALUE = 6;
+  static final byte BOOLEAN_VALUE = 7;
+
+  /**
+   * Receives sorted rows, see merge()
+   */
+  public interface RowConsumer {
+    void accept(long rowNumber, List values) throws IOException;
+  }
+
+  /**
+   * Receives merged rows, see mergeRuns()
+   */
+  protected interface SortRowConsumer {
+    void accept(SortRow row) throws IOException;
+  }
+
+  /**
+   * Row kept in memory (or current row of a run, when merging): its sort value and its binary record
+   */
+  static class SortRow {
+    final long rowNumber;
+    final Object sortValue;
+    final byte[] record;
+
+    SortRow(long rowNumber, Object sortValue, byte[] record) {
+      this.rowNumber = rowNumber;
+      this.sortValue = sortValue;
+      this.record = record;
+    }
+  }
+
+  protected final int sortColumn;
+  protected final long memoryBudgetBytes;
+  protected final File tmpDir;
+  protected final int maxMergeRuns;
+  protected final Comparator<SortRow> comparator;
+  protected List<SortRow> rows = new ArrayList<>();
+  protected long rowsBytes = 0L;
+  protected final List<File> runs = new ArrayList<>();
+
+  /**
+   * @param sortColumn - index of column to sort by
+   * @param memoryBudgetBytes - max (estimated) memory used by rows kept in memory before spilling them to a run
+   * @param tmpDir - directory for temporary files (runs), or null for default temporary directory
+   */
+  public ExternalRowSorter(int sortColumn, long memoryBudgetBytes, File tmpDir) {
+    this(sortColumn, memoryBudgetBytes, tmpDir, MAX_MERGE_RUNS);
+  }
+
+  /**
+   * @param sortColumn - index of column to sort by
+   * @param memoryBudgetBytes - max (estimated) memory used by rows kept in memory before spilling them to a run
+   * @param tmpDir - directory for temporary files (runs), or null for default temporary directory
+   * @param maxMergeRuns - max runs merged at once (at least 2)
+   */
+  public ExternalRowSorter(int sortColumn, long memoryBudgetBytes, File tmpDir, int maxMergeRuns) {
+    if (maxMergeRuns < 2) {
+      throw new IllegalArgumentException("Invalid max runs per merge: " + maxMergeRuns);
+    }
+    this.sortColumn = sortColumn;
+    this.memoryBudgetBytes = memoryBudgetBytes;
+    this.tmpDir = tmpDir;
+    this.maxMergeRuns = maxMergeRuns;
+    this.comparator = (a, b) -> {
+      int cmp = compareValues(a.sortValue, b.sortValue);
+      return cmp != 0 ? cmp : Long.compare(a.rowNumber, b.rowNumber);
+    };
+  }
+
+  /**
+   * Writes a row as a binary record: record length (int), row number (long) and each value as a type byte followed
+   * by its binary value (e.g., 8 bytes for a long, length and UTF-8 bytes for a string). Values of other types are
+   * written as strings.
+   */
+  public static void writeRow(long rowNumber, List values, OutputBuffer buffer) {
+    int start = buffer.size();
+    writeInt(buffer, 0);  // record length, set at the end
+    writeLong(buffer, rowNumber);
+    for (Object value : values) {
+      if (value == null) {
+        buffer.write(NULL_VALUE);
+      } else if (value instanceof Long) {
+        writeLong(buffer.write(LONG_VALUE), (Long) value);
+      } else if (value instanceof Integer) {
+        writeInt(buffer.write(INTEGER_VALUE), (Integer) value);
+      } else if (value instanceof Double) {
+        writeLong(buffer.write(DOUBLE_VALUE), Double.doubleToLongBits((Double) value));
+      } else if (value instanceof Instant) {
+        writeLong(buffer.write(INSTANT_VALUE), ((Instant) value).getEpochSecond());
+        writeInt(buffer, ((Instant) value).getNano());
+      } else if (value instanceof LocalDate) {
+        writeLong(buffer.write(DATE_VALUE), ((LocalDate) value).toEpochDay());
+      } else if (value instanceof Boolean) {
+        buffer.write(BOOLEAN_VALUE).write((byte) ((Boolean) value ? 1 : 0));
+      } else {
+        int lengthPos = buffer.size() + 1;
+        writeInt(buffer.write(STRING_VALUE), 0);  // string length, set after writing it
+        buffer.writeUtf8(value.toString());
+        setInt(buffer, lengthPos, buffer.size() - lengthPos - 4);
+      }
+    }
+    setInt(buffer, start, buffer.size() - start - 4);
+  }
+
+  /**
+   * @return values of a binary record (without its length), see writeRow()
+   */
+  public static List<Object> readValues(byte[] record) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(record, 8, record.length - 8));
+    List<Object> values = new ArrayList<>();
+    while (in.available() > 0) {
+      values.add(readValue(in));
+    }
+    return values;
+  }
+
+  protected static Object readValue(DataInputStream in) throws IOException {
+    byte type = in.readByte();
+    switch (type) {
+      case NULL_VALUE:
+        return null;
+      case LONG_VALUE:
+        return in.readLong();
+      case INTEGER_VALUE:
+        return in.readInt();
+      case DOUBLE_VALUE:
+        return Double.longBitsToDouble(in.readLong());
+      case INSTANT_VALUE:
+        return Instant.ofEpochSecond(in.readLong(), in.readInt());
+      case DATE_VALUE:
+        return LocalDate.ofEpochDay(in.readLong());
+      case BOOLEAN_VALUE:
+        return in.readByte() != 0;
+      case STRING_VALUE: {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+      }
+      default:
+        throw new IOException("Invalid value type " + type + " on sorted run");
+    }
+  }
+
+  /**
+   * Adds rows (binary records written with writeRow(), e.g., a chunk of generated rows), spilling rows in memory to a
+   * sorted run when they go over memory budget
+   */
+  public void addRows(byte[] records) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(records));
+    while (in.available() > 0) {
+      byte[] record = new byte[in.readInt()];
+      in.readFully(record);
+      rows.add(createSortRow(record));
+      rowsBytes += record.length + ROW_OVERHEAD_BYTES;
+      if (rowsBytes >= memoryBudgetBytes) {
+        spill();
+      }
+    }
+  }
+
+  protected SortRow createSortRow(byte[] record) throws IOException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+    long rowNumber = in.readLong();
+    for (int column = 0; column < sortColumn; column++) {
+      readValue(in);
+    }
+    return new SortRow(rowNumber, readValue(in), record);
+  }
+
+  /**
+   * Sorts rows in memory and writes them to a new run
+   */
+  protected void spill() throws IOException {
+    rows.sort(comparator);
+    try (DataOutputStream out = openRun(createRun())) {
+      for (SortRow row : rows) {
+        out.writeInt(row.record.length);
+        out.write(row.record);
+      }
+    }
+    rows = new ArrayList<>();
+    rowsBytes = 0L;
+  }
+
+  /**
+   * @return new temporary file for a run, added to runs (so it's deleted on close())
+   */
+  protected File createRun() throws IOException {
+    File run = File.createTempFile("datagencli-sort", ".run", tmpDir);
+    runs.add(run);
+    return run;
+  }
+
+  protected DataOutputStream openRun(File run) throws IOException {
+    return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), RUN_BUFFER_BYTES));
+  }
+
+  /**
+   * @return number of runs spilled to temporary files so far
+   */
+  public int getRunCount() {
+    return runs.size();
+  }
+
+  /**
+   * Merges runs and rows in memory, passing rows to consumer in sort order
+   */
+  public void merge(RowConsumer consumer) throws IOException {
+    rows.sort(comparator);
+    // with too many runs (besides rows in memory) for a single merge, first runs are merged to a new run, at the end
+    while (runs.size() >= maxMergeRuns) {
+      List<File> mergedRuns = new ArrayList<>(runs.subList(0, maxMergeRuns));
+      try (DataOutputStream out = openRun(createRun())) {
+        mergeRuns(mergedRuns, null, row -> {
+          out.writeInt(row.record.length);
+          out.write(row.record);
+        });
+      }
+      runs.removeAll(mergedRuns);
+      deleteRuns(mergedRuns);
+    }
+    mergeRuns(runs, rows.iterator(), row -> consumer.accept(row.rowNumber, readValues(row.record)));
+  }
+
+  /**
+   * K-way merges runs (and rows in memory, if any), passing rows to consumer in sort order
+   */
+  protected void mergeRuns(List<File> mergedRuns, Iterator<SortRow> memoryRows, SortRowConsumer consumer)
+      throws IOException {
+    List<RunReader> readers = new ArrayList<>();
+    PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, mergedRuns.size() + 1),
+        (a, b) -> comparator.compare(a.current, b.current));
+    try {
+      if (memoryRows != null) {
+        readers.add(new RunReader(null, memoryRows));
+      }
+      for (File run : mergedRuns) {
+        readers.add(new RunReader(
+            new DataInputStream(new BufferedInputStream(new FileInputStream(run), RUN_BUFFER_BYTES)), null));
+      }
+      for (RunReader reader : readers) {
+        if (reader.next()) {
+          queue.add(reader);
+        }
+      }
+      while (!queue.isEmpty()) {
+        RunReader reader = queue.poll();
+        consumer.accept(reader.current);
+        if (reader.next()) {
+          queue.add(reader);
+        }
+      }
+    } finally {
+      for (RunReader reader : readers) {
+        reader.close();
+      }
+    }
+  }
+
+  /**
+   * Reads rows of a run (from its file) or of rows in memory, in order
+   */
+  protected class RunReader implements Closeable {
+    final DataInputStream in;
+    final Iterator<SortRow> memoryRows;
+    SortRow current;
+
+    RunReader(DataInputStream in, Iterator<SortRow> memoryRows) {
+      this.in = in;
+      this.memoryRows = memoryRows;
+    }
+
+    /**
+     * Moves to next row of run
+     * @return false if there are no more rows
+     */
+    boolean next() throws IOException {
+      if (memoryRows != null) {
+        current = memoryRows.hasNext() ? memoryRows.next() : null;
+        return current != null;
+      }
+      int length;
+      try {
+        length = in.readInt();
+      } catch (EOFException ex) {
+        current = null;
+        return false;
+      }
+      byte[] record = new byte[length];
+      in.readFully(record);
+      current = createSortRow(record);
+      return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (in != null) {
+        in.close();
+      }
+    }
+  }
+
+  /**
+   * Compares sort values: values of the same type by their natural order (e.g., numbers, strings, dates), nulls first,
+   * and values of different types by their string
+   */
+  @SuppressWarnings("unchecked")
+  protected static int compareValues(Object a, Object b) {
+    if (a == null || b == null) {
+      return a == null ? (b == null ? 0 : -1) : 1;
+    } else if (a.getClass() == b.getClass() && a instanceof Comparable) {
+      return ((Comparable<Object>) a).compareTo(b);
+    } else if (a instanceof Number && b instanceof Number) {
+      return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+    }
+    return a.toString().compareTo(b.toString());
+  }
+
+  protected static void writeLong(OutputBuffer buffer, long value) {
+    writeInt(buffer, (int) (value >>> 32));
+    writeInt(buffer, (int) value);
+  }
+
+  protected static void writeInt(OutputBuffer buffer, int value) {
+    buffer.write((byte) (value >>> 24)).write((byte) (value >>> 16)).write((byte) (value >>> 8)).write((byte) value);
+  }
+
+  protected static void setInt(OutputBuffer buffer, int pos, int value) {
+    buffer.bytes[pos] = (byte) (value >>> 24);
+    buffer.bytes[pos + 1] = (byte) (value >>> 16);
+    buffer.bytes[pos + 2] = (byte) (value >>> 8);
+    buffer.bytes[pos + 3] = (byte) value;
+  }
+
+  /**
+   * Deletes runs (temporary files)
+   */
+  @Override
+  public void close() {
+    deleteRuns(runs);
+    runs.clear();
+    rows = new ArrayList<>();
+  }
+
+  protected static void deleteRuns(List<File> runsToDelete) {
+    for (File run : runsToDelete) {
+      if (!run.delete()) {
+        run.deleteOnExit();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,206 @@
+package org.blackaho.misc.datagencli;
+
+import com.github.javafaker.Faker;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index of fields available on Faker API (e.g., name.firstName), generated at build time by running main() on
+ * process-classes phase, so we avoid walking Faker class graph with reflection on each run.
+ * Each index line has format: field TAB class-of-each-object-in-call-chain (comma separated) TAB return type,
+ * e.g., "name.firstName	com.github.javafaker.Faker,com.github.javafaker.Name	java.lang.String"
+ * Also keeps a (per JVM) cache of method call chains for each field, resolved from its index entry.
+ */
+public class FakerFieldIndex {
+
+  static final String INDEX_RESOURCE = "/datagencli-faker-fields.idx";
+  static final int MAX_RECURSION = 6;
+
+  private static volatile List<String[]> indexEntries = null;
+  private static volatile Map<String, String[]> indexEntriesByField = null;
+  private static final ConcurrentMap<String, Method[]> methodChainCache = new ConcurrentHashMap<>();
+  private static final ConcurrentMap<String, Map<String, Method>> classMethodsCache = new ConcurrentHashMap<>();
+
+  private FakerFieldIndex() {}
+
+  /**
+   * Generates field index file. Called at build time, see pom.xml
+   * @param args - args[0] is the output directory (e.g., target/classes)
+   */
+  public static void main(String[] args) throws IOException {
+    File outFile = new File(args[0], INDEX_RESOURCE.substring(1));
+    try (PrintWriter writer = new PrintWriter(outFile, StandardCharsets.UTF_8.name())) {
+      for (String[] entry : buildIndexEntries()) {
+        writer.print(String.join("\t", entry));
+        writer.print('\n');
+      }
+    }
+  }
+
+  /**
+   * Get all fields available on Faker API, using the build time index if available (falls back to reflection)
+   * @return list of fields, e.g., name.firstName
+   */
+  public static List<String> getFields() {
+    List<String> fields = new ArrayList<>();
+    for (String[] entry : getIndexEntries()) {
+      fields.add(entry[0]);
+    }
+    return fields;
+  }
+
+  /**
+   * Resolves (and caches) method call chain for a field, e.g., name.firstName -> [ Faker.name(), Name.firstName() ]
+   * @param field - field in format obj1.obj2.method
+   * @return array of methods to call (in order) starting with a Faker object, or null if field is unknown.
+   */
+  public static Method[] getMethodChain(String field) {
+    Method[] chain = methodChainCache.get(field);
+    if (chain == null) {
+      chain = resolveMethodChain(field);
+      if (chain != null) {
+        methodChainCache.putIfAbsent(field, chain);
+      }
+    }
+    return chain;
+  }
+
+  /**
+   * Resolves method call chain of a field from its index entry (class of each object in call chain), looking up
+   * methods on a per class table of methods (see getClassMethods()), so there's no reflection lookup per field
+   * @return method chain, or null if field isn't on the index
+   */
+  protected static Method[] resolveMethodChain(String field) {
+    String[] entry = getIndexEntriesByField().get(field);
+    if (entry == null) {
+      return null;
+    }
+    String[] methodCalls = field.split("\\.");
+    String[] chainClasses = entry[1].split(",");
+    if (chainClasses.length != methodCalls.length) {
+      return null;
+    }
+    Method[] chain = new Method[methodCalls.length];
+    for (int i = 0; i < methodCalls.length; i++) {
+      Map<String, Method> methods = getClassMethods(chainClasses[i]);
+      chain[i] = methods != null ? methods.get(methodCalls[i]) : null;
+      if (chain[i] == null) {
+        return null;
+      }
+    }
+    return chain;
+  }
+
+  protected static Map<String, String[]> getIndexEntriesByField() {
+    if (indexEntriesByField == null) {
+      Map<String, String[]> entriesByField = new HashMap<>();
+      for (String[] entry : getIndexEntries()) {
+        entriesByField.put(entry[0], entry);
+      }
+      indexEntriesByField = entriesByField;
+    }
+    return indexEntriesByField;
+  }
+
+  /**
+   * @return methods without parameters of a class on the index, by name (looked up once per JVM), or null if class
+   *   can't be loaded
+   */
+  protected static Map<String, Method> getClassMethods(String className) {
+    Map<String, Method> methods = classMethodsCache.get(className);
+    if (methods == null) {
+      try {
+        methods = new HashMap<>();
+        for (Method method : Class.forName(className).getDeclaredMethods()) {
+          if (method.getParameterCount() == 0 && !method.isSynthetic()) {
+            method.setAccessible(true);
+            methods.put(method.getName(), method);
+          }
+        }
+      } catch (ClassNotFoundException | SecurityException ex) {
+        return null;
+      }
+      classMethodsCache.putIfAbsent(className, methods);
+    }
+    return methods;
+  }
+
+  protected static List<String[]> getIndexEntries() {
+    if (indexEntries == null) {
+      List<String[]> entries = loadIndexEntries();
+      indexEntries = entries != null ? entries : buildIndexEntries(); // no index resource (e.g. running from IDE)
+    }
+    return indexEntries;
+  }
+
+  protected static List<String[]> loadIndexEntries() {
+    InputStream in = FakerFieldIndex.class.getResourceAsStream(INDEX_RESOURCE);
+    if (in == null) {
+      return null;
+    }
+    List<String[]> entries = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.isEmpty()) {
+          entries.add(line.split("\t"));
+        }
+      }
+    } catch (IOException ex) {
+      return null;
+    }
+    return Collections.unmodifiableList(entries);
+  }
+
+  protected static List<String[]> buildIndexEntries() {
+    List<String[]> entries = new ArrayList<>();
+    buildIndexEntriesRecursive(Faker.class, null, new ArrayList<>(), entries, MAX_RECURSION);
+    return Collections.unmodifiableList(entries);
+  }
+
+  protected static void buildIndexEntriesRecursive(Class fakerObjectClass, String prefix, List<String> callChain,
+                                                   List<String[]> results, int maxRecursion) {
+    final List<String> ignoreMethods = Arrays.asList("instance", "toString");
+
+    if (maxRecursion <= 0) return; // reached max recursion level. just in case...
+
+    Method[] methods = fakerObjectClass.getDeclaredMethods();
+    Arrays.sort(methods, (m1, m2) -> m1.getName().compareTo(m2.getName())); // keep index stable between builds
+
+    List<String> currentCallChain = new ArrayList<>(callChain);
+    currentCallChain.add(fakerObjectClass.getName());
+    for (Method m : methods) {
+      if (m.getParameterCount() == 0 && !ignoreMethods.contains(m.getName()) && !m.isSynthetic()) {
+        String currentFieldName = prefix == null ? m.getName() : prefix + "." + m.getName();
+        try {
+          Class callResultClass = m.getReturnType();
+          // check if we will call recursively
+          if (callResultClass.getPackage().getName().startsWith("com.github.javafaker")) {
+            // java faker domain object, lets dig into this
+            buildIndexEntriesRecursive(callResultClass, currentFieldName, currentCallChain, results, maxRecursion - 1);
+          } else {
+            results.add(new String[] {currentFieldName, String.join(",", currentCallChain), callResultClass.getName()});
+          }
+        } catch (Exception ex) {
+          // do nothing
+        }
+      }
+    }
+  }
+
+}
@@ -2,10 +2,20 @@ package org.blackaho.misc.datagencli;
 
 import com.github.javafaker.Faker;
 
+import java.io.Serializable;
 import java.lang.reflect.Method;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.TemporalAccessor;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -14,38 +24,87 @@ import java.util.stream.Collectors;
  * Implements a RowGenerator based on JFaker. Following fields are supported:
  *  - rowNumber - maps directly to rowNumber passed to this class when generating row
  *  - sequence(start:increment) - sequence based on rowNumber
- *  - randomString(bothifyFormatting) - maps to Faker.bothify(fmt), allows space and following special chars: .+%:-@&=$*;/\[]
+ *  - randomString(bothifyFormatting) - as Faker.bothify(fmt) (# is a digit and ? a letter), allows space and following
+ *    special chars: .+%:-@&=$*;/\[]
+ *  - numerify(fmt) and letterify(fmt) - as Faker.numerify(fmt) and Faker.letterify(fmt)
+ *  - regexify(regex) - string matching a simple regex (see StringTemplate), or Faker.regexify(regex) for other regexes
  *  - randomLong(min:max) - maps to Faker.number().numberBetween(min,max)
  *  - randomDouble(maxDecimals:min:max) - maps to Faker.number.randomDouble(maxDecimals,min,max)
+ *  - zipf(n:s), normal(mean:stddev), lognormal(mu:sigma), poisson(lambda) and weighted(a=0.7,b=0.2,c=0.1) -
+ *    values from statistical distributions, see Distribution
+ *  - eventTime(start:ratePerSec:jitter) - timestamp (Instant) of event rowNumber, for ratePerSec events per second
+ *    from start (ISO instant, epoch milisecs or "now"), each delayed by a (row and seed based) random up to jitter
+ *    milisecs. "now" is resolved once, when fields are set (see resolveEventTimeNow())
+ *  Formats (and simple regexes) are compiled once to a StringTemplate, instead of being scanned for each value.
+ *  - dateBetween(start:end:format) - random date (LocalDate) from start to end (inclusive, yyyy-MM-dd); format is
+ *    optional, a DateTimeFormatter pattern for CSV lines (default is yyyy-MM-dd)
+ *  - timestampBetween(start:end:format) - random timestamp (Instant, milisecs) from start to end (inclusive, ISO
+ *    instants, dates or epoch milisecs); format is optional, a DateTimeFormatter pattern for CSV lines (UTC), default
+ *    is ISO-8601 with milisecs, e.g., 2024-01-31T10:15:30.250Z
+ *  - cdcOp(inserts:updates:deletes) and cdcKey(inserts:updates:deletes:initialKeys) - change data capture events:
+ *    operation (c, u or d) and key of event rowNumber, for events in that ratio over a key space with initialKeys
+ *    keys (1 to initialKeys) before the first event. Inserts add keys, deletes remove the oldest live key and updates
+ *    change a (random) live key; both are computed from rowNumber (no state is kept), see FieldSpec.getCdcKey()
+ *  - address{city,state,zipCode}, person{firstName,lastName,email}, ... - composite fields, a column per part, all
+ *    filled from one record generated once per row (parts are consistent), see CompositeField
  *  - name.firstName - maps to Faker.name().firstName()
  *  - generic mapping - maps to any Faker call, e.g., "any.name" will (try to) map to Faker.any().name()
  *
+ * If a seed is set (see setSeed()), each thread uses its own Faker object, whose Random is re-seeded with a hash of
+ * seed and row number before generating each row, so rows only depend on seed and row number.
  */
 public class FakerRowGenerator implements RowGenerator {
 
   // special/custom functions
-  protected static final Pattern RANDOMSTRING_REGEXP = Pattern.compile("randomString\\(([\\w\\#\\?\\s\\.\\+%:\\-@&/\\\\\\[\\]=\\$;]*)\\)");
+  protected static final String FORMAT_CHARS = "[\\w\\#\\?\\s\\.\\+%:\\-@&/\\\\\\[\\]=\\$;]*";
+  protected static final Pattern RANDOMSTRING_REGEXP = Pattern.compile("randomString\\((" + FORMAT_CHARS + ")\\)");
+  protected static final Pattern NUMERIFY_REGEXP = Pattern.compile("numerify\\((" + FORMAT_CHARS + ")\\)");
+  protected static final Pattern LETTERIFY_REGEXP = Pattern.compile("letterify\\((" + FORMAT_CHARS + ")\\)");
+  protected static final Pattern REGEXIFY_REGEXP = Pattern.compile("regexify\\((.+)\\)");
   protected static final Pattern RANDOMLONGFUNC_REGEXP = Pattern.compile("randomLong\\((\\d+):(\\d+)\\)");
   protected static final Pattern RANDOMDOUBLEFUNC_REGEXP = Pattern.compile("randomDouble\\((\\d+):(\\d+):(\\d+)\\)"); //"randomDouble\\((\\d+):(\\d+\\.?\\d*):(\\d+\\.?\\d*)\\)"
   protected static final Pattern SEQUENCEFUNC_REGEXP = Pattern.compile("sequence\\((\\d+):(\\d+)\\)");
+  protected static final Pattern EVENTTIMEFUNC_REGEXP = Pattern.compile("eventTime\\((.+):(\\d+\\.?\\d*):(\\d+\\.?\\d*)\\)");
+  protected static final String DATE_ARG = "\\d{4}-\\d{2}-\\d{2}";
+  protected static final String INSTANT_ARG = "(?:" + DATE_ARG + "(?:T\\d{2}:\\d{2}:\\d{2}(?:\\.\\d{1,9})?Z)?|\\d+)";
+  protected static final Pattern DATEBETWEENFUNC_REGEXP = Pattern.compile("dateBetween\\((" + DATE_ARG + "):(" + DATE_ARG + ")(?::(.+))?\\)");
+  protected static final Pattern TIMESTAMPBETWEENFUNC_REGEXP = Pattern.compile("timestampBetween\\((" + INSTANT_ARG + "):(" + INSTANT_ARG + ")(?::(.+))?\\)");
+  protected static final Pattern CDCFUNC_REGEXP = Pattern.compile("cdc(Op|Key)\\((\\d+):(\\d+):(\\d+)(?::(\\d+))?\\)");
+  protected static final String[] CDC_OPERATIONS = {"c", "u", "d"};
 
 
-  protected Faker faker;
+  protected volatile Faker faker;
   protected List<String> fields;
+  protected List<FieldSpec> fieldSpecs;
   protected List<String> header;
   protected String headerLine;
   protected String separator;
+  protected CsvQuoter csvQuoter;  // null if not quoting values
   protected List<FieldEntry> fieldCache;
+  protected Long seed;
+  protected ThreadLocal<SeededFieldCache> seededFieldCache;
+  protected volatile boolean[] appendTemplateDirectly;  // per field, template fields never needing quotes
+  protected volatile int[] compositeIndexes;  // per field, index of its composite field record (-1 if not a part)
+  protected volatile ColumnBatch.ColumnType[] columnTypes;  // inferred from row 1, for generateBatch()
 
 
   public FakerRowGenerator() {
-    this.faker = new Faker();
     this.separator = ","; // defaults to comma
+    this.csvQuoter = new CsvQuoter(this.separator);
+  }
+
+  /**
+   * Creates a row generator using an existing Faker object (e.g., shared between row generators)
+   * @param faker - faker object used to generate fields
+   */
+  public FakerRowGenerator(Faker faker) {
+    this();
+    this.faker = faker;
   }
 
 
   /**
-   * Get all supported fields by Faker API using reflection on Faker object
+   * Get all supported fields by Faker API, using the field index generated at build time (see FakerFieldIndex)
    * @return a list of supported fields (to be used in setFields())
    */
   @Override
@@ -55,36 +114,41 @@ public class FakerRowGenerator implements RowGenerator {
     results.add("rowNumber");
     results.add("sequence(start:increment)");
     results.add("randomString(bothifyFormatting)");
+    results.add("numerify(fmt)");
+    results.add("letterify(fmt)");
+    results.add("regexify(regex)");
     results.add("randomLong(min:max)");
     results.add("randomDouble(maxDecimals:min:max)");
-    getAvailableFieldsRecursive(faker.getClass(), null, results, 6);
+    results.add("zipf(n:s)");
+    results.add("normal(mean:stddev)");
+    results.add("lognormal(mu:sigma)");
+    results.add("poisson(lambda)");
+    results.add("weighted(value1=weight1,value2=weight2)");
+    results.add("eventTime(start:ratePerSec:jitter)");
+    results.add("dateBetween(start:end:format)");
+    results.add("timestampBetween(start:end:format)");
+    results.add("cdcOp(inserts:updates:deletes)");
+    results.add("cdcKey(inserts:updates:deletes:initialKeys)");
+    results.add("address{streetAddress,city,state,stateAbbr,zipCode,country,countryCode,fullAddress}");
+    results.add("person{firstName,lastName,fullName,username,email}");
+    results.addAll(FakerFieldIndex.getFields());
     return results;
   }
 
-  protected static void getAvailableFieldsRecursive(Class fakerObjectClass, String prefix, List<String> results, int maxRecursion) {
-    final List<String> ignoreMethods = Arrays.asList("instance", "toString");
-
-    if (maxRecursion <= 0) return; // reached max recursion level. just in case...
-
-    Method[] methods = fakerObjectClass.getDeclaredMethods();
-
-    for (Method m : methods) {
-      if (m.getParameterCount() == 0 && !ignoreMethods.contains(m.getName())) {
-        String currentFieldName = prefix == null ? m.getName() : prefix + "." + m.getName();
-        try {
-          Class callResultClass = m.getReturnType();
-          // check if we will call recursively
-          if (callResultClass.getPackage().getName().startsWith("com.github.javafaker")) {
-            // java faker domain object, lets dig into this
-            getAvailableFieldsRecursive(callResultClass, currentFieldName, results, maxRecursion - 1);
-          } else {
-            results.add(currentFieldName);
-          }
-        } catch (Exception ex) {
-          // do nothing
+  /**
+   * Faker object is only created when needed (its creation loads yaml files), e.g., a rowNumber only row
+   * generator never creates it.
+   * @return faker object used to generate fields
+   */
+  protected Faker getFaker() {
+    if (faker == null) {
+      synchronized (this) {
+        if (faker == null) {
+          faker = new Faker();
         }
       }
     }
+    return faker;
   }
 
   @Override
@@ -99,15 +163,75 @@ public class FakerRowGenerator implements RowGenerator {
     return this;
   }
 
+  /**
+   * Sets fields to generate, composite fields (e.g., address{city,state}) are expanded to a field per part
+   */
   @Override
   public RowGenerator setFields(List<String> fields) {
-    this.fields = fields;
+    this.fields = resolveEventTimeNow(CompositeField.expandFields(fields), Instant.now());
+    this.fieldSpecs = null;
+    this.appendTemplateDirectly = null;
+    this.compositeIndexes = null;
+    this.columnTypes = null;
     return this;
   }
 
+  /**
+   * Replaces "now" start of eventTime fields by an instant (as epoch milisecs), so "now" is resolved once (e.g., by
+   * DataGenCLI, before rows are generated by several threads, or spark executors) instead of each time fields are parsed
+   * @return fields, with eventTime(now:...) fields replaced
+   */
+  public static List<String> resolveEventTimeNow(List<String> fields, Instant now) {
+    return fields.stream()
+        .map(field -> {
+          Matcher m = EVENTTIMEFUNC_REGEXP.matcher(field);
+          return m.matches() && m.group(1).trim().equals("now")
+              ? "eventTime(" + now.toEpochMilli() + ":" + m.group(2) + ":" + m.group(3) + ")"
+              : field;
+        })
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Sets fields using already parsed field definitions (e.g., from a RowGeneratorPlan)
+   * @param fieldSpecs - parsed field definitions
+   * @return this object, to help on construction
+   */
+  public FakerRowGenerator setFieldSpecs(List<FieldSpec> fieldSpecs) {
+    this.fieldSpecs = fieldSpecs;
+    this.fields = fieldSpecs.stream().map(fieldSpec -> fieldSpec.field).collect(Collectors.toList());
+    this.appendTemplateDirectly = null;
+    this.compositeIndexes = null;
+    this.columnTypes = null;
+    return this;
+  }
+
+  protected List<FieldSpec> getFieldSpecs() {
+    if (fieldSpecs == null) {
+      fieldSpecs = fields.stream().map(FieldSpec::parse).collect(Collectors.toList());
+    }
+    return fieldSpecs;
+  }
+
   @Override
   public RowGenerator setFieldsSeparator(String separator) {
     this.separator = separator;
+    this.csvQuoter = this.csvQuoter != null ? new CsvQuoter(separator) : null;
+    this.appendTemplateDirectly = null;
+    return this;
+  }
+
+  @Override
+  public RowGenerator setQuoting(boolean quoting) {
+    this.csvQuoter = quoting ? new CsvQuoter(this.separator) : null;
+    this.appendTemplateDirectly = null;
+    return this;
+  }
+
+  @Override
+  public RowGenerator setSeed(long seed) {
+    this.seed = seed;
+    this.seededFieldCache = ThreadLocal.withInitial(SeededFieldCache::new);
     return this;
   }
 
@@ -116,38 +240,495 @@ public class FakerRowGenerator implements RowGenerator {
     if (this.headerLine!=null) {
       return this.headerLine;
     } else {
-      return header.stream().collect(Collectors.joining(this.separator));
+      StringBuilder line = new StringBuilder();
+      for (int i = 0; i < header.size(); i++) {
+        if (i > 0) {
+          line.append(this.separator);
+        }
+        appendValue(line, header.get(i));
+      }
+      return line.toString();
     }
   }
 
   @Override
   public List generateRow(Long lineNumber) {
-    initFieldCache();
-    return fieldCache.stream().map( fieldEntry -> fieldEntry.getValue(lineNumber) )
-        .collect(Collectors.toList());
+    List<FieldEntry> fieldEntries = getFieldEntries(lineNumber);
+    Object[][] compositeRecords = createCompositeRecords();
+    List<Object> values = new ArrayList<>(fieldEntries.size());
+    for (int i = 0; i < fieldEntries.size(); i++) {
+      values.add(getValue(fieldEntries.get(i), i, lineNumber, compositeRecords));
+    }
+    return values;
   }
 
   @Override
   public String generateRowLine(Long lineNumber) {
-    initFieldCache();
-    return fieldCache.stream().map( fieldEntry -> fieldEntry.getValue(lineNumber).toString() )
-        .collect(Collectors.joining(this.separator));
+    List<FieldEntry> fieldEntries = getFieldEntries(lineNumber);
+    boolean[] appendDirectly = getAppendTemplateDirectly();
+    Object[][] compositeRecords = createCompositeRecords();
+    StringBuilder line = new StringBuilder(128);
+    for (int i = 0; i < fieldEntries.size(); i++) {
+      if (i > 0) {
+        line.append(this.separator);
+      }
+      FieldEntry fieldEntry = fieldEntries.get(i);
+      if (appendDirectly[i]) {
+        fieldEntry.template.appendTo(line, fieldEntry.randomSupplier.get());
+      } else if (fieldEntry.entryType == FieldEntry.EntryType.DATE_TIME) {
+        // formatted from epoch value, without creating LocalDate/Instant objects (for default format)
+        FieldSpec fieldSpec = fieldEntry.fieldSpec;
+        appendValue(line, fieldSpec.formatDateTime(fieldSpec.nextEpochValue(fieldEntry.randomSupplier.get())));
+      } else {
+        appendValue(line, getValue(fieldEntry, i, lineNumber, compositeRecords));
+      }
+    }
+    return line.toString();
+  }
+
+  @Override
+  public String formatRowLine(List values) {
+    List<FieldSpec> specs = getFieldSpecs();
+    StringBuilder line = new StringBuilder(128);
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        line.append(this.separator);
+      }
+      Object value = values.get(i);
+      FieldSpec fieldSpec = specs.get(i);
+      // dates and timestamps with field format, as in generateRowLine()
+      if (fieldSpec.specType == FieldSpec.SpecType.DATE_BETWEEN && value instanceof LocalDate) {
+        appendValue(line, fieldSpec.formatDateTime(((LocalDate) value).toEpochDay()));
+      } else if (fieldSpec.specType == FieldSpec.SpecType.TIMESTAMP_BETWEEN && value instanceof Instant) {
+        appendValue(line, fieldSpec.formatDateTime(((Instant) value).toEpochMilli()));
+      } else {
+        appendValue(line, value);
+      }
+    }
+    return line.toString();
+  }
+
+  /**
+   * Gets value of field at position pos. Composite field parts get their value from the record of their composite
+   * field, generated by its first part (records only live while generating a row).
+   */
+  protected Object getValue(FieldEntry fieldEntry, int pos, long lineNumber, Object[][] compositeRecords) {
+    if (fieldEntry.entryType != FieldEntry.EntryType.COMPOSITE_PART) {
+      return fieldEntry.getValue(lineNumber);
+    }
+    int compositeIndex = compositeIndexes[pos];
+    if (compositeRecords[compositeIndex] == null) {
+      compositeRecords[compositeIndex] = fieldEntry.composite.generate((Faker) fieldEntry.generatorObject);
+    }
+    return compositeRecords[compositeIndex][(int) fieldEntry.fieldSpec.arguments[2]];
+  }
+
+  /**
+   * @return an (empty) record for each composite field, or null if there are no composite fields
+   */
+  protected Object[][] createCompositeRecords() {
+    int[] indexes = this.compositeIndexes;
+    if (indexes == null) {
+      List<FieldSpec> specs = getFieldSpecs();
+      List<Object> groupKeys = new ArrayList<>();
+      indexes = new int[specs.size()];
+      for (int i = 0; i < indexes.length; i++) {
+        indexes[i] = -1;
+        if (specs.get(i).specType == FieldSpec.SpecType.COMPOSITE_PART) {
+          Object groupKey = specs.get(i).arguments[0];
+          if (!groupKeys.contains(groupKey)) {
+            groupKeys.add(groupKey);
+          }
+          indexes[i] = groupKeys.indexOf(groupKey);
+        }
+      }
+      this.compositeIndexes = indexes;
+    }
+    int count = 0;
+    for (int index : indexes) {
+      count = Math.max(count, index + 1);
+    }
+    return count > 0 ? new Object[count][] : null;
+  }
+
+  /**
+   * Generates a batch of rows column by column: each field entry fills its whole column in a loop (see
+   * FieldEntry.fillColumn()). With a seed, fields using the Random of the row (re-seeded for each row) can only be
+   * generated row by row, as their values depend on the order fields use it, so only fields not using it (rowNumber,
+   * sequence and eventTime) are generated by column. Composite field parts are always generated row by row.
+   */
+  @Override
+  public ColumnBatch generateBatch(long startRow, int count) {
+    ColumnBatch.ColumnType[] types = this.columnTypes;
+    if (types == null) {
+      types = ColumnBatch.inferColumnTypes(generateRow(1L));
+      this.columnTypes = types;
+    }
+    ColumnBatch batch = new ColumnBatch(types, startRow, count);
+    List<FieldEntry> fieldEntries = getFieldEntries(startRow);
+    boolean[] byColumn = new boolean[fieldEntries.size()];
+    boolean anyByRow = false;
+    for (int i = 0; i < byColumn.length; i++) {
+      FieldEntry.EntryType entryType = fieldEntries.get(i).entryType;
+      byColumn[i] = seed == null
+          ? entryType != FieldEntry.EntryType.COMPOSITE_PART
+          : entryType == FieldEntry.EntryType.ROWNUMBER || entryType == FieldEntry.EntryType.SEQUENCE
+              || entryType == FieldEntry.EntryType.EVENT_TIME;
+      if (byColumn[i]) {
+        fieldEntries.get(i).fillColumn(batch, i, startRow, count);
+      } else {
+        anyByRow = true;
+      }
+    }
+    for (int row = 0; anyByRow && row < count; row++) {
+      long lineNumber = startRow + row;
+      fieldEntries = getFieldEntries(lineNumber);
+      Object[][] compositeRecords = createCompositeRecords();
+      for (int i = 0; i < byColumn.length; i++) {
+        if (!byColumn[i]) {
+          batch.setValue(i, row, getValue(fieldEntries.get(i), i, lineNumber, compositeRecords));
+        }
+      }
+    }
+    return batch;
+  }
+
+  /**
+   * Template fields (see StringTemplate) whose values never need quoting are appended directly to lines
+   * @return per field, true if field is appended directly
+   */
+  protected boolean[] getAppendTemplateDirectly() {
+    boolean[] appendDirectly = this.appendTemplateDirectly;
+    if (appendDirectly == null) {
+      List<FieldSpec> specs = getFieldSpecs();
+      appendDirectly = new boolean[specs.size()];
+      for (int i = 0; i < appendDirectly.length; i++) {
+        FieldSpec fieldSpec = specs.get(i);
+        appendDirectly[i] = fieldSpec.specType == FieldSpec.SpecType.RANDOM_STRING
+            && (csvQuoter == null || !csvQuoter.mayNeedQuoting((StringTemplate) fieldSpec.arguments[0]));
+      }
+      this.appendTemplateDirectly = appendDirectly;
+    }
+    return appendDirectly;
+  }
+
+  /**
+   * Appends a value to a line, quoted if needed (numbers never need quoting)
+   */
+  protected void appendValue(StringBuilder line, Object value) {
+    if (csvQuoter == null || value instanceof Number) {
+      line.append(value);
+    } else {
+      csvQuoter.append(line, value.toString());
+    }
+  }
+
+  /**
+   * Get field entries to generate a row. When using a seed, these are the entries of current thread, with their
+   * Random already seeded for lineNumber.
+   */
+  protected List<FieldEntry> getFieldEntries(long lineNumber) {
+    if (seed == null) {
+      initFieldCache();
+      return fieldCache;
+    }
+    SeededFieldCache threadFieldCache = seededFieldCache.get();
+    if (threadFieldCache.fieldEntries == null) {
+      threadFieldCache.fieldEntries = getFieldSpecs().stream()
+          .map( f -> FieldEntry.createFieldEntry(f, threadFieldCache::getFaker, () -> threadFieldCache.random) )
+          .collect(Collectors.toList());
+      threadFieldCache.fieldEntries.forEach(fieldEntry -> fieldEntry.seed = seed);
+    }
+    threadFieldCache.random.setSeed(rowSeed(seed, lineNumber));
+    return threadFieldCache.fieldEntries;
   }
 
   protected void initFieldCache() {
     if (fieldCache == null) {
-      fieldCache = fields.stream().map( f -> FieldEntry.createFieldEntry(f, this.faker) ).collect(Collectors.toList());
+      fieldCache = getFieldSpecs().stream().map( f -> FieldEntry.createFieldEntry(f, this::getFaker) ).collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Seed for a row, mixes seed and row number (splitmix64 finalizer) so consecutive rows get unrelated seeds.
+   */
+  protected static long rowSeed(long seed, long lineNumber) {
+    long z = seed + lineNumber * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Field entries (and Faker/Random used by them) of a thread, when using a seed.
+   */
+  protected static class SeededFieldCache {
+    final Random random = new Random();
+    Faker faker;
+    List<FieldEntry> fieldEntries;
+
+    Faker getFaker() {
+      if (faker == null) {
+        faker = new Faker(random);
+      }
+      return faker;
     }
   }
 
 
+  /**
+   * Parsed field definition (type of field and its arguments). Fields are parsed only once, and this can be
+   * shipped (serialized) to where rows are generated (e.g., spark executors), see RowGeneratorPlan.
+   * Bound to Faker objects with FieldEntry.createFieldEntry().
+   */
+  static class FieldSpec implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    enum SpecType { ROWNUMBER, SEQUENCE, RANDOM_STRING, REGEXIFY, RANDOM_LONG, RANDOM_DOUBLE, DISTRIBUTION, EVENT_TIME,
+      DATE_BETWEEN, TIMESTAMP_BETWEEN, CDC_OP, CDC_KEY, COMPOSITE_PART, FAKER_FIELD }
+    final String field;
+    final SpecType specType;
+    final Object[] arguments;
+    // created once (it's thread safe) on first use, on each JVM
+    protected transient volatile DateTimeFormatter formatter;
+
+    protected FieldSpec(String field, SpecType specType, Object... arguments) {
+      this.field = field;
+      this.specType = specType;
+      this.arguments = arguments;
+    }
+
+    /**
+     * Parses the field definition string (including any arguments) passed as parameter
+     * E.g., randomLong(min:max) is parsed as RANDOM_LONG with arguments min and max
+     * @param field - field definition string
+     * @return parsed field
+     */
+    public static FieldSpec parse(String field) {
+      if (RANDOMSTRING_REGEXP.matcher(field).find()) {
+        Matcher m = RANDOMSTRING_REGEXP.matcher(field); m.find();
+        return new FieldSpec(field, SpecType.RANDOM_STRING, StringTemplate.bothify(m.group(1)));
+      } else if (NUMERIFY_REGEXP.matcher(field).matches()) {
+        Matcher m = NUMERIFY_REGEXP.matcher(field); m.matches();
+        return new FieldSpec(field, SpecType.RANDOM_STRING, StringTemplate.numerify(m.group(1)));
+      } else if (LETTERIFY_REGEXP.matcher(field).matches()) {
+        Matcher m = LETTERIFY_REGEXP.matcher(field); m.matches();
+        return new FieldSpec(field, SpecType.RANDOM_STRING, StringTemplate.letterify(m.group(1)));
+      } else if (REGEXIFY_REGEXP.matcher(field).matches()) {
+        Matcher m = REGEXIFY_REGEXP.matcher(field); m.matches();
+        StringTemplate template = StringTemplate.regexify(m.group(1));
+        return template != null
+            ? new FieldSpec(field, SpecType.RANDOM_STRING, template)
+            : new FieldSpec(field, SpecType.REGEXIFY, m.group(1)); // not a simple regex, generated by Faker
+      } else if (RANDOMLONGFUNC_REGEXP.matcher(field).find()) {
+        Matcher m = RANDOMLONGFUNC_REGEXP.matcher(field); m.find();
+        return new FieldSpec(field, SpecType.RANDOM_LONG, Long.parseLong(m.group(1)), Long.parseLong(m.group(2)));
+      } else if (RANDOMDOUBLEFUNC_REGEXP.matcher(field).find()) {
+        Matcher m = RANDOMDOUBLEFUNC_REGEXP.matcher(field); m.find();
+        return new FieldSpec(field, SpecType.RANDOM_DOUBLE, Integer.parseInt(m.group(1)), Long.parseLong(m.group(2)), Long.parseLong(m.group(3)));
+      } else if (SEQUENCEFUNC_REGEXP.matcher(field).find()) {
+        Matcher m = SEQUENCEFUNC_REGEXP.matcher(field); m.find();
+        return new FieldSpec(field, SpecType.SEQUENCE, Long.parseLong(m.group(1)), Long.parseLong(m.group(2)));
+      } else if (EVENTTIMEFUNC_REGEXP.matcher(field).matches()) {
+        Matcher m = EVENTTIMEFUNC_REGEXP.matcher(field); m.matches();
+        Instant start = parseInstant(m.group(1).trim());
+        if (start != null && Double.parseDouble(m.group(2)) > 0) {
+          long jitterNanos = (long) (Double.parseDouble(m.group(3)) * 1000000.0);
+          return new FieldSpec(field, SpecType.EVENT_TIME, start, Double.parseDouble(m.group(2)), jitterNanos);
+        }
+        return new FieldSpec(field, SpecType.FAKER_FIELD); // invalid start or rate, generates empty values as unknown fields
+      } else if (DATEBETWEENFUNC_REGEXP.matcher(field).matches()) {
+        Matcher m = DATEBETWEENFUNC_REGEXP.matcher(field); m.matches();
+        try {
+          return checkDateTimeSpec(new FieldSpec(field, SpecType.DATE_BETWEEN, LocalDate.parse(m.group(1)).toEpochDay(),
+              LocalDate.parse(m.group(2)).toEpochDay(), m.group(3)));
+        } catch (DateTimeParseException ex) {
+          return new FieldSpec(field, SpecType.FAKER_FIELD);
+        }
+      } else if (TIMESTAMPBETWEENFUNC_REGEXP.matcher(field).matches()) {
+        Matcher m = TIMESTAMPBETWEENFUNC_REGEXP.matcher(field); m.matches();
+        Instant start = parseInstant(m.group(1).length() == 10 ? m.group(1) + "T00:00:00Z" : m.group(1));
+        Instant end = parseInstant(m.group(2).length() == 10 ? m.group(2) + "T00:00:00Z" : m.group(2));
+        return start != null && end != null
+            ? checkDateTimeSpec(new FieldSpec(field, SpecType.TIMESTAMP_BETWEEN, start.toEpochMilli(), end.toEpochMilli(), m.group(3)))
+            : new FieldSpec(field, SpecType.FAKER_FIELD);
+      } else if (CDCFUNC_REGEXP.matcher(field).matches()) {
+        Matcher m = CDCFUNC_REGEXP.matcher(field); m.matches();
+        try {
+          return parseCdcSpec(field, m.group(1).equals("Op") ? SpecType.CDC_OP : SpecType.CDC_KEY, Long.parseLong(m.group(2)),
+              Long.parseLong(m.group(3)), Long.parseLong(m.group(4)), m.group(5) != null ? Long.parseLong(m.group(5)) : 0L);
+        } catch (NumberFormatException ex) {
+          return new FieldSpec(field, SpecType.FAKER_FIELD);
+        }
+      } else if (field.equals("rowNumber")) {
+        return new FieldSpec(field, SpecType.ROWNUMBER);
+      } else if (CompositeField.isPart(field)) {
+        return new FieldSpec(field, SpecType.COMPOSITE_PART, CompositeField.parsePart(field));
+      } else if (Distribution.isDistribution(field)) {
+        return new FieldSpec(field, SpecType.DISTRIBUTION);
+      } else {
+        return new FieldSpec(field, SpecType.FAKER_FIELD);
+      }
+    }
+
+    /**
+     * @return fieldSpec, or an unknown field (generates empty values) if end is before start or format is invalid
+     */
+    protected static FieldSpec checkDateTimeSpec(FieldSpec fieldSpec) {
+      try {
+        if ((long) fieldSpec.arguments[1] >= (long) fieldSpec.arguments[0]) {
+          fieldSpec.formatDateTime((long) fieldSpec.arguments[0]);
+          return fieldSpec;
+        }
+      } catch (IllegalArgumentException | DateTimeException ex) {
+        // invalid pattern, or pattern with fields not available (e.g., hours for dates)
+      }
+      return new FieldSpec(fieldSpec.field, SpecType.FAKER_FIELD);
+    }
+
+    /**
+     * CDC field, with ratios reduced (e.g., 60:30:10 to 6:3:1), so events are in short blocks of inserts, then
+     * updates, then deletes. Ratios must keep at least one live key to update or delete: deletes can't be more
+     * than inserts, and there must be inserts or initial keys.
+     * @return CDC_OP/CDC_KEY field with arguments inserts, updates, deletes and initialKeys, or an unknown field
+     *   (generates empty values) if ratios are invalid
+     */
+    protected static FieldSpec parseCdcSpec(String field, SpecType specType, long inserts, long updates, long deletes,
+                                            long initialKeys) {
+      if (inserts + updates + deletes <= 0 || deletes > inserts || (inserts == 0 && initialKeys == 0)) {
+        return new FieldSpec(field, SpecType.FAKER_FIELD);
+      }
+      long gcd = gcd(gcd(inserts, updates), deletes);
+      return new FieldSpec(field, specType, inserts / gcd, updates / gcd, deletes / gcd, initialKeys);
+    }
+
+    protected static long gcd(long a, long b) {
+      return b == 0 ? a : gcd(b, a % b);
+    }
+
+    protected static Instant parseInstant(String instant) {
+      try {
+        if (instant.matches("\\d+")) {
+          return Instant.ofEpochMilli(Long.parseLong(instant));
+        }
+        return Instant.parse(instant);
+      } catch (DateTimeParseException | ArithmeticException ex) {
+        return null;
+      }
+    }
+
+    /**
+     * Event time of a row, for EVENT_TIME fields: start + (rowNumber-1)/ratePerSec seconds, without jitter
+     */
+    Instant getEventTime(long lineNumber) {
+      double nanosPerEvent = 1000000000.0 / (double) arguments[1];
+      return ((Instant) arguments[0]).plusNanos((long) ((lineNumber - 1L) * nanosPerEvent));
+    }
+
+    /**
+     * @return max jitter of EVENT_TIME fields, in nanoseconds
+     */
+    long getJitterNanos() {
+      return (long) arguments[2];
+    }
+
+    /**
+     * Event time of a row, with jitter, for EVENT_TIME fields. Jitter only depends on seed, field and row number,
+     * so it's the same on every run with the same seed (and on any thread/worker).
+     * @param seed - seed of row generator (0 if it has none)
+     */
+    Instant getEventTimeWithJitter(long lineNumber, long seed) {
+      long jitterNanos = getJitterNanos();
+      Instant eventTime = getEventTime(lineNumber);
+      return jitterNanos > 0
+          ? eventTime.plusNanos(Math.floorMod(rowSeed(rowSeed(seed, field.hashCode()), lineNumber), jitterNanos))
+          : eventTime;
+    }
+
+    /**
+     * Operation of event lineNumber, for CDC fields: events come in blocks of inserts+updates+deletes events (inserts
+     * first, then updates, then deletes)
+     * @return 0 for insert, 1 for update and 2 for delete (see CDC_OPERATIONS)
+     */
+    int getCdcOperation(long lineNumber) {
+      long inserts = (long) arguments[0];
+      long pos = Math.floorMod(lineNumber - 1L, inserts + (long) arguments[1] + (long) arguments[2]);
+      return pos < inserts ? 0 : pos < inserts + (long) arguments[1] ? 1 : 2;
+    }
+
+    /**
+     * Key of event lineNumber, for CDC fields, computed from the number of inserts and deletes before it (known from
+     * lineNumber and ratios): live keys are always deleted+1 to initialKeys+inserted (deletes remove the oldest key),
+     * so an insert gets key initialKeys+inserted+1, a delete key deleted+1, and an update a random live key.
+     * @param random - Random of row (only used by updates)
+     * @throws IllegalArgumentException if lineNumber is before first event (row 1), that has no live keys
+     */
+    long getCdcKey(long lineNumber, Random random) {
+      if (lineNumber < 1L) {
+        throw new IllegalArgumentException("CDC events start at row 1, invalid row " + lineNumber);
+      }
+      long inserts = (long) arguments[0];
+      long updates = (long) arguments[1];
+      long deletes = (long) arguments[2];
+      long block = Math.floorDiv(lineNumber - 1L, inserts + updates + deletes);
+      long pos = Math.floorMod(lineNumber - 1L, inserts + updates + deletes);
+      long inserted = block * inserts + Math.min(pos, inserts);
+      long deleted = block * deletes + Math.max(0L, pos - inserts - updates);
+      long initialKeys = (long) arguments[3];
+      if (pos < inserts) {
+        return initialKeys + inserted + 1L;
+      } else if (pos < inserts + updates) {
+        return deleted + 1L + Math.floorMod(random.nextLong(), initialKeys + inserted - deleted);
+      }
+      return deleted + 1L;
+    }
+
+    /**
+     * Random epoch day (DATE_BETWEEN) or epoch milisec (TIMESTAMP_BETWEEN) from start to end (inclusive)
+     */
+    long nextEpochValue(Random random) {
+      long start = (long) arguments[0];
+      return start + Math.floorMod(random.nextLong(), (long) arguments[1] - start + 1L);
+    }
+
+    /**
+     * @return epoch value as LocalDate (DATE_BETWEEN) or Instant (TIMESTAMP_BETWEEN)
+     */
+    TemporalAccessor toDateTime(long epochValue) {
+      return specType == SpecType.DATE_BETWEEN ? LocalDate.ofEpochDay(epochValue) : Instant.ofEpochMilli(epochValue);
+    }
+
+    /**
+     * @return epoch value formatted with field format, or as ISO-8601 date or timestamp if there's no format
+     */
+    String formatDateTime(long epochValue) {
+      String pattern = (String) arguments[2];
+      if (pattern == null) {
+        return specType == SpecType.DATE_BETWEEN
+            ? IsoDateTime.formatDate(epochValue)
+            : IsoDateTime.formatTimestamp(epochValue);
+      }
+      if (formatter == null) {
+        formatter = DateTimeFormatter.ofPattern(pattern).withZone(ZoneOffset.UTC);
+      }
+      return formatter.format(toDateTime(epochValue));
+    }
+  }
+
   static class FieldEntry {
     String field;
     Object generatorObject;
     Method generatorMethod;
     Object[] generatorArguments;
-    enum EntryType { ROWNUMBER, SEQUENCE, FAKER_METHOD}
+    enum EntryType { ROWNUMBER, SEQUENCE, TEMPLATE, DISTRIBUTION, EVENT_TIME, DATE_TIME, CDC, COMPOSITE_PART, FAKER_METHOD}
     EntryType entryType;
+    FieldSpec fieldSpec;
+    Distribution distribution;
+    StringTemplate template;
+    CompositeField composite;
+    Supplier<Random> randomSupplier;
+    // seed of row generator, for values that depend only on it and on row number (eventTime jitter)
+    long seed = 0L;
 
     protected FieldEntry(String field, EntryType entryType, Object object, Method method, Object[] args) {
       this.field = field;
@@ -160,56 +741,162 @@ public class FakerRowGenerator implements RowGenerator {
     /**
      * Creates an FieldEntry based on string with field definition. This FieldEntry can be passed to
      * getValue() to generate a value for the field.
-     * Parses the field definition string (including any arguments) passed as parameter, maps them to
-     * corresponding Faker methods and return a FieldEntry with that..
-     * E.g., randomLong(min:max) is parsed and mapped as faker.number.numberBetween(min,max);
+     * @param field - field definition string
+     * @param fakerSupplier - supplies the Faker object, only called for fields that need it
+     * @return a FieldEntry object that can be used with getValue()
+     */
+    public static FieldEntry createFieldEntry(String field, Supplier<Faker> fakerSupplier) {
+      return createFieldEntry(FieldSpec.parse(field), fakerSupplier);
+    }
+
+    public static FieldEntry createFieldEntry(FieldSpec fieldSpec, Supplier<Faker> fakerSupplier) {
+      return createFieldEntry(fieldSpec, fakerSupplier, ThreadLocalRandom::current);
+    }
+
+    /**
+     * Creates an FieldEntry based on a parsed field definition, mapping it to corresponding Faker methods.
+     * E.g., randomLong(min:max) is mapped as faker.number.numberBetween(min,max);
      *       name.fullName as faker.name().fullName()
      *
-     * @param field - field definition string
+     * @param fieldSpec - parsed field definition
+     * @param fakerSupplier - supplies the Faker object, only called for fields that need it
+     * @param randomSupplier - supplies the Random used by distribution, template, date/time and CDC fields, called for each value
      * @return a FieldEntry object that can be used with getValue()
+     * @throws IllegalArgumentException if field is an invalid distribution (e.g., weighted with a negative weight)
      */
-    public static FieldEntry createFieldEntry(String field, Faker faker) {
+    public static FieldEntry createFieldEntry(FieldSpec fieldSpec, Supplier<Faker> fakerSupplier,
+                                              Supplier<Random> randomSupplier) {
+      String field = fieldSpec.field;
+      Object[] args = fieldSpec.arguments;
       try {
-        // handle custom fields
-        if (RANDOMSTRING_REGEXP.matcher(field).find()) {
-          Matcher m = RANDOMSTRING_REGEXP.matcher(field); m.find();
-          // simulate faker.bothify(m.group(1))
-          return new FieldEntry(field, FieldEntry.EntryType.FAKER_METHOD, faker,
-              faker.getClass().getDeclaredMethod("bothify", String.class),
-              new Object[] {m.group(1)} );
-        } else if (RANDOMLONGFUNC_REGEXP.matcher(field).find()) {
-          Matcher m = RANDOMLONGFUNC_REGEXP.matcher(field); m.find();
-          // simulate faker.number().numberBetween(Long.parseLong(m.group(1)),Long.parseLong(m.group(2)))
-          return new FieldEntry(field, FieldEntry.EntryType.FAKER_METHOD, faker.number(),
-              faker.number().getClass().getDeclaredMethod("numberBetween", long.class, long.class),
-              new Object[] { Long.parseLong(m.group(1)), Long.parseLong(m.group(2)) } );
-        } else if (RANDOMDOUBLEFUNC_REGEXP.matcher(field).find()) {
-          Matcher m = RANDOMDOUBLEFUNC_REGEXP.matcher(field); m.find();
-          // simulate faker.number().randomDouble(Integer.parseInt(m.group(1)), Long.parseLong(m.group(2)),Long.parseLong(m.group(3)))
-          return new FieldEntry(field, FieldEntry.EntryType.FAKER_METHOD, faker.number(),
-              faker.number().getClass().getDeclaredMethod("randomDouble", int.class, long.class, long.class),
-              new Object[] { Integer.parseInt(m.group(1)), Long.parseLong(m.group(2)),Long.parseLong(m.group(3)) } );
-        } else if (SEQUENCEFUNC_REGEXP.matcher(field).find()) {
-          Matcher m = SEQUENCEFUNC_REGEXP.matcher(field); m.find();
-          return new FieldEntry(field, FieldEntry.EntryType.SEQUENCE,null, null,
-              new Object[] { Long.parseLong(m.group(1)), Long.parseLong(m.group(2)) } );
-        } else if (field.equals("rowNumber")) {
-          return new FieldEntry(field, FieldEntry.EntryType.ROWNUMBER,null, null, null);
-        } else {
-          // handle other fields in field1.name1 format with reflection
-          String[] methodCalls = field.split("\\.");
-          Object objToCall = faker;
-          for (int i = 0; i < methodCalls.length-1; i++) {
-            objToCall = objToCall.getClass().getDeclaredMethod(methodCalls[i]).invoke(objToCall);
+        switch (fieldSpec.specType) {
+          case RANDOM_STRING: {
+            // compiled faker.bothify(fmt), numerify(fmt), letterify(fmt) or regexify(regex)
+            FieldEntry fieldEntry = new FieldEntry(field, FieldEntry.EntryType.TEMPLATE, null, null, null);
+            fieldEntry.template = (StringTemplate) args[0];
+            fieldEntry.randomSupplier = randomSupplier;
+            return fieldEntry;
+          }
+          case REGEXIFY: {
+            Faker faker = fakerSupplier.get();
+            // simulate faker.regexify(regex)
+            return new FieldEntry(field, FieldEntry.EntryType.FAKER_METHOD, faker,
+                faker.getClass().getDeclaredMethod("regexify", String.class), args);
+          }
+          case RANDOM_LONG: {
+            Faker faker = fakerSupplier.get();
+            // simulate faker.number().numberBetween(min,max)
+            return new FieldEntry(field, FieldEntry.EntryType.FAKER_METHOD, faker.number(),
+                faker.number().getClass().getDeclaredMethod("numberBetween", long.class, long.class), args);
+          }
+          case RANDOM_DOUBLE: {
+            Faker faker = fakerSupplier.get();
+            // simulate faker.number().randomDouble(maxDecimals, min, max)
+            return new FieldEntry(field, FieldEntry.EntryType.FAKER_METHOD, faker.number(),
+                faker.number().getClass().getDeclaredMethod("randomDouble", int.class, long.class, long.class), args);
+          }
+          case SEQUENCE:
+            return new FieldEntry(field, FieldEntry.EntryType.SEQUENCE,null, null, args);
+          case ROWNUMBER:
+            return new FieldEntry(field, FieldEntry.EntryType.ROWNUMBER,null, null, null);
+          case EVENT_TIME: {
+            FieldEntry fieldEntry = new FieldEntry(field, FieldEntry.EntryType.EVENT_TIME, null, null, null);
+            fieldEntry.fieldSpec = fieldSpec;
+            return fieldEntry;
+          }
+          case DATE_BETWEEN:
+          case TIMESTAMP_BETWEEN: {
+            FieldEntry fieldEntry = new FieldEntry(field, FieldEntry.EntryType.DATE_TIME, null, null, null);
+            fieldEntry.fieldSpec = fieldSpec;
+            fieldEntry.randomSupplier = randomSupplier;
+            return fieldEntry;
+          }
+          case CDC_OP:
+          case CDC_KEY: {
+            FieldEntry fieldEntry = new FieldEntry(field, FieldEntry.EntryType.CDC, null, null, null);
+            fieldEntry.fieldSpec = fieldSpec;
+            fieldEntry.randomSupplier = randomSupplier;
+            return fieldEntry;
+          }
+          case COMPOSITE_PART: {
+            // value is taken from composite record of row, see FakerRowGenerator.getValue()
+            FieldEntry fieldEntry = new FieldEntry(field, FieldEntry.EntryType.COMPOSITE_PART, fakerSupplier.get(), null, null);
+            fieldEntry.fieldSpec = fieldSpec;
+            fieldEntry.composite = (CompositeField) args[1];
+            return fieldEntry;
+          }
+          case DISTRIBUTION: {
+            FieldEntry fieldEntry = new FieldEntry(field, FieldEntry.EntryType.DISTRIBUTION, null, null, null);
+            fieldEntry.distribution = Distribution.getDistribution(field);
+            fieldEntry.randomSupplier = randomSupplier;
+            return fieldEntry;
+          }
+          default: {
+            // handle other fields in field1.name1 format with reflection, method chain resolved once per JVM
+            Method[] methodChain = FakerFieldIndex.getMethodChain(field);
+            if (methodChain == null) {
+              return new FieldEntry(field, FieldEntry.EntryType.FAKER_METHOD, null, null, null);
+            }
+            Object objToCall = fakerSupplier.get();
+            for (int i = 0; i < methodChain.length-1; i++) {
+              objToCall = methodChain[i].invoke(objToCall);
+            }
+            return new FieldEntry(field, FieldEntry.EntryType.FAKER_METHOD, objToCall, methodChain[methodChain.length-1], new Object[] {} );
           }
-          Method methodToCall = objToCall.getClass().getDeclaredMethod(methodCalls[methodCalls.length-1]);
-          return new FieldEntry(field, FieldEntry.EntryType.FAKER_METHOD, objToCall, methodToCall, new Object[] {} );
         }
+      } catch (IllegalArgumentException ex) {
+        if (fieldSpec.specType == FieldSpec.SpecType.DISTRIBUTION) {
+          throw ex;  // reported as an invalid field, see DataGenCLI.checkOptions()
+        }
+        return new FieldEntry(field, FieldEntry.EntryType.FAKER_METHOD, null, null, null);
       } catch (Exception ex) {
         return new FieldEntry(field, FieldEntry.EntryType.FAKER_METHOD, null, null, null);
       }
     }
 
+    /**
+     * Fills column of batch with values of this field, from startRow to startRow+count-1, in a loop for the
+     * whole column. Field types we handle directly are filled without creating an object per value.
+     * @param batch - batch to fill
+     * @param column - column of field on batch
+     * @param startRow - row number of first row
+     * @param count - number of rows
+     */
+    protected void fillColumn(ColumnBatch batch, int column, long startRow, int count) {
+      ColumnBatch.ColumnType columnType = batch.getColumnTypes()[column];
+      if (this.entryType == EntryType.ROWNUMBER && columnType == ColumnBatch.ColumnType.LONG) {
+        long[] values = batch.getLongs(column);
+        for (int i = 0; i < count; i++) {
+          values[i] = startRow + i;
+        }
+      } else if (this.entryType == EntryType.SEQUENCE && columnType == ColumnBatch.ColumnType.LONG) {
+        long[] values = batch.getLongs(column);
+        long start = (long) this.generatorArguments[0];
+        long increment = (long) this.generatorArguments[1];
+        for (int i = 0; i < count; i++) {
+          values[i] = start + (startRow + i - 1L) * increment;
+        }
+      } else if (this.entryType == EntryType.DATE_TIME && columnType != ColumnBatch.ColumnType.STRING) {
+        long[] values = batch.getLongs(column);
+        Random random = this.randomSupplier.get();
+        // epoch days for dates, epoch milisecs (as microseconds) for timestamps
+        long scale = columnType == ColumnBatch.ColumnType.TIMESTAMP ? 1000L : 1L;
+        for (int i = 0; i < count; i++) {
+          values[i] = this.fieldSpec.nextEpochValue(random) * scale;
+        }
+      } else if (this.entryType == EntryType.TEMPLATE && columnType == ColumnBatch.ColumnType.STRING) {
+        Random random = this.randomSupplier.get();
+        char[] chars = new char[this.template.maxLength];
+        for (int i = 0; i < count; i++) {
+          batch.setString(column, i, chars, this.template.fill(chars, random));
+        }
+      } else {
+        for (int i = 0; i < count; i++) {
+          batch.setValue(column, i, getValue(startRow + i));
+        }
+      }
+    }
+
     /**
      * Get a value for this field using reflection on Faker object.
      * E.g., field "name.firstName" will call faker.name().firstName() and return its value.
@@ -222,6 +909,21 @@ public class FakerRowGenerator implements RowGenerator {
         return lineNumber;
       } else if (this.entryType == FieldEntry.EntryType.SEQUENCE) {
         return (long) this.generatorArguments[0] + ((lineNumber-1L) * (long) this.generatorArguments[1]);
+      } else if (this.entryType == FieldEntry.EntryType.EVENT_TIME) {
+        return this.fieldSpec.getEventTimeWithJitter(lineNumber, this.seed);
+      } else if (this.entryType == FieldEntry.EntryType.COMPOSITE_PART) {
+        // part alone, e.g., entry not created by a FakerRowGenerator
+        return this.composite.generate((Faker) this.generatorObject)[(int) this.fieldSpec.arguments[2]];
+      } else if (this.entryType == FieldEntry.EntryType.DATE_TIME) {
+        return this.fieldSpec.toDateTime(this.fieldSpec.nextEpochValue(this.randomSupplier.get()));
+      } else if (this.entryType == FieldEntry.EntryType.TEMPLATE) {
+        return this.template.generate(this.randomSupplier.get());
+      } else if (this.entryType == FieldEntry.EntryType.DISTRIBUTION) {
+        return this.distribution.sample(this.randomSupplier.get());
+      } else if (this.entryType == FieldEntry.EntryType.CDC) {
+        return this.fieldSpec.specType == FieldSpec.SpecType.CDC_OP
+            ? CDC_OPERATIONS[this.fieldSpec.getCdcOperation(lineNumber)]
+            : this.fieldSpec.getCdcKey(lineNumber, this.randomSupplier.get());
       } else {
         try { // call generator object/method in cache using reflection API
           return this.generatorMethod.invoke(this.generatorObject, this.generatorArguments);
@@ -0,0 +1,93 @@
+package org.blackaho.misc.datagencli;
+
+import java.util.List;
+
+/**
+ * Encodes rows in fixed width format: each value is padded with spaces (or truncated) to the width of its column,
+ * with no separator between columns. Widths are in chars (so non ASCII values take more bytes), values are truncated
+ * to whole code points.
+ */
+public class FixedWidthEncoder implements OutputEncoder {
+
+  protected final int[] widths;
+  protected final List<String> header;
+
+  /**
+   * @param widths - width of each column
+   * @param header - column names, written (padded) as header, or null for no header
+   */
+  public FixedWidthEncoder(int[] widths, List<String> header) {
+    this.widths = widths;
+    this.header = header;
+  }
+
+  @Override
+  public byte[] encodeHeader() {
+    if (header == null) {
+      return null;
+    }
+    OutputBuffer buffer = new OutputBuffer();
+    encodeRow(0L, header, buffer);
+    return buffer.toByteArray();
+  }
+
+  @Override
+  public void encodeRow(long rowNumber, List values, OutputBuffer buffer) {
+    for (int i = 0; i < widths.length; i++) {
+      Object value = i < values.size() ? values.get(i) : null;
+      if (value instanceof Long || value instanceof Integer) {
+        int start = buffer.size();
+        buffer.writeLong(((Number) value).longValue());
+        padOrTruncate(buffer, start, buffer.size() - start, widths[i]); // digits are ASCII, one byte per char
+      } else {
+        String text = value == null ? "" : value.toString();
+        if (text.length() > widths[i]) {
+          // truncated on a code point boundary (not between the chars of a surrogate pair), padded if needed
+          int end = Character.isHighSurrogate(text.charAt(widths[i] - 1)) ? widths[i] - 1 : widths[i];
+          text = text.substring(0, end);
+        }
+        buffer.writeUtf8(text);
+        pad(buffer, widths[i] - text.length());
+      }
+    }
+    buffer.write((byte) '\n');
+  }
+
+  protected static void padOrTruncate(OutputBuffer buffer, int start, int length, int width) {
+    if (length > width) {
+      buffer.size = start + width;
+    } else {
+      pad(buffer, width - length);
+    }
+  }
+
+  protected static void pad(OutputBuffer buffer, int count) {
+    if (count > 0) {
+      buffer.ensureCapacity(count);
+      for (int i = 0; i < count; i++) {
+        buffer.bytes[buffer.size++] = ' ';
+      }
+    }
+  }
+
+  /**
+   * Computes widths from a sample of rows: max length (in chars) of each column, including header names
+   * @param sampleRows - sample of rows
+   * @param header - column names, or null
+   * @param numberOfColumns - number of columns
+   * @return widths, at least 1 for each column
+   */
+  public static int[] computeWidths(List<List> sampleRows, List<String> header, int numberOfColumns) {
+    int[] widths = new int[numberOfColumns];
+    for (int i = 0; i < numberOfColumns; i++) {
+      widths[i] = Math.max(1, header != null && i < header.size() ? header.get(i).length() : 0);
+    }
+    for (List row : sampleRows) {
+      for (int i = 0; i < numberOfColumns && i < row.size(); i++) {
+        widths[i] = Math.max(widths[i], String.valueOf(row.get(i)).length());
+      }
+    }
+    return widths;
+  }
+
+}
@@ -0,0 +1,73 @@
+package org.blackaho.misc.datagencli;
+
+/**
+ * Formats epoch days and epoch milisecs as ISO-8601 (UTC) dates and timestamps, writing digits directly, e.g.,
+ * 2024-01-31 and 2024-01-31T10:15:30.250Z. Faster than LocalDate/Instant toString() or a DateTimeFormatter, and
+ * timestamps always have milisecs (fixed width, easier for loaders). Only years 0 to 9999 are supported.
+ */
+public class IsoDateTime {
+
+  protected static final long MILISECS_PER_DAY = 86400000L;
+  // days from 0000-03-01 to 1970-01-01
+  protected static final long DAYS_0000_TO_1970 = 719468L;
+
+  private IsoDateTime() {
+  }
+
+  /**
+   * @return epochDay formatted as yyyy-MM-dd
+   */
+  public static String formatDate(long epochDay) {
+    char[] chars = new char[10];
+    writeDate(chars, epochDay);
+    return new String(chars);
+  }
+
+  /**
+   * @return epochMilli formatted as yyyy-MM-ddTHH:mm:ss.SSSZ
+   */
+  public static String formatTimestamp(long epochMilli) {
+    char[] chars = new char[24];
+    long epochDay = Math.floorDiv(epochMilli, MILISECS_PER_DAY);
+    int miliOfDay = (int) Math.floorMod(epochMilli, MILISECS_PER_DAY);
+    writeDate(chars, epochDay);
+    chars[10] = 'T';
+    writeDigits(chars, 11, miliOfDay / 3600000, 2);
+    chars[13] = ':';
+    writeDigits(chars, 14, miliOfDay / 60000 % 60, 2);
+    chars[16] = ':';
+    writeDigits(chars, 17, miliOfDay / 1000 % 60, 2);
+    chars[19] = '.';
+    writeDigits(chars, 20, miliOfDay % 1000, 3);
+    chars[23] = 'Z';
+    return new String(chars);
+  }
+
+  /**
+   * Writes epochDay as yyyy-MM-dd on first 10 chars (civil from days algorithm, proleptic gregorian calendar)
+   */
+  protected static void writeDate(char[] chars, long epochDay) {
+    long days = epochDay + DAYS_0000_TO_1970;
+    long era = Math.floorDiv(days, 146097L);
+    long dayOfEra = days - era * 146097L;
+    long yearOfEra = (dayOfEra - dayOfEra / 1460L + dayOfEra / 36524L - dayOfEra / 146096L) / 365L;
+    long dayOfYear = dayOfEra - (365L * yearOfEra + yearOfEra / 4L - yearOfEra / 100L);
+    long monthIndex = (5L * dayOfYear + 2L) / 153L;  // from march
+    int day = (int) (dayOfYear - (153L * monthIndex + 2L) / 5L + 1L);
+    int month = (int) (monthIndex < 10L ? monthIndex + 3L : monthIndex - 9L);
+    int year = (int) (yearOfEra + era * 400L + (month <= 2 ? 1L : 0L));
+    writeDigits(chars, 0, year, 4);
+    chars[4] = '-';
+    writeDigits(chars, 5, month, 2);
+    chars[7] = '-';
+    writeDigits(chars, 8, day, 2);
+  }
+
+  protected static void writeDigits(char[] chars, int pos, int value, int digits) {
+    for (int i = pos + digits - 1; i >= pos; i--) {
+      chars[i] = (char) ('0' + value % 10);
+      value /= 10;
+    }
+  }
+
+}
@@ -0,0 +1,114 @@
+package org.blackaho.misc.datagencli;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Encodes rows as JSON Lines (one JSON object per line), e.g., {"id":1,"name":"John"}
+ * Key prefixes ({"key": and ,"key":) are encoded once, strings are escaped with a lookup table for ASCII chars.
+ * Longs and doubles are written as JSON numbers (NaN and infinities as null), other values as JSON strings.
+ */
+public class JsonLinesEncoder implements OutputEncoder {
+
+  // escape sequence for each ASCII char, or null if char doesn't need escaping
+  protected static final byte[][] ESCAPES = new byte[128][];
+  static {
+    for (int c = 0; c < 0x20; c++) {
+      ESCAPES[c] = String.format("\\u%04x", c).getBytes(StandardCharsets.US_ASCII);
+    }
+    ESCAPES['"'] = "\\\"".getBytes(StandardCharsets.US_ASCII);
+    ESCAPES['\\'] = "\\\\".getBytes(StandardCharsets.US_ASCII);
+    ESCAPES['\n'] = "\\n".getBytes(StandardCharsets.US_ASCII);
+    ESCAPES['\r'] = "\\r".getBytes(StandardCharsets.US_ASCII);
+    ESCAPES['\t'] = "\\t".getBytes(StandardCharsets.US_ASCII);
+    ESCAPES['\b'] = "\\b".getBytes(StandardCharsets.US_ASCII);
+    ESCAPES['\f'] = "\\f".getBytes(StandardCharsets.US_ASCII);
+  }
+  protected static final byte[] NULL = "null".getBytes(StandardCharsets.US_ASCII);
+  protected static final byte[] TRUE = "true".getBytes(StandardCharsets.US_ASCII);
+  protected static final byte[] FALSE = "false".getBytes(StandardCharsets.US_ASCII);
+
+  // encoded {"key1": ,"key2": ... prefixes
+  protected final byte[][] keyPrefixes;
+
+  /**
+   * @param keys - JSON keys, one for each field
+   */
+  public JsonLinesEncoder(List<String> keys) {
+    keyPrefixes = new byte[keys.size()][];
+    for (int i = 0; i < keys.size(); i++) {
+      OutputBuffer prefix = new OutputBuffer(keys.get(i).length() + 8);
+      prefix.write((byte) (i == 0 ? '{' : ','));
+      writeString(keys.get(i), prefix);
+      prefix.write((byte) ':');
+      keyPrefixes[i] = prefix.toByteArray();
+    }
+  }
+
+  @Override
+  public byte[] encodeHeader() {
+    return null;
+  }
+
+  @Override
+  public void encodeRow(long rowNumber, List values, OutputBuffer buffer) {
+    for (int i = 0; i < keyPrefixes.length; i++) {
+      buffer.write(keyPrefixes[i]);
+      writeValue(i < values.size() ? values.get(i) : null, buffer);
+    }
+    if (keyPrefixes.length == 0) {
+      buffer.write((byte) '{');
+    }
+    buffer.write((byte) '}');
+    buffer.write((byte) '\n');
+  }
+
+  protected static void writeValue(Object value, OutputBuffer buffer) {
+    if (value == null) {
+      buffer.write(NULL);
+    } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      buffer.writeLong(((Number) value).longValue());
+    } else if (value instanceof Double || value instanceof Float) {
+      double doubleValue = ((Number) value).doubleValue();
+      if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)) {
+        buffer.write(NULL);
+      } else {
+        buffer.writeUtf8(value.toString());
+      }
+    } else if (value instanceof Boolean) {
+      buffer.write((Boolean) value ? TRUE : FALSE);
+    } else {
+      writeString(value.toString(), buffer);
+    }
+  }
+
+  /**
+   * Writes a quoted and escaped JSON string
+   */
+  protected static void writeString(String value, OutputBuffer buffer) {
+    int length = value.length();
+    buffer.ensureCapacity(length * 6 + 2); // worst case, all chars escaped as \\uXXXX
+    byte[] bytes = buffer.bytes;
+    int size = buffer.size;
+    bytes[size++] = '"';
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        byte[] escape = ESCAPES[c];
+        if (escape == null) {
+          bytes[size++] = (byte) c;
+        } else {
+          System.arraycopy(escape, 0, bytes, size, escape.length);
+          size += escape.length;
+        }
+      } else {
+        buffer.size = size;
+        i = buffer.writeNonAsciiChar(value, i);
+        size = buffer.size;
+      }
+    }
+    bytes[size++] = '"';
+    buffer.size = size;
+  }
+
+}
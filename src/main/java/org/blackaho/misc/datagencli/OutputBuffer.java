@@ -0,0 +1,162 @@
+package org.blackaho.misc.datagencli;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer, used by output encoders (see OutputEncoder) to write rows directly as bytes (UTF-8),
+ * without creating intermediate strings for each row.
+ * Not thread safe, each thread should use its own buffer.
+ */
+public class OutputBuffer {
+
+  protected static final int DEFAULT_CAPACITY = 1 << 16;
+
+  protected byte[] bytes;
+  protected int size = 0;
+  // scratch area for long to digits conversion
+  private final byte[] digits = new byte[20];
+
+  public OutputBuffer() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  public OutputBuffer(int capacity) {
+    this.bytes = new byte[Math.max(16, capacity)];
+  }
+
+  protected void ensureCapacity(int additionalBytes) {
+    if (size + additionalBytes > bytes.length) {
+      bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + additionalBytes));
+    }
+  }
+
+  public OutputBuffer write(byte b) {
+    ensureCapacity(1);
+    bytes[size++] = b;
+    return this;
+  }
+
+  public OutputBuffer write(byte[] b) {
+    return write(b, 0, b.length);
+  }
+
+  public OutputBuffer write(byte[] b, int offset, int length) {
+    ensureCapacity(length);
+    System.arraycopy(b, offset, bytes, size, length);
+    size += length;
+    return this;
+  }
+
+  /**
+   * Writes a long in decimal, without creating a string
+   */
+  public OutputBuffer writeLong(long value) {
+    if (value == Long.MIN_VALUE) {
+      return writeUtf8(Long.toString(value));
+    }
+    ensureCapacity(20);
+    if (value < 0) {
+      bytes[size++] = '-';
+      value = -value;
+    }
+    int pos = digits.length;
+    do {
+      digits[--pos] = (byte) ('0' + (value % 10));
+      value /= 10;
+    } while (value != 0);
+    System.arraycopy(digits, pos, bytes, size, digits.length - pos);
+    size += digits.length - pos;
+    return this;
+  }
+
+  /**
+   * Writes chars encoded as UTF-8 (unpaired surrogates are written as '?', as String.getBytes() does)
+   */
+  public OutputBuffer writeUtf8(CharSequence chars) {
+    int length = chars.length();
+    ensureCapacity(length * 3);
+    for (int i = 0; i < length; i++) {
+      char c = chars.charAt(i);
+      if (c < 0x80) {
+        bytes[size++] = (byte) c;
+      } else {
+        i = writeNonAsciiChar(chars, i);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Writes length chars from offset, encoded as UTF-8 (see writeUtf8(CharSequence))
+   */
+  public OutputBuffer writeUtf8(char[] chars, int offset, int length) {
+    ensureCapacity(length * 3);
+    int end = offset + length;
+    for (int i = offset; i < end; i++) {
+      char c = chars[i];
+      if (c < 0x80) {
+        bytes[size++] = (byte) c;
+      } else {
+        i = writeNonAsciiChar(CharBuffer.wrap(chars, 0, end), i);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Writes a non ASCII char (or surrogate pair) as UTF-8. Caller must make sure there's capacity for 3 bytes per char.
+   * @return index of last char written (i+1 for a surrogate pair)
+   */
+  protected int writeNonAsciiChar(CharSequence chars, int i) {
+    char c = chars.charAt(i);
+    if (c < 0x800) {
+      bytes[size++] = (byte) (0xC0 | (c >> 6));
+      bytes[size++] = (byte) (0x80 | (c & 0x3F));
+    } else if (Character.isHighSurrogate(c) && i + 1 < chars.length() && Character.isLowSurrogate(chars.charAt(i + 1))) {
+      int codePoint = Character.toCodePoint(c, chars.charAt(++i));
+      bytes[size++] = (byte) (0xF0 | (codePoint >> 18));
+      bytes[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+      bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+      bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+    } else if (Character.isSurrogate(c)) {
+      bytes[size++] = '?';
+    } else {
+      bytes[size++] = (byte) (0xE0 | (c >> 12));
+      bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+      bytes[size++] = (byte) (0x80 | (c & 0x3F));
+    }
+    return i;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public OutputBuffer reset() {
+    size = 0;
+    return this;
+  }
+
+  public byte[] toByteArray() {
+    return Arrays.copyOf(bytes, size);
+  }
+
+  /**
+   * Concatenates buffers (e.g., encoded by different threads) in a single byte array
+   */
+  public static byte[] concat(Iterable<OutputBuffer> buffers) {
+    int totalSize = 0;
+    for (OutputBuffer buffer : buffers) {
+      totalSize += buffer.size;
+    }
+    byte[] result = new byte[totalSize];
+    int pos = 0;
+    for (OutputBuffer buffer : buffers) {
+      System.arraycopy(buffer.bytes, 0, result, pos, buffer.size);
+      pos += buffer.size;
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,49 @@
+package org.blackaho.misc.datagencli;
+
+import java.util.List;
+
+/**
+ * Encodes generated rows (values from RowGenerator.generateRow()) in an output format, e.g., JSON Lines.
+ * Encoders write directly to an OutputBuffer and must be thread safe (e.g., each thread uses its own buffer).
+ */
+public interface OutputEncoder {
+
+  /**
+   * Encodes the header (written before first row)
+   * @return header bytes (including end of line), or null if format has no header
+   */
+  byte[] encodeHeader();
+
+  /**
+   * Encodes the trailer, written after last row of each output (e.g., end of binary formats)
+   * @return trailer bytes, or null if format has no trailer
+   */
+  default byte[] encodeTrailer() {
+    return null;
+  }
+
+  /**
+   * @return true if header must be written on every output (e.g., each --worker output), not only on the one
+   *         starting at row 1. Used by formats whose outputs can't be concatenated (e.g., binary formats).
+   */
+  default boolean isHeaderOnEveryOutput() {
+    return false;
+  }
+
+  /**
+   * Sets range of rows of this output, before encoding rows (for formats grouping rows, e.g., in batches)
+   * @param firstRow - first row number of output
+   * @param lastRow - last row number of output
+   */
+  default void setRowRange(long firstRow, long lastRow) {
+  }
+
+  /**
+   * Encodes a row, including end of line
+   * @param rowNumber - row number
+   * @param values - row values
+   * @param buffer - buffer to write encoded row
+   */
+  void encodeRow(long rowNumber, List values, OutputBuffer buffer);
+
+}
@@ -0,0 +1,294 @@
+package org.blackaho.misc.datagencli;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Generates chunks of rows in parallel on an executor (its own thread pool, or one passed by an embedding caller):
+ * each chunk is split in slices (a few per thread), each slice is encoded by a task in its own buffer, and buffers
+ * are concatenated in row number order.
+ *
+ * Chunk size adapts to the measured cost of rows (see nextChunkSize()): slices take about TARGET_SLICE_NANOS, so cheap
+ * rows (e.g., numbers) get large chunks and expensive rows (e.g., Faker text) small ones, keeping threads busy without
+ * scheduling a task per few rows, nor waiting too long for a chunk to be written.
+ *
+ * With generateChunkOutputs(), each row is generated once and encoded to several outputs (e.g., one per output
+ * format), each slice encoding its rows to all of them, so outputs are encoded in parallel as any other chunk.
+ *
+ * With generateChunks(), each thread generates whole chunks and writes them itself (e.g., on its region of the
+ * output file, see ParallelFileWriter), so writing isn't done by a single thread.
+ */
+public class ParallelChunkGenerator implements AutoCloseable {
+
+  static final int INITIAL_CHUNK_SIZE_IN_ROWS = 10000;
+  static final int MAX_CHUNK_SIZE_IN_ROWS = 1 << 20;
+  static final long MAX_CHUNK_SIZE_IN_BYTES = 16L << 20;
+  static final long TARGET_SLICE_NANOS = 2000000L;
+  static final int SLICES_PER_THREAD = 4;
+
+  /**
+   * Encodes a row (e.g., a CSV line or an OutputEncoder row) to a buffer
+   */
+  public interface RowEncoder {
+    void encodeRow(long rowNumber, OutputBuffer buffer);
+  }
+
+  /**
+   * Encodes a row to several outputs (e.g., a row generated once, encoded in each output format), a buffer per output
+   */
+  public interface MultiRowEncoder {
+    void encodeRow(long rowNumber, OutputBuffer[] buffers);
+  }
+
+  /**
+   * Writes a chunk generated by generateChunks(), on the thread that generated it (so chunks are written in parallel)
+   */
+  public interface ChunkWriter {
+    /**
+     * @param sequence - number of chunk, in row number order (0 for chunk with first row)
+     * @param chunk - encoded rows of chunk
+     */
+    void writeChunk(long sequence, OutputBuffer chunk) throws IOException;
+
+    /**
+     * Called when a chunk couldn't be generated, so writers waiting for it (e.g., for its length) give up
+     */
+    default void abort() {
+    }
+  }
+
+  protected final ExecutorService executor;
+  protected final boolean ownsExecutor;
+  protected final int threads;
+  // measured cost of rows (average of previous chunks), 0 until first chunk is generated
+  protected double nanosPerRow = 0.0;
+  protected double bytesPerRow = 0.0;
+
+  /**
+   * Creates a generator with its own thread pool (shut down by close())
+   * @param threads - number of threads, or 0 for number of available processors
+   */
+  public ParallelChunkGenerator(int threads) {
+    this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    this.executor = this.threads > 1 ? Executors.newFixedThreadPool(this.threads, createThreadFactory()) : null;
+    this.ownsExecutor = true;
+  }
+
+  /**
+   * Creates a generator running on an executor owned by caller (not shut down by close())
+   * @param executor - executor where slices are encoded
+   * @param threads - number of slices to run at the same time (usually, threads of executor)
+   */
+  public ParallelChunkGenerator(ExecutorService executor, int threads) {
+    this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    this.executor = executor;
+    this.ownsExecutor = false;
+  }
+
+  /**
+   * Daemon threads, so an embedding caller that doesn't close the generator doesn't keep its JVM running
+   */
+  protected static ThreadFactory createThreadFactory() {
+    AtomicInteger threadNumber = new AtomicInteger(0);
+    return runnable -> {
+      Thread thread = new Thread(runnable, "datagen-" + threadNumber.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Number of rows for next chunk, so each slice takes about TARGET_SLICE_NANOS (with the cost per row measured on
+   * previous chunks), limited to MAX_CHUNK_SIZE_IN_ROWS rows and MAX_CHUNK_SIZE_IN_BYTES bytes.
+   */
+  public synchronized int nextChunkSize() {
+    if (nanosPerRow <= 0.0) {
+      return INITIAL_CHUNK_SIZE_IN_ROWS;
+    }
+    double sliceRows = Math.max(1.0, TARGET_SLICE_NANOS / nanosPerRow);
+    double chunkRows = sliceRows * threads * SLICES_PER_THREAD;
+    if (bytesPerRow > 0.0) {
+      chunkRows = Math.min(chunkRows, MAX_CHUNK_SIZE_IN_BYTES / bytesPerRow);
+    }
+    return (int) Math.max(1.0, Math.min(chunkRows, MAX_CHUNK_SIZE_IN_ROWS));
+  }
+
+  /**
+   * Encodes rows from chunkStart to chunkEnd (inclusive), in parallel, and updates the measured cost per row
+   * @return encoded rows, in row number order
+   */
+  public byte[] generateChunk(long chunkStart, long chunkEnd, RowEncoder rowEncoder) {
+    return generateChunkOutputs(chunkStart, chunkEnd, 1, (rowNum, buffers) -> rowEncoder.encodeRow(rowNum, buffers[0]))[0];
+  }
+
+  /**
+   * Encodes rows from chunkStart to chunkEnd (inclusive) to several outputs, in parallel: each row is generated once
+   * (by rowEncoder) and encoded to all outputs, on the thread of its slice. Chunk size limits (see nextChunkSize())
+   * apply to the bytes of all outputs.
+   * @param outputs - number of outputs (buffers passed to rowEncoder)
+   * @return encoded rows of each output, in row number order
+   */
+  public byte[][] generateChunkOutputs(long chunkStart, long chunkEnd, int outputs, MultiRowEncoder rowEncoder) {
+    long rows = chunkEnd - chunkStart + 1L;
+    int slices = (int) Math.min(rows, executor != null ? (long) threads * SLICES_PER_THREAD : 1L);
+    long[] sliceNanos = new long[slices];
+    List<OutputBuffer[]> sliceBuffers = new ArrayList<>(slices);
+    if (slices == 1) {
+      sliceBuffers.add(encodeSlice(chunkStart, chunkEnd + 1L, outputs, rowEncoder, sliceNanos, 0));
+    } else {
+      List<Future<OutputBuffer[]>> futures = new ArrayList<>(slices);
+      for (int slice = 0; slice < slices; slice++) {
+        final int sliceIndex = slice;
+        long sliceStart = chunkStart + rows * slice / slices;
+        long sliceEnd = chunkStart + rows * (slice + 1) / slices;
+        futures.add(executor.submit(() -> encodeSlice(sliceStart, sliceEnd, outputs, rowEncoder, sliceNanos, sliceIndex)));
+      }
+      for (Future<OutputBuffer[]> future : futures) {
+        sliceBuffers.add(getResult(future));
+      }
+    }
+    byte[][] chunks = new byte[outputs][];
+    long totalBytes = 0L;
+    for (int output = 0; output < outputs; output++) {
+      List<OutputBuffer> buffers = new ArrayList<>(slices);
+      for (OutputBuffer[] buffersOfSlice : sliceBuffers) {
+        buffers.add(buffersOfSlice[output]);
+      }
+      chunks[output] = OutputBuffer.concat(buffers);
+      totalBytes += chunks[output].length;
+    }
+    long totalNanos = 0L;
+    for (long nanos : sliceNanos) {
+      totalNanos += nanos;
+    }
+    updateCost((double) totalNanos / rows, (double) totalBytes / rows);
+    return chunks;
+  }
+
+  /**
+   * Generates rows from firstRow to lastRow (inclusive) in chunks, each chunk generated by a thread and passed to
+   * chunkWriter on that thread, so chunks are generated and written in parallel (and may be written out of order,
+   * chunkWriter gets their sequence number). Chunks are about SLICES_PER_THREAD slices (see nextChunkSize()).
+   * @throws IOException if chunkWriter fails (remaining chunks aren't generated)
+   */
+  public void generateChunks(long firstRow, long lastRow, RowEncoder rowEncoder, ChunkWriter chunkWriter)
+      throws IOException {
+    long[] next = new long[] {firstRow, 0L};  // next row and next chunk sequence
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Runnable task = () -> {
+      try {
+        while (failure.get() == null) {
+          long chunkStart;
+          long chunkEnd;
+          long sequence;
+          synchronized (next) {
+            if (next[0] > lastRow) {
+              return;
+            }
+            chunkStart = next[0];
+            chunkEnd = Math.min(chunkStart + Math.max(1, nextChunkSize() / threads) - 1L, lastRow);
+            sequence = next[1]++;
+            next[0] = chunkEnd + 1L;
+          }
+          long rows = chunkEnd - chunkStart + 1L;
+          long[] nanos = new long[1];
+          OutputBuffer chunk = encodeSlice(chunkStart, chunkEnd + 1L, 1,
+              (rowNum, buffers) -> rowEncoder.encodeRow(rowNum, buffers[0]), nanos, 0)[0];
+          updateCost((double) nanos[0] / rows, (double) chunk.size() / rows);
+          chunkWriter.writeChunk(sequence, chunk);
+        }
+      } catch (IOException | RuntimeException | Error ex) {
+        if (failure.compareAndSet(null, ex)) {
+          chunkWriter.abort();
+        }
+      }
+    };
+    if (executor == null) {
+      task.run();
+    } else {
+      List<Future<?>> futures = new ArrayList<>(threads);
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(task));
+      }
+      for (Future<?> future : futures) {
+        getResult(future);
+      }
+    }
+    Throwable ex = failure.get();
+    if (ex instanceof IOException) {
+      throw (IOException) ex;
+    } else if (ex instanceof RuntimeException) {
+      throw (RuntimeException) ex;
+    } else if (ex instanceof Error) {
+      throw (Error) ex;
+    }
+  }
+
+  /**
+   * Encodes rows from sliceStart (inclusive) to sliceEnd (exclusive) to outputs buffers, recording its time on
+   * sliceNanos[slice]
+   */
+  protected static OutputBuffer[] encodeSlice(long sliceStart, long sliceEnd, int outputs, MultiRowEncoder rowEncoder,
+                                              long[] sliceNanos, int slice) {
+    long startNanos = System.nanoTime();
+    OutputBuffer[] buffers = new OutputBuffer[outputs];
+    for (int output = 0; output < outputs; output++) {
+      buffers[output] = new OutputBuffer();
+    }
+    for (long rowNum = sliceStart; rowNum < sliceEnd; rowNum++) {
+      rowEncoder.encodeRow(rowNum, buffers);
+    }
+    sliceNanos[slice] = System.nanoTime() - startNanos;
+    return buffers;
+  }
+
+  /**
+   * Moving average of cost per row, so chunk size follows changes in cost (e.g., JIT warm up) without jumping around
+   */
+  protected synchronized void updateCost(double chunkNanosPerRow, double chunkBytesPerRow) {
+    nanosPerRow = nanosPerRow <= 0.0 ? chunkNanosPerRow : (nanosPerRow + chunkNanosPerRow) / 2.0;
+    bytesPerRow = bytesPerRow <= 0.0 ? chunkBytesPerRow : (bytesPerRow + chunkBytesPerRow) / 2.0;
+  }
+
+  /**
+   * Waits for a slice, rethrowing its exception (as it would be thrown generating rows in calling thread)
+   */
+  protected static <T> T getResult(Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while generating rows", ex);
+    } catch (ExecutionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      } else if (ex.getCause() instanceof Error) {
+        throw (Error) ex.getCause();
+      }
+      throw new IllegalStateException("Error generating rows", ex.getCause());
+    }
+  }
+
+  /**
+   * Shuts down thread pool, if owned by this generator
+   */
+  @Override
+  public void close() {
+    if (ownsExecutor && executor != null) {
+      executor.shutdown();
+    }
+  }
+
+}
@@ -0,0 +1,115 @@
+package org.blackaho.misc.datagencli;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes chunks to a file in parallel (see ParallelChunkGenerator.generateChunks()): each chunk reserves its region
+ * of the file from an ordered offset allocator (chunk n is placed right after chunk n-1, so rows are in the same order
+ * as a sequential write), then is written to that region with a positional write, at the same time as other chunks.
+ * Only the reservation waits for previous chunks (for their length), not for them to be written.
+ *
+ * File can be preallocated (e.g., to the expected output size), and is truncated to the length written on close().
+ */
+public class ParallelFileWriter implements ParallelChunkGenerator.ChunkWriter, Closeable {
+
+  protected final RandomAccessFile file;
+  protected final FileChannel channel;
+  // ordered offset allocator: sequence of next chunk to reserve its region, and where it starts
+  protected long nextSequence = 0L;
+  protected long nextOffset = 0L;
+  protected boolean aborted = false;
+
+  /**
+   * Creates (or overwrites) file
+   * @param outputFile - file to write
+   * @param preallocateBytes - initial size of file (0 for none)
+   */
+  public ParallelFileWriter(File outputFile, long preallocateBytes) throws IOException {
+    this.file = new RandomAccessFile(outputFile, "rw");
+    this.file.setLength(preallocateBytes);
+    this.channel = file.getChannel();
+  }
+
+  /**
+   * Reserves the file region of a chunk, waiting for all chunks before it (lower sequence) to reserve theirs
+   * @param sequence - chunk number, in row order (starting at 0)
+   * @param length - number of bytes of chunk
+   * @return offset of region
+   * @throws IOException if interrupted, or writing was aborted (a chunk before it won't be written)
+   */
+  public synchronized long reserve(long sequence, int length) throws IOException {
+    while (sequence != nextSequence && !aborted) {
+      try {
+        wait();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for previous chunks", ex);
+      }
+    }
+    if (aborted) {
+      throw new IOException("Writing aborted, a previous chunk failed");
+    }
+    long offset = nextOffset;
+    nextOffset += length;
+    nextSequence++;
+    notifyAll();
+    return offset;
+  }
+
+  @Override
+  public void writeChunk(long sequence, OutputBuffer chunk) throws IOException {
+    writeFully(chunk.bytes, chunk.size(), reserve(sequence, chunk.size()));
+  }
+
+  @Override
+  public synchronized void abort() {
+    aborted = true;
+    notifyAll();
+  }
+
+  /**
+   * Writes bytes after everything reserved so far (e.g., a header before the first chunk, or a trailer after the
+   * last one), not as a chunk (doesn't take a sequence)
+   */
+  public void append(byte[] bytes) throws IOException {
+    long offset;
+    synchronized (this) {
+      offset = nextOffset;
+      nextOffset += bytes.length;
+    }
+    writeFully(bytes, bytes.length, offset);
+  }
+
+  protected void writeFully(byte[] bytes, int length, long offset) throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, length);
+    long position = offset;
+    while (buffer.hasRemaining()) {
+      position += channel.write(buffer, position);
+    }
+  }
+
+  /**
+   * @return number of bytes reserved (written, once all chunks are written)
+   */
+  public synchronized long getLength() {
+    return nextOffset;
+  }
+
+  /**
+   * Truncates file to the length written (removing what's left of preallocated size) and closes it
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      file.setLength(getLength());
+    } finally {
+      file.close();
+    }
+  }
+
+}
@@ -0,0 +1,171 @@
+package org.blackaho.misc.datagencli;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Encodes rows in PostgreSQL binary COPY format (COPY table FROM STDIN WITH (FORMAT binary)), so rows are loaded
+ * without parsing text on server. Column types are inferred from a sample of rows (see inferColumnTypes()):
+ * Long as int8 (bigint), Double as float8 (double precision), Instant as timestamptz (or timestamp, in UTC),
+ * LocalDate as date and anything else as text. A column with values of different types (or only nulls) on the sample
+ * is text. Values not matching their column type are written as NULL.
+ * Each output has its own header and trailer (i.e., is a complete COPY file).
+ */
+public class PgCopyEncoder implements OutputEncoder {
+
+  public enum ColumnType { INT8, FLOAT8, TIMESTAMP, DATE, TEXT }
+
+  // PGCOPY\n\377\r\n\0 signature, flags (int32) and header extension length (int32)
+  protected static final byte[] HEADER = new byte[] {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0,
+      0, 0, 0, 0, 0, 0, 0, 0};
+  protected static final byte[] TRAILER = new byte[] {(byte) 0xFF, (byte) 0xFF}; // field count -1
+  // postgres timestamps are microseconds since 2000-01-01 00:00:00 UTC, and dates are days since 2000-01-01
+  protected static final long POSTGRES_EPOCH_SECONDS = 946684800L;
+  protected static final long POSTGRES_EPOCH_DAYS = 10957L;
+
+  protected final ColumnType[] columnTypes;
+
+  /**
+   * @param sampleRow - row used to infer column types
+   */
+  public PgCopyEncoder(List sampleRow) {
+    this(inferColumnTypes(Collections.singletonList(sampleRow), sampleRow.size()));
+  }
+
+  /**
+   * @param columnTypes - column types (see inferColumnTypes())
+   */
+  public PgCopyEncoder(ColumnType[] columnTypes) {
+    this.columnTypes = columnTypes;
+  }
+
+  /**
+   * Infers each column type from its values on a sample of rows: the type of its non null values, if all of them
+   * have the same type, or text otherwise (e.g., a field that is sometimes a number and sometimes a string)
+   * @return column types
+   */
+  public static ColumnType[] inferColumnTypes(List<List> sample, int numberOfColumns) {
+    ColumnType[] columnTypes = new ColumnType[numberOfColumns];
+    for (int i = 0; i < numberOfColumns; i++) {
+      ColumnType columnType = null;
+      for (List row : sample) {
+        Object value = i < row.size() ? row.get(i) : null;
+        ColumnType valueType = value != null ? getColumnType(value) : null;
+        if (valueType != null && columnType != null && valueType != columnType) {
+          columnType = ColumnType.TEXT;
+          break;
+        }
+        columnType = valueType != null ? valueType : columnType;
+      }
+      columnTypes[i] = columnType != null ? columnType : ColumnType.TEXT;
+    }
+    return columnTypes;
+  }
+
+  protected static ColumnType getColumnType(Object value) {
+    if (value instanceof Long || value instanceof Integer) {
+      return ColumnType.INT8;
+    } else if (value instanceof Double || value instanceof Float) {
+      return ColumnType.FLOAT8;
+    } else if (value instanceof Instant) {
+      return ColumnType.TIMESTAMP;
+    } else if (value instanceof LocalDate) {
+      return ColumnType.DATE;
+    }
+    return ColumnType.TEXT;
+  }
+
+  @Override
+  public byte[] encodeHeader() {
+    return HEADER.clone();
+  }
+
+  @Override
+  public byte[] encodeTrailer() {
+    return TRAILER.clone();
+  }
+
+  @Override
+  public boolean isHeaderOnEveryOutput() {
+    return true;
+  }
+
+  @Override
+  public void encodeRow(long rowNumber, List values, OutputBuffer buffer) {
+    writeShort(buffer, columnTypes.length);
+    for (int i = 0; i < columnTypes.length; i++) {
+      Object value = i < values.size() ? values.get(i) : null;
+      switch (columnTypes[i]) {
+        case INT8:
+          if (value instanceof Long || value instanceof Integer) {
+            writeInt(buffer, 8);
+            writeLong(buffer, ((Number) value).longValue());
+          } else {
+            writeInt(buffer, -1);
+          }
+          break;
+        case FLOAT8:
+          if (value instanceof Double || value instanceof Float) {
+            writeInt(buffer, 8);
+            writeLong(buffer, Double.doubleToLongBits(((Number) value).doubleValue()));
+          } else {
+            writeInt(buffer, -1);
+          }
+          break;
+        case TIMESTAMP:
+          if (value instanceof Instant) {
+            Instant instant = (Instant) value;
+            writeInt(buffer, 8);
+            writeLong(buffer, (instant.getEpochSecond() - POSTGRES_EPOCH_SECONDS) * 1000000L + instant.getNano() / 1000);
+          } else {
+            writeInt(buffer, -1);
+          }
+          break;
+        case DATE:
+          if (value instanceof LocalDate) {
+            writeInt(buffer, 4);
+            writeInt(buffer, (int) (((LocalDate) value).toEpochDay() - POSTGRES_EPOCH_DAYS));
+          } else {
+            writeInt(buffer, -1);
+          }
+          break;
+        default:
+          if (value != null) {
+            // length is only known after encoding: reserve it, encode, then fill it
+            int lengthPos = buffer.size();
+            writeInt(buffer, 0);
+            buffer.writeUtf8(value.toString());
+            int length = buffer.size() - lengthPos - 4;
+            setInt(buffer, lengthPos, length);
+          } else {
+            writeInt(buffer, -1);
+          }
+      }
+    }
+  }
+
+  protected static void writeShort(OutputBuffer buffer, int value) {
+    buffer.write((byte) (value >>> 8)).write((byte) value);
+  }
+
+  protected static void writeInt(OutputBuffer buffer, int value) {
+    buffer.ensureCapacity(4);
+    setInt(buffer, buffer.size, value);
+    buffer.size += 4;
+  }
+
+  protected static void setInt(OutputBuffer buffer, int pos, int value) {
+    buffer.bytes[pos] = (byte) (value >>> 24);
+    buffer.bytes[pos + 1] = (byte) (value >>> 16);
+    buffer.bytes[pos + 2] = (byte) (value >>> 8);
+    buffer.bytes[pos + 3] = (byte) value;
+  }
+
+  protected static void writeLong(OutputBuffer buffer, long value) {
+    writeInt(buffer, (int) (value >>> 32));
+    writeInt(buffer, (int) value);
+  }
+
+}
@@ -43,12 +43,47 @@ public interface RowGenerator {
    */
   RowGenerator setFieldsSeparator(String separator);
 
+  /**
+   * Sets if values are quoted (as in RFC 4180) when generating lines with generateRowLine and generateHeaderLine,
+   * i.e., values with separator, double quotes or line breaks are enclosed in double quotes. Defaults to true.
+   * @param quoting
+   * @return this object, to help on construction
+   */
+  RowGenerator setQuoting(boolean quoting);
+
+  /**
+   * Sets the seed for random values, so generated rows are deterministic: with the same seed, a given row number
+   * always generates the same row, independently of thread, generation order or previously generated rows.
+   * @param seed
+   * @return this object, to help on construction
+   */
+  RowGenerator setSeed(long seed);
+
   /**
    * Generates a row, according to fields definition set with setFieds()
    * @return List of objects (column) values according to fields definition set with setFields()
    */
   List generateRow(Long lineNumber);
 
+  /**
+   * Generates rows from startRow to startRow+count-1 in columnar format (a vector per column, see ColumnBatch),
+   * with the same values as generateRow() for each row (when using a seed). Column types are inferred from row 1.
+   * This default implementation fills the batch from generateRow(), implementations should generate whole columns.
+   * @param startRow - row number of first row
+   * @param count - number of rows
+   * @return batch of rows
+   */
+  default ColumnBatch generateBatch(long startRow, int count) {
+    ColumnBatch batch = new ColumnBatch(ColumnBatch.inferColumnTypes(generateRow(1L)), startRow, count);
+    for (int row = 0; row < count; row++) {
+      List values = generateRow(startRow + row);
+      for (int column = 0; column < values.size(); column++) {
+        batch.setValue(column, row, values.get(column));
+      }
+    }
+    return batch;
+  }
+
   /**
    * Generate a header line, according to header definition set with setHeader()
    * @return
@@ -60,4 +95,12 @@ public interface RowGenerator {
    * @return
    */
   String generateRowLine(Long lineNumber);
+
+  /**
+   * Formats values of a row (from generateRow()) as a line, the same line generateRowLine() returns for that row, so
+   * a row generated once can also be written as a line (e.g., when writing it in several formats)
+   * @param values - values of a row, from generateRow()
+   * @return
+   */
+  String formatRowLine(List values);
 }
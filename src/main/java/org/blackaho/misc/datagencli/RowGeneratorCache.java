@@ -0,0 +1,51 @@
+package org.blackaho.misc.datagencli;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * LRU cache of (already used, i.e., with fields parsed and mapped) row generators, keyed by a signature of their
+ * definition (fields, separator, header...). Used to reuse row generators between requests/tasks in the same JVM.
+ */
+public class RowGeneratorCache {
+
+  static final int DEFAULT_MAX_ENTRIES = 64;
+
+  private final Map<String, RowGenerator> cache;
+
+  public RowGeneratorCache() {
+    this(DEFAULT_MAX_ENTRIES);
+  }
+
+  public RowGeneratorCache(final int maxEntries) {
+    this.cache = new LinkedHashMap<String, RowGenerator>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, RowGenerator> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Get row generator for signature, creating it (with rowGeneratorCreator) if not in cache.
+   * @param signature - signature of row generator definition, e.g., fields, separator, header.
+   * @param rowGeneratorCreator - creates row generator, if not in cache
+   * @return cached row generator
+   */
+  public synchronized RowGenerator get(String signature, Supplier<RowGenerator> rowGeneratorCreator) {
+    RowGenerator rowGenerator = cache.get(signature);
+    if (rowGenerator == null) {
+      rowGenerator = rowGeneratorCreator.get();
+      cache.put(signature, rowGenerator);
+    }
+    return rowGenerator;
+  }
+
+  public synchronized int size() {
+    return cache.size();
+  }
+
+}
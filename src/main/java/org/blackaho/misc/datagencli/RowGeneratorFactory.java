@@ -1,5 +1,7 @@
 package org.blackaho.misc.datagencli;
 
+import com.github.javafaker.Faker;
+
 public class RowGeneratorFactory {
 
   private RowGeneratorFactory() {}
@@ -12,4 +14,8 @@ public class RowGeneratorFactory {
     return new FakerRowGenerator();
   }
 
+  public static RowGenerator createFakerRowGenerator(Faker faker) {
+    return new FakerRowGenerator(faker);
+  }
+
 }
@@ -0,0 +1,62 @@
+package org.blackaho.misc.datagencli;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Compiled (i.e., already parsed) definition of a row generator: fields, header, separator and seed.
+ * It is serializable, so it can be created once (e.g., on spark driver) and shipped to where rows are generated,
+ * where row generators are created from it without parsing fields again. Its signature can be used as key
+ * to cache row generators (see RowGeneratorCache).
+ */
+public class RowGeneratorPlan implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final ArrayList<FakerRowGenerator.FieldSpec> fieldSpecs;
+  private final ArrayList<String> header;
+  private final String separator;
+  private final Long seed;
+  private final String signature;
+
+  protected RowGeneratorPlan(List<FakerRowGenerator.FieldSpec> fieldSpecs, List<String> header, String separator, Long seed) {
+    this.fieldSpecs = new ArrayList<>(fieldSpecs);
+    this.header = header == null ? null : new ArrayList<>(header);
+    this.separator = separator;
+    this.seed = seed;
+    this.signature = "fields=" + fieldSpecs.stream().map(fieldSpec -> fieldSpec.field).collect(Collectors.toList())
+        + "|separator=" + separator + "|header=" + header + "|seed=" + seed;
+  }
+
+  /**
+   * Compiles (parses) fields and creates a plan
+   * @param fields - fields definition (see RowGenerator.setFields())
+   * @param header - header (column names), may be null
+   * @param separator - fields separator
+   * @param seed - seed, or null if not using a seed
+   * @return plan
+   */
+  public static RowGeneratorPlan compile(List<String> fields, List<String> header, String separator, Long seed) {
+    return new RowGeneratorPlan(fields.stream().map(FakerRowGenerator.FieldSpec::parse).collect(Collectors.toList()),
+        header, separator, seed);
+  }
+
+  public String getSignature() {
+    return signature;
+  }
+
+  /**
+   * Creates a row generator from this plan
+   * @return row generator
+   */
+  public RowGenerator createRowGenerator() {
+    RowGenerator rowGenerator = new FakerRowGenerator()
+        .setFieldSpecs(fieldSpecs)
+        .setFieldsSeparator(separator)
+        .setHeader(header);
+    return seed != null ? rowGenerator.setSeed(seed) : rowGenerator;
+  }
+
+}
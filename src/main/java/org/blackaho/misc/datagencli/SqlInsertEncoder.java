@@ -0,0 +1,128 @@
+package org.blackaho.misc.datagencli;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Encodes rows as batched multi-row INSERT statements, e.g.:
+ * <pre>
+ * INSERT INTO "people" ("id","name") VALUES
+ * (1,'John'),
+ * (2,'O''Neil');
+ * </pre>
+ * Batches are aligned on row numbers (a statement for rows 1 to batchSize, batchSize+1 to 2*batchSize, ...), so
+ * output doesn't depend on how rows are split in chunks, and a resumed (--checkpoint) generation continues the same
+ * statements. Numbers are written as SQL numbers, timestamps (Instant) as 'yyyy-MM-dd HH:mm:ss.SSSSSS' (UTC) strings
+ * and anything else as strings, with single quotes doubled. Table and column names are quoted identifiers (with
+ * double quotes doubled), so any column name (e.g., a faker field name, as name.fullName) is valid SQL; table name
+ * must be a plain name, optionally schema qualified (see TABLE_NAME_REGEXP).
+ */
+public class SqlInsertEncoder implements OutputEncoder {
+
+  protected static final DateTimeFormatter TIMESTAMP_FORMATTER =
+      DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS").withZone(ZoneOffset.UTC);
+  protected static final byte[] NULL = "NULL".getBytes(StandardCharsets.US_ASCII);
+  // table or schema.table, each part quoted as identifier
+  protected static final Pattern TABLE_NAME_REGEXP = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*(\\.[A-Za-z_][A-Za-z0-9_$]*)?");
+
+  protected final byte[] insertPrefix;  // INSERT INTO table (columns) VALUES\n
+  protected final int batchSize;
+  protected long firstRow = 1L;
+  protected long lastRow = Long.MAX_VALUE;
+
+  /**
+   * @param table - table name (see isValidTableName())
+   * @param columnNames - column names
+   * @param batchSize - rows per INSERT statement
+   */
+  public SqlInsertEncoder(String table, List<String> columnNames, int batchSize) {
+    if (!isValidTableName(table)) {
+      throw new IllegalArgumentException("Invalid table name: " + table);
+    }
+    String quotedTable = Arrays.stream(table.split("\\.")).map(SqlInsertEncoder::quoteIdentifier)
+        .collect(Collectors.joining("."));
+    String quotedColumns = columnNames.stream().map(SqlInsertEncoder::quoteIdentifier).collect(Collectors.joining(","));
+    this.insertPrefix = ("INSERT INTO " + quotedTable + " (" + quotedColumns + ") VALUES\n")
+        .getBytes(StandardCharsets.UTF_8);
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * @return true if table is a valid table name (a plain name, optionally schema qualified, as schema.table)
+   */
+  public static boolean isValidTableName(String table) {
+    return table != null && TABLE_NAME_REGEXP.matcher(table).matches();
+  }
+
+  /**
+   * @return name as SQL quoted identifier, e.g., name.full"Name becomes "name.full""Name"
+   */
+  protected static String quoteIdentifier(String name) {
+    return '"' + name.replace("\"", "\"\"") + '"';
+  }
+
+  @Override
+  public byte[] encodeHeader() {
+    return null;
+  }
+
+  @Override
+  public void setRowRange(long firstRow, long lastRow) {
+    this.firstRow = firstRow;
+    this.lastRow = lastRow;
+  }
+
+  @Override
+  public void encodeRow(long rowNumber, List values, OutputBuffer buffer) {
+    if (rowNumber == firstRow || (rowNumber - 1L) % batchSize == 0) {
+      buffer.write(insertPrefix);
+    }
+    buffer.write((byte) '(');
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0) {
+        buffer.write((byte) ',');
+      }
+      writeValue(values.get(i), buffer);
+    }
+    buffer.write((byte) ')');
+    buffer.write((byte) (rowNumber == lastRow || rowNumber % batchSize == 0 ? ';' : ','));
+    buffer.write((byte) '\n');
+  }
+
+  protected static void writeValue(Object value, OutputBuffer buffer) {
+    if (value == null) {
+      buffer.write(NULL);
+    } else if (value instanceof Long || value instanceof Integer) {
+      buffer.writeLong(((Number) value).longValue());
+    } else if (value instanceof Double || value instanceof Float) {
+      double doubleValue = ((Number) value).doubleValue();
+      if (Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)) {
+        buffer.write(NULL);
+      } else {
+        buffer.writeUtf8(value.toString());
+      }
+    } else if (value instanceof Instant) {
+      writeString(TIMESTAMP_FORMATTER.format((Instant) value), buffer);
+    } else {
+      writeString(value.toString(), buffer);
+    }
+  }
+
+  protected static void writeString(String value, OutputBuffer buffer) {
+    buffer.write((byte) '\'');
+    int start = 0;
+    for (int quotePos = value.indexOf('\''); quotePos >= 0; quotePos = value.indexOf('\'', quotePos + 1)) {
+      buffer.writeUtf8(value.substring(start, quotePos + 1)).write((byte) '\'');
+      start = quotePos + 1;
+    }
+    buffer.writeUtf8(start == 0 ? value : value.substring(start));
+    buffer.write((byte) '\'');
+  }
+
+}
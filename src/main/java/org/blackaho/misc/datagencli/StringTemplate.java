@@ -0,0 +1,271 @@
+package org.blackaho.misc.datagencli;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+/**
+ * Random string template, compiled once from a Faker style format (bothify, numerify, letterify) or a simple regex,
+ * into a plan of segments: literals and runs of random chars from an alphabet. E.g., AA###??ZR is compiled to
+ * literal "AA", 3 digits, 2 letters and literal "ZR". Values are generated by filling chars directly (no template
+ * scan nor intermediate strings), each random char taking 32 bits of a random long.
+ *
+ * Supported regex syntax (see regexify()): literal chars, escaped chars (\. \- ...), \d, \w, char classes with
+ * ranges ([a-f0-9_]) and quantifiers {n}, {min,max} and ?. Anything else isn't supported (returns null).
+ */
+public class StringTemplate implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  protected static final char[] DIGITS = "0123456789".toCharArray();
+  protected static final char[] LETTERS = "abcdefghijklmnopqrstuvwxyz".toCharArray();
+  protected static final char[] WORD_CHARS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_".toCharArray();
+
+  // segment i is literals[i] (if not null), or between minCounts[i] and maxCounts[i] random chars from alphabets[i]
+  protected final String[] literals;
+  protected final char[][] alphabets;
+  protected final int[] minCounts;
+  protected final int[] maxCounts;
+  protected final int maxLength;
+
+  protected StringTemplate(List<Object> segments, List<int[]> counts) {
+    int n = segments.size();
+    literals = new String[n];
+    alphabets = new char[n][];
+    minCounts = new int[n];
+    maxCounts = new int[n];
+    int length = 0;
+    for (int i = 0; i < n; i++) {
+      if (segments.get(i) instanceof String) {
+        literals[i] = (String) segments.get(i);
+        length += literals[i].length();
+      } else {
+        alphabets[i] = (char[]) segments.get(i);
+        minCounts[i] = counts.get(i)[0];
+        maxCounts[i] = counts.get(i)[1];
+        length += maxCounts[i];
+      }
+    }
+    maxLength = length;
+  }
+
+  /**
+   * Compiles a Faker.bothify() format: # is a random digit and ? a random (lower case) letter
+   */
+  public static StringTemplate bothify(String format) {
+    return compileFormat(format, true, true);
+  }
+
+  /**
+   * Compiles a Faker.numerify() format: # is a random digit
+   */
+  public static StringTemplate numerify(String format) {
+    return compileFormat(format, true, false);
+  }
+
+  /**
+   * Compiles a Faker.letterify() format: ? is a random (lower case) letter
+   */
+  public static StringTemplate letterify(String format) {
+    return compileFormat(format, false, true);
+  }
+
+  protected static StringTemplate compileFormat(String format, boolean digits, boolean letters) {
+    List<Object> segments = new ArrayList<>();
+    List<int[]> counts = new ArrayList<>();
+    int i = 0;
+    while (i < format.length()) {
+      char c = format.charAt(i);
+      int end = i + 1;
+      if ((digits && c == '#') || (letters && c == '?')) {
+        while (end < format.length() && format.charAt(end) == c) {
+          end++;
+        }
+        segments.add(c == '#' ? DIGITS : LETTERS);
+        counts.add(new int[] {end - i, end - i});
+      } else {
+        while (end < format.length() && !(digits && format.charAt(end) == '#') && !(letters && format.charAt(end) == '?')) {
+          end++;
+        }
+        segments.add(format.substring(i, end));
+        counts.add(null);
+      }
+      i = end;
+    }
+    return new StringTemplate(segments, counts);
+  }
+
+  /**
+   * Compiles a simple regex (see class comment)
+   * @return compiled template, or null if regex uses unsupported syntax
+   */
+  public static StringTemplate regexify(String regex) {
+    List<Object> segments = new ArrayList<>();
+    List<int[]> counts = new ArrayList<>();
+    int i = 0;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      char[] alphabet;
+      if (c == '\\') {
+        if (i + 1 >= regex.length()) {
+          return null;
+        }
+        char escaped = regex.charAt(i + 1);
+        if (escaped == 'd') {
+          alphabet = DIGITS;
+        } else if (escaped == 'w') {
+          alphabet = WORD_CHARS;
+        } else if (Character.isLetterOrDigit(escaped)) {
+          return null; // other classes (\s, \D, ...) and back references
+        } else {
+          alphabet = new char[] {escaped};
+        }
+        i += 2;
+      } else if (c == '[') {
+        int end = regex.indexOf(']', i + 1);
+        if (end < 0) {
+          return null;
+        }
+        alphabet = parseCharClass(regex.substring(i + 1, end));
+        if (alphabet == null) {
+          return null;
+        }
+        i = end + 1;
+      } else if ("()|.*+^$]{}?".indexOf(c) >= 0) {
+        return null;
+      } else {
+        alphabet = new char[] {c};
+        i++;
+      }
+      int min = 1;
+      int max = 1;
+      if (i < regex.length() && regex.charAt(i) == '?') {
+        min = 0;
+        i++;
+      } else if (i < regex.length() && regex.charAt(i) == '{') {
+        int end = regex.indexOf('}', i);
+        if (end < 0 || !regex.substring(i + 1, end).matches("\\d{1,4}(,\\d{1,4})?")) {
+          return null;
+        }
+        String[] range = regex.substring(i + 1, end).split(",");
+        min = Integer.parseInt(range[0]);
+        max = range.length > 1 ? Integer.parseInt(range[1]) : min;
+        if (max < min) {
+          return null;
+        }
+        i = end + 1;
+      }
+      if (alphabet.length == 1 && min == max) {
+        // fixed char(s), merged with previous literal
+        StringBuilder literal = new StringBuilder();
+        if (!segments.isEmpty() && segments.get(segments.size() - 1) instanceof String) {
+          literal.append((String) segments.remove(segments.size() - 1));
+          counts.remove(counts.size() - 1);
+        }
+        for (int n = 0; n < min; n++) {
+          literal.append(alphabet[0]);
+        }
+        segments.add(literal.toString());
+        counts.add(null);
+      } else {
+        segments.add(alphabet);
+        counts.add(new int[] {min, max});
+      }
+    }
+    return new StringTemplate(segments, counts);
+  }
+
+  /**
+   * @param charClass - contents of a char class, e.g., a-f0-9_
+   * @return chars of class, or null if unsupported (negated classes, escapes)
+   */
+  protected static char[] parseCharClass(String charClass) {
+    if (charClass.isEmpty() || charClass.charAt(0) == '^' || charClass.indexOf('\\') >= 0 || charClass.contains("[")) {
+      return null;
+    }
+    StringBuilder chars = new StringBuilder();
+    for (int i = 0; i < charClass.length(); i++) {
+      char c = charClass.charAt(i);
+      if (i + 2 < charClass.length() && charClass.charAt(i + 1) == '-') {
+        char last = charClass.charAt(i + 2);
+        if (last < c) {
+          return null;
+        }
+        for (char r = c; r <= last; r++) {
+          chars.append(r);
+        }
+        i += 2;
+      } else {
+        chars.append(c);
+      }
+    }
+    return chars.toString().toCharArray();
+  }
+
+  /**
+   * Generates a random string for this template
+   */
+  public String generate(Random random) {
+    char[] chars = new char[maxLength];
+    int length = fill(chars, random);
+    return new String(chars, 0, length);
+  }
+
+  /**
+   * Generates a random string for this template, appending it directly to line.
+   * Uses random the same way as generate(), so both generate the same string for the same random state.
+   */
+  public void appendTo(StringBuilder line, Random random) {
+    char[] chars = new char[maxLength];
+    line.append(chars, 0, fill(chars, random));
+  }
+
+  /**
+   * Fills chars with a random string for this template
+   * @return length of string
+   */
+  protected int fill(char[] chars, Random random) {
+    int length = 0;
+    long bits = 0L;
+    boolean hasBits = false;  // each random long gives 2 random chars (32 bits each)
+    for (int s = 0; s < literals.length; s++) {
+      if (literals[s] != null) {
+        String literal = literals[s];
+        literal.getChars(0, literal.length(), chars, length);
+        length += literal.length();
+        continue;
+      }
+      char[] alphabet = alphabets[s];
+      int count = minCounts[s];
+      if (maxCounts[s] > count) {
+        count += random.nextInt(maxCounts[s] - count + 1);
+      }
+      for (int i = 0; i < count; i++) {
+        if (!hasBits) {
+          bits = random.nextLong();
+        }
+        // multiply-shift maps 32 random bits to [0, alphabet.length), with negligible bias
+        chars[length++] = alphabet[(int) (((bits & 0xFFFFFFFFL) * alphabet.length) >>> 32)];
+        bits >>>= 32;
+        hasBits = !hasBits;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * @return true if any string generated by this template may contain a char matching predicate
+   */
+  public boolean mayContain(IntPredicate predicate) {
+    for (int s = 0; s < literals.length; s++) {
+      if (literals[s] != null ? literals[s].chars().anyMatch(predicate)
+          : new String(alphabets[s]).chars().anyMatch(predicate)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
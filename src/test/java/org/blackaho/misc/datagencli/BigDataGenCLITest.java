@@ -1,6 +1,8 @@
 package org.blackaho.misc.datagencli;
 
+import org.apache.hadoop.fs.Path;
 import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Row;
 import org.apache.spark.sql.SparkSession;
 import org.apache.spark.sql.types.DataTypes;
 import org.apache.spark.sql.types.StructType;
@@ -73,6 +75,20 @@ public class BigDataGenCLITest {
     assertEquals(5, bigDataGenCLI.coalesce);
   }
 
+  @Test
+  public void testParseOptionsTargetFileMb() {
+    String[] args = new String[] {"--target-file-mb=128"};
+    bigDataGenCLI.parseOptions(args);
+    assertEquals(128.0, bigDataGenCLI.targetFileMbytes, 0.0);
+  }
+
+  @Test
+  public void testParseOptionsAutoRepartition() {
+    String[] args = new String[] {"--auto-repartition=false"};
+    bigDataGenCLI.parseOptions(args);
+    assertFalse(bigDataGenCLI.autoRepartition);
+  }
+
   // test argument checking
   @Test
   public void testCheckArgumentsValidWithNRowsAndFieldsAndOutput() {
@@ -139,6 +155,16 @@ public class BigDataGenCLITest {
   }
 
 
+  @Test
+  public void testCheckArgumentsTargetFileMbWithRepartition() {
+    bigDataGenCLI.fields = Arrays.asList(new String[] {"name.firstName"});
+    bigDataGenCLI.nRows = 10;
+    bigDataGenCLI.outputFilename = "someFile.csv";
+    bigDataGenCLI.targetFileMbytes = 128;
+    bigDataGenCLI.repartition = 10;
+    assertFalse(bigDataGenCLI.checkOptions());
+  }
+
   @Test
   public void testPrepareOutputFile() {
     // must always return false, file handling is done by spark
@@ -231,6 +257,314 @@ public class BigDataGenCLITest {
     assertEquals(1, numPartitions);
   }
 
+  @Test
+  public void testMainWithGenerateRowsAndTargetFileMb() {
+    // Calling SparkSession.builder here so next call to SparkSession.builder().getOrCreate() will use these settings
+    SparkSession.builder().master("local[2]").appName("BigDataGenCLITest").getOrCreate();
+    String outFileName = tmpFolder.getRoot().getAbsolutePath() + "/tmpFile1.csv";
+    String [] args = new String[] {"--rows=40000", "--fields=rowNumber,lorem.sentence","--out="+outFileName,"--target-file-mb=0.5"};
+    bigDataGenCLI.main(args);
+    // each part file must be around 0.5Mb, no more part files than needed
+    File[] partFiles = new File(outFileName).listFiles( (dir, name) -> name.startsWith("part-") );
+    long totalSize = Arrays.stream(partFiles).mapToLong(File::length).sum();
+    assertEquals(Math.round(totalSize / (0.5 * 1024 * 1024)), partFiles.length);
+    for (File partFile : partFiles) {
+      assertTrue(partFile.length() > 0.4 * 1024 * 1024 && partFile.length() < 0.6 * 1024 * 1024);
+    }
+    assertFalse(new File(outFileName + BigDataGenCLI.SIZING_SAMPLE_SUFFIX).exists()); // sample was deleted
+  }
+
+  @Test
+  public void testMainWithGenerateMBytesParquet() {
+    // Calling SparkSession.builder here so next call to SparkSession.builder().getOrCreate() will use these settings
+    SparkSession.builder().master("local[2]").appName("BigDataGenCLITest").getOrCreate();
+    String outFileName = tmpFolder.getRoot().getAbsolutePath() + "/tmpFile1.parquet";
+    String [] args = new String[] {"--mbs=2", "--fields=rowNumber,name.fullName,randomDouble(2:1:1000)","--out="+outFileName,
+        "--format=parquet", "--target-file-mb=1"};
+    bigDataGenCLI.main(args);
+    // --mbs is estimated for parquet (compressed), not for csv
+    File[] partFiles = new File(outFileName).listFiles( (dir, name) -> name.startsWith("part-") );
+    long totalSize = Arrays.stream(partFiles).mapToLong(File::length).sum();
+    assertTrue(totalSize > 1.5 * 1024 * 1024 && totalSize < 2.5 * 1024 * 1024);
+    assertEquals(2, partFiles.length);
+  }
+
+  /**
+   * @return number of files written, and write (generation) time in milisecs
+   */
+  private long[] writePartitionedFiles(long rows, boolean autoRepartition) {
+    SparkSession.builder().master("local[2]").appName("BigDataGenCLITest").getOrCreate();
+    String outFileName = tmpFolder.getRoot().getAbsolutePath() + "/partitioned" + rows + autoRepartition + ".csv";
+    String [] args = new String[] {"--rows=" + rows, "--fields=rowNumber,randomString(#),lorem.word", "--header=id,category,word",
+        "--partitionby=category", "--target-file-mb=0.05", "--out="+outFileName, "--auto-repartition=" + autoRepartition};
+    long start = System.nanoTime();
+    new BigDataGenCLI().main(args);
+    long writeMilisecs = (System.nanoTime() - start) / 1000000L;
+    // check results using spark: all rows and all categories are there
+    SparkSession session = SparkSession.builder().master("local[1]").appName("BigDataGenCLITest").getOrCreate();
+    Dataset ds = session.read().format("csv").option("header","true").load(outFileName);
+    assertEquals(rows, ds.count());
+    assertEquals(rows, ds.select("id").distinct().count());
+    assertEquals(10L, ds.select("category").distinct().count());
+    session.close();
+    File[] partitionDirs = new File(outFileName).listFiles( (dir, name) -> name.startsWith("category=") );
+    long files = Arrays.stream(partitionDirs)
+        .mapToLong( dir -> dir.list( (d, name) -> name.startsWith("part-") ).length )
+        .sum();
+    return new long[] {files, writeMilisecs};
+  }
+
+  @Test
+  public void testMainWithPartitionByAutoRepartition() {
+    // 20000 rows in 0.05Mb files, so a few tasks, writing to 10 partition (category) directories.
+    // A smaller run first, so spark (and JIT) warm-up isn't measured as write time of the first measured run.
+    writePartitionedFiles(2000L, false);
+    long[] repartitioned = writePartitionedFiles(20000L, true);
+    long[] notRepartitioned = writePartitionedFiles(20000L, false);
+    System.out.println("--partitionby files (write ms): " + repartitioned[0] + " (" + repartitioned[1] + ") with "
+        + "--auto-repartition, " + notRepartitioned[0] + " (" + notRepartitioned[1] + ") without it");
+    long numTasks = notRepartitioned[0] / 10;  // without repartition, each task writes to all directories
+    assertTrue(numTasks >= 2);
+    // with repartition (a shuffle by category), all rows of a category are written by a single task, in files of
+    // --target-file-mb, so there are fewer files than tasks times directories
+    assertTrue(repartitioned[0] < notRepartitioned[0]);
+    assertTrue(repartitioned[0] <= 10 + numTasks);
+    assertTrue(repartitioned[1] > 0 && notRepartitioned[1] > 0);
+  }
+
+  private List<Row> readPartitionedRows(boolean autoRepartition) {
+    SparkSession.builder().master("local[2]").appName("BigDataGenCLITest").getOrCreate();
+    String outFileName = tmpFolder.getRoot().getAbsolutePath() + "/partitionedseed" + autoRepartition + ".csv";
+    new BigDataGenCLI().main(new String[] {"--rows=5000", "--fields=rowNumber,randomString(#),lorem.word,sequence(0:3)",
+        "--header=id,category,word,seq", "--partitionby=category", "--seed=11",
+        "--out="+outFileName, "--auto-repartition=" + autoRepartition});
+    SparkSession session = SparkSession.builder().master("local[1]").appName("BigDataGenCLITest").getOrCreate();
+    List<Row> rows = session.read().format("csv").option("header","true").load(outFileName)
+        .select("id", "category", "word", "seq").orderBy("id").collectAsList();
+    session.close();
+    return rows;
+  }
+
+  @Test
+  public void testMainWithPartitionByKeepsGeneratedValues() {
+    // partition column has the value generated for each row, as without automatic repartition
+    List<Row> rows = readPartitionedRows(true);
+    assertEquals(5000, rows.size());
+    assertEquals(rows, readPartitionedRows(false));
+    for (Row row : rows) {
+      assertEquals((Long.parseLong(row.get(0).toString()) - 1L) * 3L, Long.parseLong(row.get(3).toString()));
+    }
+  }
+
+  @Test
+  public void testMainWithSeedReusesExecutorRowGenerators() throws Exception {
+    String fields = "--fields=rowNumber,name.firstName,randomLong(1:1000)";
+    List<String> outputs = new java.util.ArrayList<>();
+    int cachedGenerators = BigDataGenCLI.RowGeneratorFunction.EXECUTOR_ROW_GENERATORS.size();
+    for (int i = 0; i < 2; i++) {
+      SparkSession.builder().master("local[2]").appName("BigDataGenCLITest").getOrCreate();
+      String outFileName = tmpFolder.getRoot().getAbsolutePath() + "/seeded" + i + ".csv";
+      // all tasks of both runs (local executor, same JVM) must reuse same row generator
+      new BigDataGenCLI().main(new String[] {"--rows=2000", fields, "--seed=7", "--coalesce=1", "--out="+outFileName});
+      File[] partFiles = new File(outFileName).listFiles( (dir, name) -> name.startsWith("part-") );
+      outputs.add(new String(java.nio.file.Files.readAllBytes(partFiles[0].toPath()), "UTF-8"));
+    }
+    assertEquals(2000, outputs.get(0).split("\n").length);
+    assertEquals(outputs.get(0), outputs.get(1)); // same seed, same data
+    assertEquals(cachedGenerators + 1, BigDataGenCLI.RowGeneratorFunction.EXECUTOR_ROW_GENERATORS.size());
+  }
+
+  @Test
+  public void testIsDataFile() {
+    Path root = new Path("file:/tmp/out.delta");
+    assertTrue(BigDataGenCLI.isDataFile(new Path(root, "part-00000.parquet"), root));
+    assertTrue(BigDataGenCLI.isDataFile(new Path(root, "country=PT/part-00000.parquet"), root));
+    assertFalse(BigDataGenCLI.isDataFile(new Path(root, "_SUCCESS"), root));
+    assertFalse(BigDataGenCLI.isDataFile(new Path(root, ".part-00000.parquet.crc"), root));
+    assertFalse(BigDataGenCLI.isDataFile(new Path(root, "_delta_log/00000000000000000000.json"), root));
+    assertFalse(BigDataGenCLI.isDataFile(new Path(root, "_delta_log/00000000000000000010.checkpoint.parquet"), root));
+    // output under a hidden directory, and listed files with scheme and authority
+    Path hiddenRoot = new Path("/home/user/.cache/out.parquet");
+    assertTrue(BigDataGenCLI.isDataFile(new Path("file://localhost/home/user/.cache/out.parquet/part-00000.parquet"), hiddenRoot));
+  }
+
+  @Test
+  public void testParseOptionsPushdown() {
+    assertTrue(bigDataGenCLI.pushdown);
+    bigDataGenCLI.parseOptions(new String[] {"--pushdown=false"});
+    assertFalse(bigDataGenCLI.pushdown);
+  }
+
+  @Test
+  public void testMainWithPushdownFields() {
+    SparkSession.builder().master("local[2]").appName("BigDataGenCLITest").getOrCreate();
+    String outFileName = tmpFolder.getRoot().getAbsolutePath() + "/pushdown.parquet";
+    String [] args = new String[] {"--rows=1000", "--fields=randomLong(5:10),name.firstName,rowNumber,sequence(100:10),randomDouble(2:1:3),randomString(##),eventTime(2024-01-01T00:00:00Z:10:0)",
+        "--header=long,name,row,seq,double,str,time", "--format=parquet", "--out="+outFileName};
+    new BigDataGenCLI().main(args);
+    SparkSession session = SparkSession.builder().master("local[1]").appName("BigDataGenCLITest").getOrCreate();
+    Dataset ds = session.read().format("parquet").load(outFileName);
+    // same columns (names, types and order) as without pushdown
+    assertArrayEquals(new String[] {"long","name","row","seq","double","str","time"}, ds.schema().fieldNames());
+    assertEquals(DataTypes.TimestampType, ds.schema().fields()[6].dataType());
+    assertEquals(1000L, ds.filter("unix_timestamp(time) = 1704067200 + floor((row - 1) / 10)").count());
+    assertEquals(DataTypes.LongType, ds.schema().fields()[0].dataType());
+    assertEquals(DataTypes.DoubleType, ds.schema().fields()[4].dataType());
+    assertEquals(1000L, ds.count());
+    assertEquals(1000L, ds.filter("seq = 100 + (row - 1) * 10").count());
+    assertEquals(1000L, ds.filter("long >= 5 and long < 10 and double >= 1 and double <= 3 and length(str) = 2").count());
+    assertEquals(5L, ds.select("long").distinct().count());
+    assertEquals(1000L, ds.filter("length(name) > 0").count());
+    session.close();
+  }
+
+  @Test
+  public void testMainWithMultipleOutputs() {
+    SparkSession.builder().master("local[2]").appName("BigDataGenCLITest").getOrCreate();
+    String parquetFileName = tmpFolder.getRoot().getAbsolutePath() + "/multi.parquet";
+    String csvFileName = tmpFolder.getRoot().getAbsolutePath() + "/multi.csv";
+    // no seed: same rows on both outputs only if they're generated once
+    String [] args = new String[] {"--rows=1000", "--fields=rowNumber,name.firstName,randomLong(1:1000000)",
+        "--header=row,name,value", "--out=" + parquetFileName, "--format=parquet", "--out=" + csvFileName, "--format=csv"};
+    new BigDataGenCLI().main(args);
+    SparkSession session = SparkSession.builder().master("local[1]").appName("BigDataGenCLITest").getOrCreate();
+    Dataset<Row> parquet = session.read().format("parquet").load(parquetFileName);
+    Dataset<Row> csv = session.read().format("csv").option("header", "true").option("inferSchema", "true").load(csvFileName);
+    assertEquals(1000L, parquet.count());
+    assertEquals(1000L, csv.count());
+    assertEquals(0L, parquet.except(csv).count());
+    session.close();
+  }
+
+  @Test
+  public void testMainWithSortBy() {
+    SparkSession.builder().master("local[2]").appName("BigDataGenCLITest").getOrCreate();
+    String outFileName = tmpFolder.getRoot().getAbsolutePath() + "/sorted.csv";
+    String [] args = new String[] {"--rows=1000", "--fields=rowNumber,randomLong(1:1000000)", "--header=row,value",
+        "--sortby=value", "--coalesce=1", "--format=csv", "--out=" + outFileName};
+    new BigDataGenCLI().main(args);
+    SparkSession session = SparkSession.builder().master("local[1]").appName("BigDataGenCLITest").getOrCreate();
+    List<Row> rows = session.read().format("csv").option("header", "true").option("inferSchema", "true")
+        .load(outFileName).collectAsList();
+    assertEquals(1000, rows.size());
+    for (int i = 1; i < rows.size(); i++) {
+      assertTrue(rows.get(i - 1).getInt(1) <= rows.get(i).getInt(1));
+    }
+    session.close();
+  }
+
+  @Test
+  public void testMainWithSortByKeepsRepartition() {
+    SparkSession.builder().master("local[2]").appName("BigDataGenCLITest").getOrCreate();
+    String outFileName = tmpFolder.getRoot().getAbsolutePath() + "/sorted-parts.csv";
+    String [] args = new String[] {"--rows=1000", "--fields=rowNumber,randomLong(1:1000000)", "--header=row,value",
+        "--sortby=value", "--repartition=3", "--format=csv", "--out=" + outFileName};
+    new BigDataGenCLI().main(args);
+    File[] parts = new File(outFileName).listFiles((dir, name) -> name.startsWith("part-") && name.endsWith(".csv"));
+    Arrays.sort(parts);
+    assertEquals(3, parts.length);
+    SparkSession session = SparkSession.builder().master("local[1]").appName("BigDataGenCLITest").getOrCreate();
+    // each file is sorted, and its rows come after the ones of previous file
+    int previousValue = Integer.MIN_VALUE;
+    long count = 0;
+    for (File part : parts) {
+      List<Row> rows = session.read().format("csv").option("header", "true").option("inferSchema", "true")
+          .load(part.getAbsolutePath()).collectAsList();
+      for (Row row : rows) {
+        assertTrue(previousValue <= row.getInt(1));
+        previousValue = row.getInt(1);
+      }
+      count += rows.size();
+    }
+    assertEquals(1000L, count);
+    session.close();
+  }
+
+  @Test
+  public void testMainWithCdcPushdown() {
+    SparkSession.builder().master("local[2]").appName("BigDataGenCLITest").getOrCreate();
+    String outFileName = tmpFolder.getRoot().getAbsolutePath() + "/cdc.parquet";
+    String [] args = new String[] {"--rows=1000", "--cdc=6:3:1:100", "--fields=rowNumber", "--header=row",
+        "--format=parquet", "--out="+outFileName};
+    new BigDataGenCLI().main(args);
+    SparkSession session = SparkSession.builder().master("local[1]").appName("BigDataGenCLITest").getOrCreate();
+    Dataset ds = session.read().format("parquet").load(outFileName);
+    assertArrayEquals(new String[] {"op","key","row"}, ds.schema().fieldNames());
+    assertEquals(DataTypes.LongType, ds.schema().fields()[1].dataType());
+    assertEquals(600L, ds.filter("op = 'c'").count());
+    assertEquals(100L, ds.filter("op = 'd'").count());
+    // inserts get new keys after initial keys, deletes remove oldest keys, updates a key live at that point
+    assertEquals(600L, ds.filter("op = 'c' and key = 100 + floor((row - 1) / 10) * 6 + (row - 1) % 10 + 1").count());
+    assertEquals(100L, ds.filter("op = 'd' and key = floor((row - 1) / 10) + 1").count());
+    assertEquals(300L, ds.filter("op = 'u' and key > floor((row - 1) / 10) and key <= 100 + ceil(row / 10) * 6").count());
+    session.close();
+  }
+
+  @Test
+  public void testMainWithDateAndTimestampFields() {
+    SparkSession.builder().master("local[2]").appName("BigDataGenCLITest").getOrCreate();
+    String outFileName = tmpFolder.getRoot().getAbsolutePath() + "/dates.parquet";
+    String [] args = new String[] {"--rows=1000", "--fields=rowNumber,dateBetween(2000-01-01:2000-01-31),timestampBetween(2024-01-01:2024-01-02T00:00:00Z)",
+        "--header=row,day,ts", "--format=parquet", "--out="+outFileName};
+    new BigDataGenCLI().main(args);
+    SparkSession session = SparkSession.builder().master("local[1]").appName("BigDataGenCLITest").getOrCreate();
+    Dataset ds = session.read().format("parquet").load(outFileName);
+    assertEquals(DataTypes.DateType, ds.schema().fields()[1].dataType());
+    assertEquals(DataTypes.TimestampType, ds.schema().fields()[2].dataType());
+    assertEquals(1000L, ds.filter("day >= '2000-01-01' and day <= '2000-01-31'").count());
+    assertEquals(1000L, ds.filter("unix_timestamp(ts) >= 1704067200 and unix_timestamp(ts) <= 1704153600").count());
+    assertEquals(31L, ds.select("day").distinct().count());
+    session.close();
+  }
+
+  @Test
+  public void testParseOptionsStreaming() {
+    String[] args = new String[] {"--streaming", "--rows-per-second=500", "--num-partitions=3"};
+    bigDataGenCLI.parseOptions(args);
+    assertTrue(bigDataGenCLI.streaming);
+    assertEquals(500L, bigDataGenCLI.rowsPerSecond);
+    assertEquals(3, bigDataGenCLI.streamingPartitions);
+  }
+
+  @Test
+  public void testCheckOptionsStreamingWithoutCheckpoint() {
+    String[] args = new String[] {"--rows=10", "--fields=rowNumber", "--out=out.parquet", "--streaming"};
+    bigDataGenCLI.parseOptions(args);
+    assertFalse(bigDataGenCLI.checkOptions());
+    bigDataGenCLI.parseOptions(new String[] {"--checkpoint=checkpoint"});
+    assertTrue(bigDataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testParseStreamingOffset() {
+    assertEquals(0L, BigDataGenCLI.parseStreamingOffset(null));
+    assertEquals(12L, BigDataGenCLI.parseStreamingOffset(" 12 "));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testParseStreamingOffsetInvalid() {
+    BigDataGenCLI.parseStreamingOffset("{\"logOffset\":3}");
+  }
+
+  @Test
+  public void testMainWithStreaming() {
+    String outFileName = tmpFolder.getRoot().getAbsolutePath() + "/streaming.parquet";
+    String checkpoint = tmpFolder.getRoot().getAbsolutePath() + "/streaming.checkpoint";
+    String [] args = new String[] {"--rows=400", "--fields=rowNumber,name.firstName", "--header=id,name", "--streaming",
+        "--rows-per-second=200", "--format=parquet", "--checkpoint=" + checkpoint, "--out="+outFileName};
+    // running again with same checkpoint continues from last committed offset: no row is written twice
+    for (int i = 0; i < 2; i++) {
+      SparkSession.builder().master("local[2]").appName("BigDataGenCLITest").getOrCreate();
+      new BigDataGenCLI().main(args);
+    }
+    SparkSession session = SparkSession.builder().master("local[1]").appName("BigDataGenCLITest").getOrCreate();
+    Dataset ds = session.read().format("parquet").load(outFileName);
+    assertEquals(400L, ds.count());
+    assertEquals(400L, ds.select("id").distinct().count());
+    assertEquals(400L, ds.filter("id >= 1 and id <= 400").count());
+    session.close();
+  }
+
   @Test
   public void testMainWithGenerateRowsAndRepartition() {
     // Calling SparkSession.builder here so next call to SparkSession.builder().getOrCreate() will use these settings
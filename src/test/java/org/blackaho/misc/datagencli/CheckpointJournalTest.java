@@ -0,0 +1,71 @@
+package org.blackaho.misc.datagencli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Unit tests for CheckpointJournal.
+ */
+public class CheckpointJournalTest {
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void testReadNonExistingJournal() throws Exception {
+    CheckpointJournal journal = new CheckpointJournal(new File(tmpFolder.getRoot(), "none.ckp"));
+    assertFalse(journal.read());
+    assertEquals(1L, journal.getNextRow());
+    assertEquals(0L, journal.getByteOffset());
+  }
+
+  @Test
+  public void testWriteAndReadJournal() throws Exception {
+    File journalFile = new File(tmpFolder.getRoot(), "test.ckp");
+    CheckpointJournal journal = new CheckpointJournal(journalFile);
+    journal.start("fields=[rowNumber]", 1234L);
+    journal.checkpoint(1001L, 5000L);
+    journal.checkpoint(2001L, 10000L);
+    journal.close();
+
+    CheckpointJournal readJournal = new CheckpointJournal(journalFile);
+    assertTrue(readJournal.read());
+    assertEquals("fields=[rowNumber]", readJournal.getSignature());
+    assertEquals(Long.valueOf(1234L), readJournal.getSeed());
+    assertEquals(2001L, readJournal.getNextRow());
+    assertEquals(10000L, readJournal.getByteOffset());
+  }
+
+  @Test
+  public void testReadJournalWithIncompleteLastLine() throws Exception {
+    File journalFile = new File(tmpFolder.getRoot(), "test.ckp");
+    CheckpointJournal journal = new CheckpointJournal(journalFile);
+    journal.start("fields=[rowNumber]", 1L);
+    journal.checkpoint(1001L, 5000L);
+    journal.close();
+    Files.write(journalFile.toPath(), "2001 1".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+    CheckpointJournal readJournal = new CheckpointJournal(journalFile);
+    assertTrue(readJournal.read());
+    assertEquals(1001L, readJournal.getNextRow());
+    assertEquals(5000L, readJournal.getByteOffset());
+    // resuming ends the incomplete line, so next checkpoints are read correctly
+    readJournal.resume();
+    readJournal.checkpoint(3001L, 15000L);
+    readJournal.close();
+    CheckpointJournal resumedJournal = new CheckpointJournal(journalFile);
+    assertTrue(resumedJournal.read());
+    assertEquals(3001L, resumedJournal.getNextRow());
+  }
+
+}
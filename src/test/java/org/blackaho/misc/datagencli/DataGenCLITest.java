@@ -3,6 +3,7 @@ package org.blackaho.misc.datagencli;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.After;
@@ -14,7 +15,15 @@ import org.junit.rules.TemporaryFolder;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Unit tests for DataGenCli.
@@ -125,6 +134,14 @@ public class DataGenCLITest
         assertArrayEquals(expected, dataGenCLI.fields.toArray());
     }
 
+    @Test
+    public void testParseOptionsFieldsWithCommasInsideParentheses() {
+        String[] args = new String[] {"--fields=rowNumber,weighted(a=0.7,b=0.2,c=0.1), zipf(10:1.1),address{city,state}"};
+        dataGenCLI.parseOptions(args);
+        Object[] expected = new String[] {"rowNumber","weighted(a=0.7,b=0.2,c=0.1)","zipf(10:1.1)","address{city,state}.city","address{city,state}.state"};
+        assertArrayEquals(expected, dataGenCLI.fields.toArray());
+    }
+
     @Test
     public void testParseOptionsOutputFileName() {
         String[] args = new String[] {"--out=file1"};
@@ -154,6 +171,130 @@ public class DataGenCLITest
   }
 
 
+  @Test
+  public void testParseOptionsTimings() {
+    String[] args = new String[] {"--timings"};
+    dataGenCLI.parseOptions(args);
+    assertTrue(dataGenCLI.showTimings);
+  }
+
+
+  @Test
+  public void testParseOptionsServer() {
+    String[] args = new String[] {"--server=8080"};
+    dataGenCLI.parseOptions(args);
+    assertEquals(8080, dataGenCLI.serverPort);
+    assertTrue(dataGenCLI.checkOptions());
+  }
+
+
+  @Test
+  public void testParseOptionsSeedAndCheckpoint() {
+    String[] args = new String[] {"--seed=1234", "--checkpoint=file.ckp"};
+    dataGenCLI.parseOptions(args);
+    assertEquals(Long.valueOf(1234L), dataGenCLI.seed);
+    assertEquals("file.ckp", dataGenCLI.checkpointFilename);
+  }
+
+
+  @Test
+  public void testParseOptionsWorker() {
+    String[] args = new String[] {"--worker=2/8"};
+    dataGenCLI.parseOptions(args);
+    assertEquals(2, dataGenCLI.workerNumber);
+    assertEquals(8, dataGenCLI.numberOfWorkers);
+  }
+
+  @Test
+  public void testParseOptionsRowRange() {
+    String[] args = new String[] {"--row-range=1001:2000"};
+    dataGenCLI.parseOptions(args);
+    assertEquals(1001L, dataGenCLI.rowRangeStart);
+    assertEquals(2000L, dataGenCLI.rowRangeEnd);
+  }
+
+  @Test
+  public void testParseOptionsFormatAndWidths() {
+    dataGenCLI.parseOptions(new String[] {"--format=fixed", "--widths=10, 5"});
+    assertEquals("fixed", dataGenCLI.outputFormat);
+    assertEquals(Arrays.asList(10, 5), dataGenCLI.widths);
+  }
+
+  @Test
+  public void testParseOptionsCsvQuoting() {
+    assertTrue(dataGenCLI.csvQuoting);
+    dataGenCLI.parseOptions(new String[] {"--csv-quoting=false"});
+    assertFalse(dataGenCLI.csvQuoting);
+  }
+
+  @Test
+  public void testParseOptionsReplay() {
+    dataGenCLI.parseOptions(new String[] {"--replay=2.5"});
+    assertEquals(2.5, dataGenCLI.replaySpeedup, 0.0);
+  }
+
+  @Test
+  public void testParseOptionsThreads() {
+    dataGenCLI.parseOptions(new String[] {"--threads=3"});
+    assertEquals(3, dataGenCLI.threads);
+  }
+
+  @Test
+  public void testParseOptionsCdc() {
+    dataGenCLI.parseOptions(new String[] {"--cdc=6:3:1:100", "--fields=name.firstName", "--header=name"});
+    assertEquals(Arrays.asList("cdcOp(6:3:1:100)", "cdcKey(6:3:1:100)", "name.firstName"), dataGenCLI.fields);
+    assertEquals(Arrays.asList("op", "key", "name"), dataGenCLI.header);
+    // fields are only added once
+    dataGenCLI.parseOptions(new String[] {"--rows=10"});
+    assertEquals(3, dataGenCLI.fields.size());
+    assertTrue(dataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testParseOptionsMultipleOutputs() {
+    dataGenCLI.parseOptions(new String[] {"--out=a.csv", "--out=b.jsonl", "--out=c.sql", "--format=csv", "--format=jsonl",
+        "--format=sql", "--table=t", "--rows=10", "--fields=rowNumber"});
+    assertEquals("a.csv", dataGenCLI.outputFilename);
+    assertEquals(Arrays.asList("b.jsonl", "c.sql"), dataGenCLI.moreOutputFilenames);
+    assertEquals(Arrays.asList("csv", "jsonl", "sql"), dataGenCLI.getOutputFormats());
+    assertTrue(dataGenCLI.checkOptions());
+    // a single --format is used by all outputs
+    dataGenCLI.parseOptions(new String[] {"--format=jsonl"});
+    assertEquals(Arrays.asList("jsonl", "jsonl", "jsonl"), dataGenCLI.getOutputFormats());
+  }
+
+  @Test
+  public void testCheckOptionsMultipleOutputsWithoutFormatForEach() {
+    dataGenCLI.parseOptions(new String[] {"--out=a.csv", "--out=b.jsonl", "--out=c.csv", "--format=csv", "--format=jsonl",
+        "--rows=10", "--fields=rowNumber"});
+    assertFalse(dataGenCLI.checkOptions());
+    assertTrue(systemErr.toString().contains("ERROR: With several --out"));
+  }
+
+  @Test
+  public void testParseOptionsSortBy() {
+    dataGenCLI.parseOptions(new String[] {"--sortby=name", "--sort-mbs=64", "--fields=rowNumber,name.fullName",
+        "--header=id,name", "--rows=10"});
+    assertEquals("name", dataGenCLI.sortBy);
+    assertEquals(64L, dataGenCLI.sortMbytes);
+    assertTrue(dataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testCheckOptionsSortByUnknownColumn() {
+    dataGenCLI.parseOptions(new String[] {"--sortby=city", "--fields=rowNumber,name.fullName", "--header=id,name", "--rows=10"});
+    assertFalse(dataGenCLI.checkOptions());
+    assertTrue(systemErr.toString().contains("ERROR: Option --sortby"));
+  }
+
+  @Test
+  public void testCheckOptionsInvalidCdc() {
+    dataGenCLI.parseOptions(new String[] {"--cdc=1:1:2", "--fields=name.firstName", "--rows=10"});
+    assertFalse(dataGenCLI.checkOptions());
+    assertTrue(systemErr.toString().contains("ERROR: Option --cdc"));
+  }
+
+
     // test argument logic checking
 
     @Test
@@ -235,6 +376,207 @@ public class DataGenCLITest
     assertFalse(dataGenCLI.checkOptions());
   }
 
+  @Test
+  public void testCheckArgumentsCheckpointWithoutOutput() {
+    dataGenCLI.nRows = 1;
+    dataGenCLI.fields = Arrays.asList(new String[] {"name.firstName"});
+    dataGenCLI.checkpointFilename = "file.ckp";
+    assertFalse(dataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testCheckArgumentsRowRangeWithRows() {
+    dataGenCLI.parseOptions(new String[] {"--row-range=1:10", "--rows=10", "--fields=rowNumber"});
+    assertFalse(dataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testCheckArgumentsRowRangeInvalid() {
+    dataGenCLI.parseOptions(new String[] {"--row-range=10:1", "--fields=rowNumber"});
+    assertFalse(dataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testCheckArgumentsInvalidDistribution() {
+    dataGenCLI.parseOptions(new String[] {"--rows=10", "--fields=rowNumber,weighted(a=0.5,b=-1)"});
+    assertFalse(dataGenCLI.checkOptions());
+    assertTrue(systemErr.toString().contains("weighted(a=0.5,b=-1)"));
+    dataGenCLI = new DataGenCLI();
+    dataGenCLI.parseOptions(new String[] {"--rows=10", "--fields=zipf(100000000:1.1)"});
+    assertFalse(dataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testCheckArgumentsRowRangeFromRowZero() {
+    // first row 0 is an invalid range, not an unset one
+    dataGenCLI.parseOptions(new String[] {"--row-range=0:5", "--fields=rowNumber"});
+    assertFalse(dataGenCLI.checkOptions());
+    dataGenCLI = new DataGenCLI();
+    dataGenCLI.parseOptions(new String[] {"--row-range=0:5", "--rows=5", "--fields=rowNumber"});
+    assertFalse(dataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testFixedWidthsAreTheSameOnEveryWorker() {
+    // without --seed, widths from the sample must still match between workers, or their outputs are misaligned
+    String fields = "--fields=name.firstName,address.streetAddress";
+    DataGenCLI worker1 = new DataGenCLI();
+    worker1.parseOptions(new String[] {"--rows=10", fields, "--format=fixed", "--worker=1/2"});
+    worker1.rowGenerator = worker1.createRowGenerator();
+    DataGenCLI worker2 = new DataGenCLI();
+    worker2.parseOptions(new String[] {"--rows=10", fields, "--format=fixed", "--worker=2/2"});
+    worker2.rowGenerator = worker2.createRowGenerator();
+    FixedWidthEncoder encoder1 = (FixedWidthEncoder) worker1.createOutputEncoder("fixed");
+    FixedWidthEncoder encoder2 = (FixedWidthEncoder) worker2.createOutputEncoder("fixed");
+    assertArrayEquals(encoder1.widths, encoder2.widths);
+    assertEquals(worker1.estimateAverageBytesPerRow(), worker2.estimateAverageBytesPerRow(), 0.0);
+  }
+
+  @Test
+  public void testCheckArgumentsThreadsNegative() {
+    dataGenCLI.parseOptions(new String[] {"--rows=10", "--fields=rowNumber", "--threads=-1"});
+    assertFalse(dataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testGetExpectedOutputBytesOfWorker() {
+    dataGenCLI.parseOptions(new String[] {"--mbs=4", "--fields=rowNumber,randomString(??##)"});
+    dataGenCLI.rowGenerator = dataGenCLI.createRowGenerator();
+    assertEquals(4L * 1024L * 1024L, dataGenCLI.getExpectedOutputBytes());
+    // a worker writes its slice of rows, about 1/n of --mbs, so its file isn't preallocated to the whole dataset
+    dataGenCLI = new DataGenCLI();
+    dataGenCLI.parseOptions(new String[] {"--mbs=4", "--fields=rowNumber,randomString(??##)", "--worker=2/4"});
+    dataGenCLI.rowGenerator = dataGenCLI.createRowGenerator();
+    assertEquals(1024L * 1024L, dataGenCLI.getExpectedOutputBytes(), 1024.0);
+    dataGenCLI = new DataGenCLI();
+    dataGenCLI.parseOptions(new String[] {"--rows=10", "--fields=rowNumber", "--worker=2/4"});
+    assertEquals(0L, dataGenCLI.getExpectedOutputBytes());
+  }
+
+  @Test
+  public void testCheckArgumentsParallelWriteWithoutOutputOrWithCheckpoint() {
+    dataGenCLI.parseOptions(new String[] {"--rows=10", "--fields=rowNumber", "--parallel-write"});
+    assertFalse(dataGenCLI.checkOptions());
+    dataGenCLI.parseOptions(new String[] {"--out=out.csv", "--checkpoint=out.ckp"});
+    assertFalse(dataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testCheckArgumentsCacheDirRequiresSeed() {
+    dataGenCLI.parseOptions(new String[] {"--rows=10", "--fields=rowNumber", "--cache-dir=cache"});
+    assertFalse(dataGenCLI.checkOptions());
+    dataGenCLI.parseOptions(new String[] {"--seed=1"});
+    assertTrue(dataGenCLI.checkOptions());
+    dataGenCLI.parseOptions(new String[] {"--worker=1/2"});
+    assertFalse(dataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testCheckArgumentsBenchmark() {
+    dataGenCLI.parseOptions(new String[] {"--benchmark"});
+    assertEquals("table", dataGenCLI.benchmarkOutput);
+    assertTrue(dataGenCLI.checkOptions());
+    dataGenCLI.parseOptions(new String[] {"--benchmark=xml"});
+    assertFalse(dataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testCheckArgumentsBenchmarkOptionName() {
+    dataGenCLI.parseOptions(new String[] {"--benchmarkx=1", "--rows=10", "--fields=rowNumber"});
+    assertNull(dataGenCLI.benchmarkOutput);
+    dataGenCLI.parseOptions(new String[] {"--benchmark=json"});
+    assertEquals("json", dataGenCLI.benchmarkOutput);
+  }
+
+  @Test
+  public void testCheckArgumentsBenchmarkWithGenerationOptions() {
+    for (String option : new String[] {"--rows=10", "--out=rows.csv", "--worker=1/2", "--row-range=1:5", "--sortby=col0"}) {
+      dataGenCLI = new DataGenCLI();
+      dataGenCLI.parseOptions(new String[] {"--benchmark", option});
+      assertFalse(option, dataGenCLI.checkOptions());
+    }
+    dataGenCLI = new DataGenCLI();
+    dataGenCLI.parseOptions(new String[] {"--benchmark", "--fields=rowNumber", "--threads=2", "--format=jsonl"});
+    assertTrue(dataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testCheckArgumentsWorkerInvalid() {
+    dataGenCLI.parseOptions(new String[] {"--worker=3/2", "--rows=10", "--fields=rowNumber"});
+    assertFalse(dataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testCheckArgumentsReplayWithoutEventTime() {
+    dataGenCLI.parseOptions(new String[] {"--replay=1", "--rows=10", "--fields=rowNumber"});
+    assertFalse(dataGenCLI.checkOptions());
+    dataGenCLI.parseOptions(new String[] {"--fields=rowNumber,eventTime(now:100:0)"});
+    assertTrue(dataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testParseOptionsEventTimeNowIsResolvedOnce() {
+    dataGenCLI.parseOptions(new String[] {"--rows=10", "--fields=rowNumber,eventTime(now:100:0)"});
+    assertTrue(dataGenCLI.fields.get(1).matches("eventTime\\(\\d+:100:0\\)"));
+    assertTrue(dataGenCLI.checkOptions());
+    dataGenCLI = new DataGenCLI();
+    dataGenCLI.parseOptions(new String[] {"--rows=10", "--fields=eventTime(now:100:0)", "--worker=1/2"});
+    assertFalse(dataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testCheckArgumentsEventTimeNowWithRowRange() {
+    // each --row-range process would resolve now to a different instant, so slices wouldn't line up
+    dataGenCLI.parseOptions(new String[] {"--row-range=6:10", "--fields=eventTime(now:100:0)"});
+    assertFalse(dataGenCLI.checkOptions());
+    assertTrue(systemErr.toString().contains("--row-range"));
+    dataGenCLI = new DataGenCLI();
+    dataGenCLI.parseOptions(new String[] {"--row-range=6:10", "--fields=eventTime(2024-01-01:100:0)"});
+    assertTrue(dataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testCheckArgumentsFormatInvalid() {
+    dataGenCLI.parseOptions(new String[] {"--format=parquet", "--rows=10", "--fields=rowNumber"});
+    assertFalse(dataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testCheckArgumentsWidthsForEachField() {
+    dataGenCLI.parseOptions(new String[] {"--format=fixed", "--widths=3", "--rows=10", "--fields=rowNumber,name.firstName"});
+    assertFalse(dataGenCLI.checkOptions());
+    dataGenCLI.parseOptions(new String[] {"--widths=3,10"});
+    assertTrue(dataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testCheckArgumentsSqlFormatRequiresTable() {
+    dataGenCLI.parseOptions(new String[] {"--format=sql", "--rows=10", "--fields=rowNumber"});
+    assertFalse(dataGenCLI.checkOptions());
+    dataGenCLI.parseOptions(new String[] {"--table=people", "--batch-size=0"});
+    assertFalse(dataGenCLI.checkOptions());
+    dataGenCLI.parseOptions(new String[] {"--batch-size=100"});
+    assertTrue(dataGenCLI.checkOptions());
+    dataGenCLI.parseOptions(new String[] {"--table=people (id) VALUES (1); --"});
+    assertFalse(dataGenCLI.checkOptions());
+    dataGenCLI.parseOptions(new String[] {"--table=app.people"});
+    assertTrue(dataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testCheckArgumentsHeaderForEachCompositeFieldPart() {
+    dataGenCLI.parseOptions(new String[] {"--rows=10", "--fields=rowNumber,person{firstName,lastName}", "--header=id,name"});
+    assertFalse(dataGenCLI.checkOptions());
+    dataGenCLI.parseOptions(new String[] {"--header=id,first,last"});
+    assertTrue(dataGenCLI.checkOptions());
+  }
+
+  @Test
+  public void testCheckArgumentsWorkerValid() {
+    dataGenCLI.parseOptions(new String[] {"--worker=2/2", "--rows=10", "--fields=rowNumber"});
+    assertTrue(dataGenCLI.checkOptions());
+  }
+
     // test run method
 
     @Test
@@ -311,6 +653,12 @@ public class DataGenCLITest
         assertTrue(systemOut.size() >= 0);
     }
 
+    @Test
+    public void testMainWithGenerateRowsAndTimings() {
+        dataGenCLI.main(new String[] {"--rows=1","--fields=rowNumber","--timings"} );
+        assertTrue(systemErr.toString().contains("jvm-start-to-first-row="));
+    }
+
     @Test
     public void testMainWithInvalidArguments() {
         dataGenCLI.main(new String[] {} );
@@ -331,6 +679,383 @@ public class DataGenCLITest
         assertTrue( outFile.length() > 0 );
     }
 
+    @Test
+    public void testRunWithRowsCountIsInRowNumberOrder() {
+        dataGenCLI.nRows = 25000;
+        dataGenCLI.fields = Arrays.asList(new String[] {"rowNumber"}) ;
+        dataGenCLI.run();
+        String[] outputLines = systemOut.toString().split("\n");
+        assertEquals(25000, outputLines.length);
+        for (int i = 0; i < outputLines.length; i++) {
+            assertEquals(String.valueOf(i + 1), outputLines[i]);
+        }
+    }
+
+    @Test
+    public void testRunWithSeedIsDeterministic() {
+        String[] args = new String[] {"--rows=100", "--seed=1234", "--fields=rowNumber,name.fullName,randomLong(1:1000)"};
+        dataGenCLI.main(args);
+        String firstRun = systemOut.toString();
+        systemOut.reset();
+        dataGenCLI.main(args);
+        assertEquals(firstRun, systemOut.toString());
+    }
+
+    @Test
+    public void testRunWithThreadsGeneratesSameData() {
+        String fields = "--fields=rowNumber,name.fullName,randomString(??##)";
+        dataGenCLI.main(new String[] {"--rows=30000", "--seed=3", fields, "--threads=1"});
+        String singleThreadOutput = systemOut.toString();
+        systemOut.reset();
+        new DataGenCLI().main(new String[] {"--rows=30000", "--seed=3", fields, "--threads=4"});
+        assertEquals(singleThreadOutput, systemOut.toString());
+    }
+
+    @Test
+    public void testRunWithExecutorOfCaller() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            dataGenCLI.setExecutor(executor).parseOptions(new String[] {"--rows=1000", "--fields=rowNumber"});
+            dataGenCLI.run();
+            dataGenCLI.parseOptions(new String[] {"--format=jsonl"});
+            dataGenCLI.run();
+            assertFalse(executor.isShutdown());
+            String[] outputLines = systemOut.toString().split("\n");
+            assertEquals(2000, outputLines.length);
+            assertEquals("{\"col0\":1000}", outputLines[1999]);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testRunWithParallelWriteSameOutputAsSequentialWrite() throws Exception {
+        String fields = "--fields=rowNumber,name.fullName,randomString(??##)";
+        String expectedFileName = tmpFolder.getRoot().getAbsolutePath() + "/expected.csv";
+        dataGenCLI.main(new String[] {"--rows=45000", "--seed=5", "--header=id,name,code", fields, "--out=" + expectedFileName});
+        String outFileName = tmpFolder.getRoot().getAbsolutePath() + "/out.csv";
+        new DataGenCLI().main(new String[] {"--rows=45000", "--seed=5", "--header=id,name,code", fields,
+            "--out=" + outFileName, "--parallel-write", "--threads=4"});
+        assertArrayEquals(Files.readAllBytes(Paths.get(expectedFileName)), Files.readAllBytes(Paths.get(outFileName)));
+    }
+
+    @Test
+    public void testRunWithMultipleOutputsSameAsSingleOutputs() throws Exception {
+        String[] args = new String[] {"--rows=30000", "--seed=5", "--header=id,name,day",
+            "--fields=rowNumber,name.fullName,dateBetween(2000-01-01:2000-12-31:dd/MM/yyyy)", "--table=people"};
+        String dir = tmpFolder.getRoot().getAbsolutePath();
+        List<String> formats = Arrays.asList("csv", "jsonl", "pgcopy", "sql");
+        List<String> multipleOutputsArgs = new ArrayList<>(Arrays.asList(args));
+        for (String format : formats) {
+            multipleOutputsArgs.add("--out=" + dir + "/all." + format);
+            multipleOutputsArgs.add("--format=" + format);
+            List<String> singleOutputArgs = new ArrayList<>(Arrays.asList(args));
+            singleOutputArgs.add("--out=" + dir + "/single." + format);
+            singleOutputArgs.add("--format=" + format);
+            new DataGenCLI().main(singleOutputArgs.toArray(new String[0]));
+        }
+        dataGenCLI.main(multipleOutputsArgs.toArray(new String[0]));
+        assertEquals("", systemErr.toString());
+        for (String format : formats) {
+            assertArrayEquals(format, Files.readAllBytes(Paths.get(dir + "/single." + format)),
+                Files.readAllBytes(Paths.get(dir + "/all." + format)));
+        }
+    }
+
+    @Test
+    public void testRunWithSortBySpillingToRuns() throws Exception {
+        String dir = tmpFolder.getRoot().getAbsolutePath();
+        String[] args = new String[] {"--rows=40000", "--seed=5", "--header=id,name,code",
+            "--fields=rowNumber,name.fullName,randomString(??##)"};
+        List<String> unsortedArgs = new ArrayList<>(Arrays.asList(args));
+        unsortedArgs.add("--out=" + dir + "/unsorted.csv");
+        new DataGenCLI().main(unsortedArgs.toArray(new String[0]));
+        // 1 MB budget, about 5 MB of rows: sorted on runs (deleted after merge)
+        List<String> sortedArgs = new ArrayList<>(Arrays.asList(args));
+        sortedArgs.addAll(Arrays.asList("--out=" + dir + "/sorted.csv", "--sortby=code", "--sort-mbs=1"));
+        dataGenCLI.main(sortedArgs.toArray(new String[0]));
+        assertEquals("", systemErr.toString());
+        assertEquals(2, tmpFolder.getRoot().list().length);
+        List<String> unsorted = Files.readAllLines(Paths.get(dir + "/unsorted.csv"));
+        List<String> sorted = Files.readAllLines(Paths.get(dir + "/sorted.csv"));
+        assertEquals("id,name,code", sorted.get(0));
+        String previousCode = "";
+        long previousId = 0L;
+        for (String line : sorted.subList(1, sorted.size())) {
+            String code = line.substring(line.lastIndexOf(',') + 1);
+            long id = Long.parseLong(line.substring(0, line.indexOf(',')));
+            int cmp = previousCode.compareTo(code);
+            assertTrue(line, cmp < 0 || (cmp == 0 && previousId < id));
+            previousCode = code;
+            previousId = id;
+        }
+        // same rows as without --sortby
+        unsorted.sort(null);
+        sorted.sort(null);
+        assertEquals(unsorted, sorted);
+    }
+
+    @Test
+    public void testRunWithSortBySqlBatches() {
+        dataGenCLI.main(new String[] {"--rows=5", "--fields=rowNumber,randomString(#)", "--header=id,code",
+            "--sortby=code", "--format=sql", "--table=t", "--batch-size=2"});
+        // batches are rows as written (sorted), not as generated
+        String[] lines = systemOut.toString().split("\n");
+        assertEquals(8, lines.length);
+        assertEquals("INSERT INTO \"t\" (\"id\",\"code\") VALUES", lines[0]);
+        assertTrue(lines[1].endsWith(","));
+        assertTrue(lines[2].endsWith(";"));
+        assertEquals("INSERT INTO \"t\" (\"id\",\"code\") VALUES", lines[6]);
+        assertTrue(lines[7].endsWith(";"));
+        String previousCode = "";
+        for (String line : Arrays.asList(lines[1], lines[2], lines[4], lines[5], lines[7])) {
+            String code = line.substring(line.indexOf('\'') + 1, line.lastIndexOf('\''));
+            assertTrue(previousCode.compareTo(code) <= 0);
+            previousCode = code;
+        }
+    }
+
+    @Test
+    public void testRunWithParallelWriteTruncatesPreallocatedFile() throws Exception {
+        String outFileName = tmpFolder.getRoot().getAbsolutePath() + "/out.pgcopy";
+        dataGenCLI.main(new String[] {"--mbs=1", "--seed=5", "--fields=rowNumber,randomString(??##)", "--format=pgcopy",
+            "--out=" + outFileName, "--parallel-write"});
+        byte[] output = Files.readAllBytes(Paths.get(outFileName));
+        assertTrue(output.length > 1000000 && output.length < 1100000);
+        // ends with pgcopy trailer, not zeros of preallocated file
+        assertEquals((byte) 0xFF, output[output.length - 1]);
+        assertEquals((byte) 0xFF, output[output.length - 2]);
+        String expectedFileName = tmpFolder.getRoot().getAbsolutePath() + "/expected.pgcopy";
+        new DataGenCLI().main(new String[] {"--mbs=1", "--seed=5", "--fields=rowNumber,randomString(??##)",
+            "--format=pgcopy", "--out=" + expectedFileName});
+        assertArrayEquals(Files.readAllBytes(Paths.get(expectedFileName)), output);
+    }
+
+    @Test
+    public void testRunWithCacheDirCopiesCachedDataset() throws Exception {
+        String cacheDir = "--cache-dir=" + tmpFolder.getRoot().getAbsolutePath() + "/cache";
+        String outFileName = tmpFolder.getRoot().getAbsolutePath() + "/out.csv";
+        String[] args = new String[] {"--rows=20000", "--seed=8", "--fields=rowNumber,randomString(??##)", "--header=id,code",
+            cacheDir, "--out=" + outFileName};
+        dataGenCLI.main(args);
+        byte[] generated = Files.readAllBytes(Paths.get(outFileName));
+        File[] cached = new File(tmpFolder.getRoot(), "cache").listFiles((dir, name) -> name.endsWith(".data"));
+        assertEquals(1, cached.length);
+        assertArrayEquals(generated, Files.readAllBytes(cached[0].toPath()));
+        // second run is copied from cache (changed, to check it's not generated again)
+        Files.write(cached[0].toPath(), "from cache\n".getBytes(StandardCharsets.UTF_8));
+        new DataGenCLI().main(args);
+        assertEquals("from cache\n", new String(Files.readAllBytes(Paths.get(outFileName)), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testRunWithCacheDirReusesFirstRowsOfLargerDataset() throws Exception {
+        String cacheDir = "--cache-dir=" + tmpFolder.getRoot().getAbsolutePath() + "/cache";
+        String fields = "--fields=rowNumber,name.firstName";
+        dataGenCLI.main(new String[] {"--rows=40000", "--seed=8", fields, "--header=id,name", cacheDir});
+        systemOut.reset();
+        new DataGenCLI().main(new String[] {"--rows=25001", "--seed=8", fields, "--header=id,name"});
+        String expected = systemOut.toString();
+        systemOut.reset();
+        new DataGenCLI().main(new String[] {"--rows=25001", "--seed=8", fields, "--header=id,name", cacheDir});
+        assertEquals(expected, systemOut.toString());
+        // only the larger dataset is cached
+        assertEquals(1, new File(tmpFolder.getRoot(), "cache").listFiles((dir, name) -> name.endsWith(".data")).length);
+    }
+
+    @Test
+    public void testRunBenchmark() {
+        DataGenCLI benchmarkCLI = new DataGenCLI() {
+            @Override
+            protected DataGenBenchmark createBenchmark() {
+                DataGenBenchmark benchmark = super.createBenchmark();
+                benchmark.warmupMilisecs = 10L;
+                benchmark.caseMilisecs = 20L;
+                return benchmark;
+            }
+        };
+        benchmarkCLI.parseOptions(new String[] {"--benchmark=json", "--threads=2", "--fields=rowNumber,randomString(??##)",
+            "--format=jsonl"});
+        assertTrue(benchmarkCLI.checkOptions());
+        benchmarkCLI.run();
+        String[] results = systemErr.toString().trim().split("\n");
+        assertEquals(DataGenBenchmark.SINKS.size(), results.length);
+        for (int i = 0; i < results.length; i++) {
+            assertTrue(results[i], results[i].matches("[\\[ ]\\{\"fields\":\"custom\",\"threads\":2,\"sink\":\""
+                + DataGenBenchmark.SINKS.get(i) + "\",\"rows\":\\d+,\"bytes\":\\d+,\"rowsPerSec\":\\d+,"
+                + "\"mbPerSec\":[0-9.]+,\"p99ChunkMs\":[0-9.]+\\}[,\\]]"));
+        }
+        // rows written to stdout (stdout sink)
+        assertTrue(systemOut.toString().startsWith("{\"col0\":1,\"col1\":\""));
+    }
+
+    @Test
+    public void testRunWithCheckpointResumesFromLastCheckpoint() throws Exception {
+        String fields = "--fields=rowNumber,name.fullName,randomString(??##)";
+        String expectedFileName = tmpFolder.getRoot().getAbsolutePath() + "/expected.csv";
+        dataGenCLI.main(new String[] {"--rows=35000", "--seed=99", "--header=id,name,code", fields, "--out=" + expectedFileName});
+        byte[] expected = Files.readAllBytes(Paths.get(expectedFileName));
+
+        // generate with checkpoint after each chunk
+        String outFileName = tmpFolder.getRoot().getAbsolutePath() + "/out.csv";
+        String checkpointFileName = tmpFolder.getRoot().getAbsolutePath() + "/out.ckp";
+        String[] args = new String[] {"--rows=35000", "--seed=99", "--header=id,name,code", fields, "--out=" + outFileName,
+            "--checkpoint=" + checkpointFileName};
+        dataGenCLI.parseOptions(args);
+        dataGenCLI.checkpointIntervalInMilisecs = 0L;
+        dataGenCLI.run();
+        List<String> checkpointLines = Files.readAllLines(Paths.get(checkpointFileName));
+        assertEquals("35001", checkpointLines.get(checkpointLines.size() - 1).split(" ")[0]);
+
+        // simulate an interruption: last checkpoint (and part of last line) not written, output with partial rows
+        Files.write(Paths.get(checkpointFileName), (String.join("\n", checkpointLines.subList(0, checkpointLines.size() - 2))
+            + "\n30001 12").getBytes(StandardCharsets.UTF_8));
+        Files.write(Paths.get(outFileName), "partially written row".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        // resume, must generate exactly the same data as without interruption
+        DataGenCLI resumedDataGenCLI = new DataGenCLI();
+        resumedDataGenCLI.main(args);
+        assertArrayEquals(expected, Files.readAllBytes(Paths.get(outFileName)));
+    }
+
+    @Test
+    public void testRunWithCheckpointWithDifferentOptions() throws Exception {
+        String outFileName = tmpFolder.getRoot().getAbsolutePath() + "/out.csv";
+        String checkpointFileName = tmpFolder.getRoot().getAbsolutePath() + "/out.ckp";
+        dataGenCLI.main(new String[] {"--rows=10", "--fields=rowNumber", "--out=" + outFileName, "--checkpoint=" + checkpointFileName});
+        new DataGenCLI().main(new String[] {"--rows=20", "--fields=rowNumber", "--out=" + outFileName, "--checkpoint=" + checkpointFileName});
+        assertTrue(systemErr.toString().contains("different options"));
+    }
+
+    @Test
+    public void testRunWithRowRange() {
+        dataGenCLI.main(new String[] {"--row-range=11:13", "--fields=rowNumber,sequence(100:10)", "--header=id,seq"});
+        assertEquals("11,200\n12,210\n13,220\n", systemOut.toString()); // no header, first row is not row 1
+    }
+
+    @Test
+    public void testRunWithReplayWritesRowsAtEventTime() {
+        // 41 events at 100/s span 400ms, replayed at 2x take 200ms
+        long start = System.currentTimeMillis();
+        dataGenCLI.main(new String[] {"--rows=41", "--fields=rowNumber,eventTime(2024-01-01T00:00:00Z:100:0)", "--replay=2"});
+        long elapsed = System.currentTimeMillis() - start;
+        String[] lines = systemOut.toString().split("\n");
+        assertEquals(41, lines.length);
+        assertEquals("1,2024-01-01T00:00:00Z", lines[0]);
+        assertEquals("41,2024-01-01T00:00:00.400Z", lines[40]);
+        assertTrue(elapsed >= 200);
+    }
+
+    @Test
+    public void testRunWithCdc() {
+        dataGenCLI.main(new String[] {"--rows=5", "--cdc=3:1:1", "--fields=randomString(??)", "--header=name",
+            "--format=jsonl", "--seed=1"});
+        String[] lines = systemOut.toString().split("\n");
+        assertEquals(5, lines.length);
+        // no initial keys: 3 inserts (keys 1 to 3), an update of one of them, then first key is deleted
+        assertTrue(lines[0], lines[0].startsWith("{\"op\":\"c\",\"key\":1,\"name\":\""));
+        assertTrue(lines[2], lines[2].startsWith("{\"op\":\"c\",\"key\":3,"));
+        assertTrue(lines[3], lines[3].matches("\\{\"op\":\"u\",\"key\":[123],.*"));
+        assertTrue(lines[4], lines[4].startsWith("{\"op\":\"d\",\"key\":1,"));
+    }
+
+    @Test
+    public void testRunWithCdcAndMbs() throws Exception {
+        // --mbs samples rows from row 1 (no event before it), even with no initial keys
+        String outFileName = tmpFolder.getRoot().getAbsolutePath() + "/cdc.csv";
+        dataGenCLI.main(new String[] {"--cdc=1:1:0", "--mbs=1", "--fields=rowNumber", "--out=" + outFileName});
+        List<String> lines = Files.readAllLines(Paths.get(outFileName));
+        assertTrue(lines.size() > 1000);
+        assertEquals("c,1,1", lines.get(0));
+        assertEquals("u,1,2", lines.get(1));
+    }
+
+    @Test
+    public void testRunWithJsonLinesFormat() {
+        dataGenCLI.main(new String[] {"--rows=3", "--fields=rowNumber,randomString(a\\?),randomDouble(1:5:5)",
+            "--header=id,code,price", "--format=jsonl"});
+        String[] lines = systemOut.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[2].matches("\\{\"id\":3,\"code\":\"a\\\\\\\\[a-z]\",\"price\":5\\.0\\}"));
+    }
+
+    @Test
+    public void testRunWithFixedFormat() {
+        // widths from a sample of 1000 rows: rowNumber up to 4 chars, code 4 chars (header)
+        dataGenCLI.main(new String[] {"--rows=12", "--fields=rowNumber,randomString(??)", "--header=id,code",
+            "--format=fixed"});
+        String[] lines = systemOut.toString().split("\n");
+        assertEquals(13, lines.length);
+        assertEquals("id  code", lines[0]);
+        assertTrue(lines[1].matches("1   [a-z]{2}  "));
+        assertTrue(lines[12].matches("12  [a-z]{2}  "));
+    }
+
+    @Test
+    public void testRunWithSqlFormat() {
+        dataGenCLI.main(new String[] {"--rows=5", "--fields=rowNumber,randomString(a?)", "--header=id,name",
+            "--format=sql", "--table=people", "--batch-size=2"});
+        String[] lines = systemOut.toString().split("\n");
+        assertEquals(8, lines.length);
+        assertEquals("INSERT INTO \"people\" (\"id\",\"name\") VALUES", lines[0]);
+        assertTrue(lines[1].matches("\\(1,'a[a-z]'\\),"));
+        assertTrue(lines[2].matches("\\(2,'a[a-z]'\\);"));
+        assertEquals("INSERT INTO \"people\" (\"id\",\"name\") VALUES", lines[6]);
+        assertTrue(lines[7].matches("\\(5,'a[a-z]'\\);"));
+    }
+
+    @Test
+    public void testRunWithPgCopyFormatWritesHeaderAndTrailerOnEveryWorker() {
+        for (int worker = 1; worker <= 2; worker++) {
+            systemOut.reset();
+            new DataGenCLI().main(new String[] {"--rows=4", "--fields=rowNumber", "--format=pgcopy", "--worker=" + worker + "/2"});
+            byte[] bytes = systemOut.toByteArray();
+            // 19 bytes header, 2 rows of 2 + 4 + 8 bytes and 2 bytes trailer
+            assertEquals(19 + 2 * 14 + 2, bytes.length);
+            assertEquals("PGCOPY", new String(bytes, 0, 6, StandardCharsets.US_ASCII));
+            assertEquals(worker * 2 - 1, bytes[19 + 13]); // first row number, last byte of int8
+            assertEquals((byte) 0xFF, bytes[bytes.length - 1]);
+        }
+    }
+
+    @Test
+    public void testRunWithCompositeFields() {
+        dataGenCLI.main(new String[] {"--rows=3", "--fields=rowNumber,person{firstName,lastName,username}",
+            "--header=id,first,last,user", "--format=jsonl"});
+        String[] lines = systemOut.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].matches("\\{\"id\":1,\"first\":\"[^\"]+\",\"last\":\"[^\"]+\",\"user\":\"[a-z0-9.]+\"\\}"));
+    }
+
+    @Test
+    public void testRunWithWorkersGeneratesSameDataAsSingleRun() {
+        String[] singleRunArgs = new String[] {"--rows=1003", "--seed=7", "--fields=rowNumber,name.firstName", "--header=id,name"};
+        dataGenCLI.main(singleRunArgs);
+        String singleRunOutput = systemOut.toString();
+        StringBuilder workersOutput = new StringBuilder();
+        for (int worker = 1; worker <= 3; worker++) {
+            systemOut.reset();
+            new DataGenCLI().main(new String[] {"--rows=1003", "--seed=7", "--fields=rowNumber,name.firstName",
+                "--header=id,name", "--worker=" + worker + "/3"});
+            workersOutput.append(systemOut.toString());
+        }
+        assertEquals(singleRunOutput, workersOutput.toString());
+    }
+
+    @Test
+    public void testRunWithWorkersAndMBytesCoversAllRowsOnce() {
+        // without seed, data is different, but rows are split between workers the same way
+        long expectedRowNum = 1L;
+        for (int worker = 1; worker <= 3; worker++) {
+            systemOut.reset();
+            new DataGenCLI().main(new String[] {"--mbs=1", "--fields=rowNumber,lorem.sentence", "--separator=;", "--worker=" + worker + "/3"});
+            for (String line : systemOut.toString().split("\n")) {
+                assertEquals(expectedRowNum++, Long.parseLong(line.split(";")[0]));
+            }
+        }
+        assertTrue(expectedRowNum > 1000);
+    }
+
     @Test
     public void testOutputFileInvalidIsDirectory() throws Exception {
       // test out if specifying an invalid path (e.g., a dir)we get expected err message
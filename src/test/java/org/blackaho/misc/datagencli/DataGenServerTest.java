@@ -0,0 +1,149 @@
+package org.blackaho.misc.datagencli;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Unit tests for DataGenServer.
+ */
+public class DataGenServerTest {
+
+  private DataGenServer server;
+
+  @Before
+  public void before() throws IOException {
+    server = new DataGenServer(0); // any free port
+    server.start();
+  }
+
+  @After
+  public void after() {
+    server.stop();
+  }
+
+  private HttpURLConnection connect(String pathAndQuery) throws IOException {
+    return (HttpURLConnection) new URL("http://localhost:" + server.getPort() + pathAndQuery).openConnection();
+  }
+
+  private static String read(InputStream in) throws IOException {
+    return DataGenServer.readFully(in);
+  }
+
+  @Test
+  public void testGenerateRows() throws IOException {
+    HttpURLConnection conn = connect("/generate?rows=3&fields=rowNumber,sequence(10:2)&separator=%3B");
+    assertEquals(200, conn.getResponseCode());
+    String[] lines = read(conn.getInputStream()).split("\n");
+    Arrays.sort(lines);
+    assertArrayEquals(new String[] {"1;10", "2;12", "3;14"}, lines);
+  }
+
+  @Test
+  public void testGenerateRowsWithPost() throws IOException {
+    HttpURLConnection conn = connect("/generate");
+    conn.setRequestMethod("POST");
+    conn.setDoOutput(true);
+    try (OutputStream body = conn.getOutputStream()) {
+      body.write("rows=2&fields=name.firstName&header=firstName".getBytes(StandardCharsets.UTF_8));
+    }
+    assertEquals(200, conn.getResponseCode());
+    String[] lines = read(conn.getInputStream()).split("\n");
+    assertEquals(3, lines.length);
+    assertEquals("firstName", lines[0]);
+  }
+
+  @Test
+  public void testRowGeneratorsAreCached() throws IOException {
+    // row generator is created (and cached) before the response starts, whole responses are read to check rows
+    for (int i = 0; i < 3; i++) {
+      assertEquals(5, read(connect("/generate?rows=5&fields=randomLong(1:10)").getInputStream()).split("\n").length);
+    }
+    assertEquals(1, server.rowGeneratorCache.size());
+    assertEquals(5, read(connect("/generate?rows=5&fields=randomLong(1:20)").getInputStream()).split("\n").length);
+    assertEquals(2, server.rowGeneratorCache.size());
+  }
+
+  @Test
+  public void testInvalidRequest() throws IOException {
+    HttpURLConnection conn = connect("/generate?fields=rowNumber");  // missing rows or mbs
+    assertEquals(400, conn.getResponseCode());
+    assertTrue(read(conn.getErrorStream()).contains("Usage"));
+  }
+
+  @Test
+  public void testUnsupportedOption() throws IOException {
+    HttpURLConnection conn = connect("/generate?rows=1&fields=rowNumber&out=/tmp/file.csv");
+    assertEquals(400, conn.getResponseCode());
+    assertTrue(read(conn.getErrorStream()).contains("not supported"));
+  }
+
+  @Test
+  public void testEncodedOptionName() throws IOException {
+    // name "out=/tmp/file.txt" (encoded "=") must not become option --out=/tmp/file.txt
+    HttpURLConnection conn = connect("/generate?out%3D%2Ftmp%2Ffile.txt&rows=1&fields=rowNumber");
+    assertEquals(400, conn.getResponseCode());
+    assertTrue(read(conn.getErrorStream()).contains("Invalid option name"));
+  }
+
+  @Test
+  public void testOnlyServerOptionsAreSupported() throws IOException {
+    for (String option : new String[] {"benchmarkx=1", "checkpoint=/tmp/file.ckpt", "sortby=col0", "threads=2"}) {
+      HttpURLConnection conn = connect("/generate?rows=1&fields=rowNumber&" + option);
+      assertEquals(400, conn.getResponseCode());
+      assertTrue(read(conn.getErrorStream()).contains("not supported"));
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testErrorAfterResponseStartedAbortsResponse() throws IOException {
+    DataGenServer failingServer = new DataGenServer(0) {
+      @Override
+      protected DataGenCLI createRequestDataGenCLI() {
+        return new DataGenCLI() {
+          @Override
+          public void run() {
+            try {
+              out.write("1\n".getBytes(StandardCharsets.UTF_8));
+              out.flush();
+            } catch (IOException ex) {
+              throw new IllegalStateException(ex);
+            }
+            throw new IllegalStateException("failed generating rows");
+          }
+        };
+      }
+    };
+    failingServer.start();
+    try {
+      HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:" + failingServer.getPort()
+          + "/generate?rows=2&fields=rowNumber").openConnection();
+      assertEquals(200, conn.getResponseCode());
+      read(conn.getInputStream());  // incomplete chunked response
+    } finally {
+      failingServer.stop();
+    }
+  }
+
+  @Test
+  public void testParseQueryAsArgs() throws IOException {
+    String[] args = DataGenServer.parseQueryAsArgs("rows=10&fields=name.firstName%2CrandomLong(1%3A10)&timings",
+        new PrintWriter(new StringWriter()));
+    assertArrayEquals(new String[] {"--rows=10", "--fields=name.firstName,randomLong(1:10)", "--timings"}, args);
+  }
+
+}
@@ -0,0 +1,75 @@
+package org.blackaho.misc.datagencli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * Unit tests for DatasetCache.
+ */
+public class DatasetCacheTest {
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void testLookupExactAndPrefixOfLargerDataset() throws Exception {
+    DatasetCache cache = new DatasetCache(tmpFolder.getRoot().toPath(), 1 << 20);
+    String key = DatasetCache.key("fields=[rowNumber]");
+    DatasetCache.EntryWriter entry = cache.startEntry(key, 30L);
+    for (int chunk = 1; chunk <= 3; chunk++) {
+      entry.write(new byte[] {(byte) chunk, (byte) chunk});
+      entry.markRow(chunk * 10L);
+    }
+    entry.commit();
+    assertEquals(6L, cache.lookup(key, 30L, false).getLength());
+    assertNull(cache.lookup(key, 25L, false));
+    DatasetCache.CachedDataset prefix = cache.lookup(key, 25L, true);
+    assertEquals(20L, prefix.getRows());
+    assertEquals(4L, prefix.getLength());
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    cache.transferTo(prefix, Channels.newChannel(output));
+    assertEquals(4, output.size());
+    assertNull(cache.lookup(key, 5L, true));  // less rows than first chunk
+    assertNull(cache.lookup(DatasetCache.key("fields=[sequence(1:1)]"), 30L, true));
+  }
+
+  @Test
+  public void testLeastRecentlyUsedDatasetsEvicted() throws Exception {
+    Path dir = tmpFolder.getRoot().toPath();
+    DatasetCache cache = new DatasetCache(dir, 2500L);
+    for (long rows = 1; rows <= 2; rows++) {
+      DatasetCache.EntryWriter entry = cache.startEntry("key", rows);
+      entry.write(new byte[1000]);
+      entry.markRow(rows);
+      entry.commit();
+      Files.setLastModifiedTime(dir.resolve("key-" + rows + ".data"), FileTime.fromMillis(rows * 1000L));
+    }
+    cache.lookup("key", 1L, false);  // used, so dataset with 2 rows is least recently used
+    DatasetCache.EntryWriter entry = cache.startEntry("key", 3L);
+    entry.write(new byte[1000]);
+    entry.commit();
+    assertTrue(Files.exists(dir.resolve("key-1.data")));
+    assertFalse(Files.exists(dir.resolve("key-2.data")));
+    assertFalse(Files.exists(dir.resolve("key-2.idx")));
+    assertTrue(Files.exists(dir.resolve("key-3.data")));
+    // larger than budget, not cached
+    entry = cache.startEntry("key", 4L);
+    entry.write(new byte[3000]);
+    entry.commit();
+    assertFalse(Files.exists(dir.resolve("key-4.data")));
+    assertEquals(4, tmpFolder.getRoot().list().length);
+  }
+
+}
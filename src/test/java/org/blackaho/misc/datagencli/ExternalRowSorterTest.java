@@ -0,0 +1,109 @@
+package org.blackaho.misc.datagencli;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Unit tests for ExternalRowSorter.
+ */
+public class ExternalRowSorterTest {
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void testWriteRowAndReadValues() throws IOException {
+    List<Object> values = Arrays.asList(42L, 7, 1.5, "Ação, \"quoted\"", Instant.parse("2024-01-31T10:15:30.250Z"),
+        LocalDate.parse("2024-02-29"), true, null);
+    OutputBuffer buffer = new OutputBuffer();
+    ExternalRowSorter.writeRow(3L, values, buffer);
+    byte[] record = Arrays.copyOfRange(buffer.toByteArray(), 4, buffer.size());
+    assertEquals(values, ExternalRowSorter.readValues(record));
+  }
+
+  @Test
+  public void testMergeSpilledRunsInSortOrder() throws IOException {
+    Random random = new Random(1L);
+    // small budget, so rows are spilled to several runs
+    try (ExternalRowSorter sorter = new ExternalRowSorter(1, 64 * 1024L, tmpFolder.getRoot())) {
+      for (long chunkStart = 1; chunkStart <= 10000; chunkStart += 1000) {
+        OutputBuffer chunk = new OutputBuffer();
+        for (long rowNum = chunkStart; rowNum < chunkStart + 1000; rowNum++) {
+          ExternalRowSorter.writeRow(rowNum, Arrays.asList(rowNum, "k" + random.nextInt(500)), chunk);
+        }
+        sorter.addRows(chunk.toByteArray());
+      }
+      assertTrue(sorter.getRunCount() > 5);
+      assertEquals(sorter.getRunCount(), tmpFolder.getRoot().listFiles().length);
+      List<List> sorted = new ArrayList<>();
+      sorter.merge((rowNumber, values) -> {
+        assertEquals(rowNumber, values.get(0));
+        sorted.add(values);
+      });
+      assertEquals(10000, sorted.size());
+      for (int i = 1; i < sorted.size(); i++) {
+        List previous = sorted.get(i - 1);
+        List current = sorted.get(i);
+        int cmp = ((String) previous.get(1)).compareTo((String) current.get(1));
+        // same key rows are in row number order
+        assertTrue(cmp < 0 || (cmp == 0 && (long) previous.get(0) < (long) current.get(0)));
+      }
+    }
+    // runs are deleted
+    assertArrayEquals(new Object[0], tmpFolder.getRoot().listFiles());
+  }
+
+  @Test
+  public void testMergeWithBoundedFanIn() throws IOException {
+    Random random = new Random(2L);
+    List<Integer> fanIns = new ArrayList<>();
+    // at most 3 runs merged at once, so 10+ runs are merged through intermediate runs
+    try (ExternalRowSorter sorter = new ExternalRowSorter(1, 16 * 1024L, tmpFolder.getRoot(), 3) {
+      @Override
+      protected void mergeRuns(List<File> mergedRuns, Iterator<SortRow> memoryRows, SortRowConsumer consumer)
+          throws IOException {
+        fanIns.add(mergedRuns.size() + (memoryRows != null ? 1 : 0));
+        super.mergeRuns(mergedRuns, memoryRows, consumer);
+      }
+    }) {
+      for (long chunkStart = 1; chunkStart <= 5000; chunkStart += 500) {
+        OutputBuffer chunk = new OutputBuffer();
+        for (long rowNum = chunkStart; rowNum < chunkStart + 500; rowNum++) {
+          ExternalRowSorter.writeRow(rowNum, Arrays.asList(rowNum, random.nextInt(100)), chunk);
+        }
+        sorter.addRows(chunk.toByteArray());
+      }
+      assertTrue(sorter.getRunCount() > 10);
+      List<List> sorted = new ArrayList<>();
+      sorter.merge((rowNumber, values) -> sorted.add(values));
+      assertTrue(fanIns.size() > 5);
+      assertTrue(fanIns.stream().allMatch(fanIn -> fanIn <= 3));
+      // merged runs are deleted as soon as they are merged
+      assertEquals(sorter.getRunCount(), tmpFolder.getRoot().listFiles().length);
+      assertEquals(5000, sorted.size());
+      for (int i = 1; i < sorted.size(); i++) {
+        List previous = sorted.get(i - 1);
+        List current = sorted.get(i);
+        int cmp = Integer.compare((int) previous.get(1), (int) current.get(1));
+        assertTrue(cmp < 0 || (cmp == 0 && (long) previous.get(0) < (long) current.get(0)));
+      }
+    }
+    assertArrayEquals(new Object[0], tmpFolder.getRoot().listFiles());
+  }
+
+}
@@ -0,0 +1,64 @@
+package org.blackaho.misc.datagencli;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Unit tests for FakerFieldIndex.
+ */
+public class FakerFieldIndexTest {
+
+  @Test
+  public void testIndexResourceMatchesReflection() {
+    // index resource is generated at build time (process-classes phase), must match what we get with reflection
+    List<String[]> loadedEntries = FakerFieldIndex.loadIndexEntries();
+    assertNotNull(loadedEntries);
+    List<String[]> builtEntries = FakerFieldIndex.buildIndexEntries();
+    assertEquals(builtEntries.size(), loadedEntries.size());
+    for (int i = 0; i < builtEntries.size(); i++) {
+      assertArrayEquals(builtEntries.get(i), loadedEntries.get(i));
+    }
+  }
+
+  @Test
+  public void testGetFields() {
+    List<String> fields = FakerFieldIndex.getFields();
+    assertTrue(fields.contains("name.firstName"));
+    assertTrue(fields.contains("address.fullAddress"));
+    assertEquals(fields.size(), fields.stream().distinct().collect(Collectors.toList()).size());
+  }
+
+  @Test
+  public void testGetMethodChain() {
+    Method[] chain = FakerFieldIndex.getMethodChain("name.firstName");
+    assertEquals(2, chain.length);
+    assertEquals("name", chain[0].getName());
+    assertEquals("firstName", chain[1].getName());
+    assertTrue(chain == FakerFieldIndex.getMethodChain("name.firstName")); // cached
+  }
+
+  @Test
+  public void testGetMethodChainUnknownField() {
+    assertNull(FakerFieldIndex.getMethodChain("some.unknown.name"));
+    assertNull(FakerFieldIndex.getMethodChain("name"));  // not a field on index (returns a Faker object)
+  }
+
+  @Test
+  public void testGetMethodChainFromIndexEntry() {
+    Method[] chain = FakerFieldIndex.getMethodChain("address.city");
+    assertEquals(com.github.javafaker.Faker.class, chain[0].getDeclaringClass());
+    assertEquals(com.github.javafaker.Address.class, chain[1].getDeclaringClass());
+    // methods come from a per class table, shared by fields of the same class
+    assertTrue(chain[1] == FakerFieldIndex.getClassMethods("com.github.javafaker.Address").get("city"));
+  }
+
+}
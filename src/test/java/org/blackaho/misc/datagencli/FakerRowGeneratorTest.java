@@ -1,14 +1,27 @@
 package org.blackaho.misc.datagencli;
 
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
 
 /**
  * Unit tests for DataGenCli.
@@ -54,6 +67,15 @@ public class FakerRowGeneratorTest {
     assertEquals(123L, result);
   }
 
+  @Test
+  public void testFakerIsCreatedOnlyWhenNeeded() {
+    rowGenerator.setFields(Arrays.asList("rowNumber", "sequence(10:3)"));
+    rowGenerator.generateRow(1L);
+    assertNull(rowGenerator.faker);
+    rowGenerator.getAvailableFields();
+    assertNull(rowGenerator.faker);
+  }
+
   @Test
   public void testGenerateRowWithFieldSequence() {
     rowGenerator.setFields(Arrays.asList("sequence(10:3)"));
@@ -90,6 +112,128 @@ public class FakerRowGeneratorTest {
   }
 
 
+  @Test
+  public void testGenerateRowWithFieldsNumerifyLetterifyAndRegexify() {
+    rowGenerator.setFields(Arrays.asList("numerify(A#?#)", "letterify(A#?#)", "regexify([A-C]{2}\\d{3}-[a-f0-9_]{1,4}x?)"));
+    for (long row = 1; row <= 100; row++) {
+      List values = rowGenerator.generateRow(row);
+      assertTrue(((String) values.get(0)).matches("A[0-9]\\?[0-9]"));
+      assertTrue(((String) values.get(1)).matches("A#[a-z]#"));
+      assertTrue(((String) values.get(2)).matches("[A-C]{2}\\d{3}-[a-f0-9_]{1,4}x?"));
+    }
+  }
+
+  @Test
+  public void testStringTemplateRegexifyUnsupportedSyntax() {
+    assertNull(StringTemplate.regexify("(a|b)"));
+    assertNull(StringTemplate.regexify("a+"));
+    assertNull(StringTemplate.regexify("[^a]"));
+    assertNull(StringTemplate.regexify("\\s"));
+    assertEquals("a.b", StringTemplate.regexify("a\\.b").generate(new Random()));
+    // not simple regexes are generated by Faker
+    assertEquals(FakerRowGenerator.FieldSpec.SpecType.REGEXIFY, FakerRowGenerator.FieldSpec.parse("regexify(a+)").specType);
+  }
+
+  @Test
+  public void testTemplateFieldsSameValueInRowAndLine() {
+    rowGenerator.setFields(Arrays.asList("randomString(?#-??##)", "regexify([a-z]{2,8})")).setSeed(3L);
+    for (long row = 1; row <= 100; row++) {
+      List values = rowGenerator.generateRow(row);
+      assertEquals(values.get(0) + "," + values.get(1), rowGenerator.generateRowLine(row));
+    }
+  }
+
+  @Test
+  public void testTemplateFieldsQuotedWhenTheyMayContainSeparator() {
+    rowGenerator.setFields(Arrays.asList("randomString(a;#)", "randomString(a:#)")).setFieldsSeparator(";");
+    assertTrue(rowGenerator.generateRowLine(1L).matches("\"a;[0-9]\";a:[0-9]"));
+    // with a multi char separator, any of its chars may be part of it on the edges of a value
+    rowGenerator = new FakerRowGenerator();
+    rowGenerator.setFields(Arrays.asList("randomString(;#)", "randomString(#-)", "randomString(a#)")).setFieldsSeparator("-;");
+    assertTrue(rowGenerator.generateRowLine(1L).matches("\";[0-9]\"-;\"[0-9]-\"-;a[0-9]"));
+  }
+
+  @Test
+  public void testGenerateRowWithDateAndTimestampFields() {
+    rowGenerator.setFields(Arrays.asList("dateBetween(2000-01-01:2000-01-03)",
+        "timestampBetween(2024-01-01T10:00:00Z:1704103200500)", "dateBetween(2000-01-01:2000-01-03:dd/MM/yyyy)",
+        "timestampBetween(2024-01-01:2024-01-01:yyyy-MM-dd HH:mm:ss)")).setSeed(5L);
+    for (long row = 1; row <= 100; row++) {
+      List values = rowGenerator.generateRow(row);
+      LocalDate date = (LocalDate) values.get(0);
+      Instant timestamp = (Instant) values.get(1);
+      assertTrue(!date.isBefore(LocalDate.parse("2000-01-01")) && !date.isAfter(LocalDate.parse("2000-01-03")));
+      assertTrue(timestamp.toEpochMilli() >= 1704103200000L && timestamp.toEpochMilli() <= 1704103200500L);
+      assertTrue(values.get(2) instanceof LocalDate);
+      // same values on line, with (default or field) format
+      String[] line = rowGenerator.generateRowLine(row).split(",");
+      assertEquals(date.toString(), line[0]);
+      assertEquals(timestamp, Instant.parse(line[1]));
+      assertTrue(line[1].matches("2024-01-01T10:00:00\\.\\d{3}Z"));
+      assertTrue(line[2].matches("0[1-3]/01/2000"));
+      assertEquals("2024-01-01 00:00:00", line[3]);
+    }
+  }
+
+  @Test
+  public void testDateAndTimestampFieldsInvalid() {
+    assertEquals(FakerRowGenerator.FieldSpec.SpecType.FAKER_FIELD,
+        FakerRowGenerator.FieldSpec.parse("dateBetween(2000-01-02:2000-01-01)").specType);
+    assertEquals(FakerRowGenerator.FieldSpec.SpecType.FAKER_FIELD,
+        FakerRowGenerator.FieldSpec.parse("dateBetween(2000-02-30:2000-03-01)").specType);
+    assertEquals(FakerRowGenerator.FieldSpec.SpecType.FAKER_FIELD,
+        FakerRowGenerator.FieldSpec.parse("dateBetween(2000-01-01:2000-03-01:HH:mm)").specType);
+    assertEquals(FakerRowGenerator.FieldSpec.SpecType.FAKER_FIELD,
+        FakerRowGenerator.FieldSpec.parse("timestampBetween(2000-01-01:2000-03-01:bad pattern {)").specType);
+  }
+
+  @Test
+  public void testIsoDateTimeSameAsJavaTime() {
+    Random random = new Random(1L);
+    for (int i = 0; i < 10000; i++) {
+      long epochMilli = Math.floorMod(random.nextLong(), 253402300800000L); // up to 9999-12-31
+      assertEquals(LocalDate.ofEpochDay(epochMilli / 86400000L).toString(), IsoDateTime.formatDate(epochMilli / 86400000L));
+      assertEquals(Instant.ofEpochMilli(epochMilli), Instant.parse(IsoDateTime.formatTimestamp(epochMilli)));
+    }
+    assertEquals("1970-01-01T00:00:00.000Z", IsoDateTime.formatTimestamp(0L));
+    assertEquals("1969-12-31T23:59:59.999Z", IsoDateTime.formatTimestamp(-1L));
+    assertEquals("2000-02-29", IsoDateTime.formatDate(LocalDate.parse("2000-02-29").toEpochDay()));
+  }
+
+  @Test
+  public void testCompositeFieldsExpandedToParts() {
+    assertEquals(Arrays.asList("rowNumber", "address{city,state}.city", "address{city,state}.state",
+        "address{city,state}#2.city", "address{city,state}#2.state"),
+        CompositeField.expandFields(Arrays.asList("rowNumber", "address{city,state}", "address{city,state}")));
+  }
+
+  @Test
+  public void testGenerateRowWithCompositeFieldsConsistentParts() {
+    rowGenerator.setFields(Arrays.asList("person{firstName,lastName,fullName,email}", "rowNumber",
+        "address{stateAbbr,zipCode,country,streetAddress,fullAddress,city}", "address{stateAbbr,zipCode,country,streetAddress,fullAddress,city}"));
+    for (long row = 1; row <= 50; row++) {
+      List values = rowGenerator.generateRow(row);
+      assertEquals(17, values.size());
+      String username = (values.get(0) + "." + values.get(1)).toLowerCase().replaceAll("[^a-z0-9.]", "");
+      assertEquals(values.get(0) + " " + values.get(1), values.get(2));
+      assertTrue(((String) values.get(3)).startsWith(username + "@"));
+      assertEquals(row, values.get(4));
+      assertTrue(((String) values.get(6)).matches("\\d{5}"));
+      assertEquals("United States", values.get(7));
+      assertEquals(values.get(8) + ", " + values.get(10) + ", " + values.get(5) + " " + values.get(6), values.get(9));
+      assertTrue(((String) values.get(15)).length() > 0);
+    }
+  }
+
+  @Test
+  public void testCompositeFieldsSameValuesInRowAndLineWithSeed() {
+    rowGenerator.setFields(Arrays.asList("person{firstName,email}", "name.lastName", "address{state,zipCode}")).setSeed(9L);
+    for (long row = 1; row <= 20; row++) {
+      List<?> values = rowGenerator.generateRow(row);
+      assertEquals(values.stream().map(Object::toString).collect(Collectors.joining(",")), rowGenerator.generateRowLine(row));
+    }
+  }
+
   @Test
   public void testGenerateRowWithFieldMappedToFakerAPICall() {
     rowGenerator.setFields(Arrays.asList("name.fullName"));
@@ -105,6 +249,81 @@ public class FakerRowGeneratorTest {
   }
 
 
+  @Test
+  public void testGenerateRowWithSeedDependsOnlyOnSeedAndRowNumber() {
+    List<String> fields = Arrays.asList("name.fullName", "randomLong(1:1000000)", "randomString(??##??##)");
+    RowGenerator otherRowGenerator = new FakerRowGenerator().setFields(fields).setSeed(42L);
+    rowGenerator.setFields(fields).setSeed(42L);
+    List row3 = rowGenerator.generateRow(3L);
+    rowGenerator.generateRow(1L);
+    assertEquals(row3, rowGenerator.generateRow(3L));
+    assertEquals(row3, otherRowGenerator.generateRow(3L));
+    assertNotEquals(row3, rowGenerator.generateRow(4L));
+  }
+
+  @Test
+  public void testGenerateBatchSameValuesAsGenerateRowWithSeed() {
+    rowGenerator.setFields(Arrays.asList("rowNumber", "sequence(10:5)", "randomDouble(2:0:10)", "randomString(??##)",
+        "eventTime(2024-01-01T00:00:00Z:4:0)", "dateBetween(2024-01-01:2024-12-31)", "address{city,state}",
+        "name.firstName")).setSeed(7L);
+    ColumnBatch batch = rowGenerator.generateBatch(11L, 50);
+    assertEquals(11L, batch.getStartRow());
+    assertEquals(50, batch.size());
+    assertEquals(Arrays.asList(ColumnBatch.ColumnType.LONG, ColumnBatch.ColumnType.LONG, ColumnBatch.ColumnType.DOUBLE,
+        ColumnBatch.ColumnType.STRING, ColumnBatch.ColumnType.TIMESTAMP, ColumnBatch.ColumnType.DATE,
+        ColumnBatch.ColumnType.STRING, ColumnBatch.ColumnType.STRING, ColumnBatch.ColumnType.STRING),
+        Arrays.asList(batch.getColumnTypes()));
+    for (int row = 0; row < batch.size(); row++) {
+      List values = rowGenerator.generateRow(11L + row);
+      assertEquals(values.get(0), batch.getLongs(0)[row]);
+      assertEquals(values.get(1), batch.getLongs(1)[row]);
+      assertEquals((Double) values.get(2), batch.getDoubles(2)[row], 0.0);
+      assertEquals(values.get(3), batch.getString(3, row));
+      Instant eventTime = (Instant) values.get(4);
+      assertEquals(eventTime.toEpochMilli() * 1000L, batch.getLongs(4)[row]);
+      assertEquals(((LocalDate) values.get(5)).toEpochDay(), batch.getLongs(5)[row]);
+      for (int column = 6; column < values.size(); column++) {
+        assertEquals(values.get(column), batch.getString(column, row));
+        assertFalse(batch.isNull(column, row));
+      }
+    }
+  }
+
+  @Test
+  public void testGenerateBatchWithoutSeed() {
+    rowGenerator.setFields(Arrays.asList("sequence(0:2)", "randomString(#?#)", "timestampBetween(2024-01-01:2024-01-31)",
+        "lognormal(0:1)"));
+    ColumnBatch batch = rowGenerator.generateBatch(1001L, 100);
+    long start = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli() * 1000L;
+    long end = Instant.parse("2024-01-31T00:00:00Z").toEpochMilli() * 1000L;
+    for (int row = 0; row < batch.size(); row++) {
+      assertEquals(2000L + row * 2L, batch.getLongs(0)[row]);
+      assertTrue(batch.getString(1, row).matches("\\d[a-z]\\d"));
+      assertEquals(3 * (row + 1), batch.getOffsets(1)[row + 1]);
+      assertTrue(batch.getLongs(2)[row] >= start && batch.getLongs(2)[row] <= end);
+      assertTrue(batch.getDoubles(3)[row] >= 0.0);
+    }
+  }
+
+  @Test
+  public void testColumnBatchSetValue() {
+    ColumnBatch batch = new ColumnBatch(ColumnBatch.inferColumnTypes(Arrays.asList(1L, "a", Instant.EPOCH)), 1L, 3);
+    batch.setValue(0, 0, 5L);
+    batch.setValue(0, 1, "x");  // not a long
+    batch.setValue(1, 0, "ação");
+    batch.setValue(1, 1, null);
+    batch.setValue(1, 2, "b");
+    batch.setValue(2, 2, Instant.ofEpochSecond(1L, 2000L));
+    assertEquals(5L, batch.getLongs(0)[0]);
+    assertFalse(batch.isNull(0, 0));
+    assertTrue(batch.isNull(0, 1));
+    assertEquals("ação", batch.getString(1, 0));
+    assertTrue(batch.isNull(1, 1));
+    assertEquals("", batch.getString(1, 1));
+    assertEquals("b", batch.getString(1, 2));
+    assertEquals(1000002L, batch.getLongs(2)[2]);
+  }
+
   // test generate Row Line (with separator in right places)
 
   @Test
@@ -157,6 +376,219 @@ public class FakerRowGeneratorTest {
     assertEquals(header, rowGenerator.generateHeaderLine());
   }
 
+  @Test
+  public void testRowGeneratorPlanIsSerializable() throws Exception {
+    List<String> fields = Arrays.asList("rowNumber", "name.firstName", "randomLong(1:10)", "randomString(??##)");
+    RowGeneratorPlan plan = RowGeneratorPlan.compile(fields, Arrays.asList("a","b","c","d"), ";", 42L);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream objOut = new ObjectOutputStream(bytes)) {
+      objOut.writeObject(plan);
+    }
+    RowGeneratorPlan copy;
+    try (ObjectInputStream objIn = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      copy = (RowGeneratorPlan) objIn.readObject();
+    }
+    assertEquals(plan.getSignature(), copy.getSignature());
+    // generators from both plans (and from unparsed fields) generate same rows
+    RowGenerator expected = new FakerRowGenerator().setFields(fields).setFieldsSeparator(";").setSeed(42L);
+    RowGenerator fromCopy = copy.createRowGenerator();
+    for (long row = 1; row <= 100; row++) {
+      assertEquals(expected.generateRowLine(row), fromCopy.generateRowLine(row));
+    }
+    assertEquals("a;b;c;d", fromCopy.generateHeaderLine());
+  }
+
+  @Test
+  public void testGenerateRowWithDistributions() {
+    List<String> fields = Arrays.asList("zipf(100:1.0)", "normal(50:10)", "lognormal(0:0.5)", "poisson(4)",
+        "weighted(a=0.7,b=0.2,c=0.1)");
+    rowGenerator.setFields(fields).setSeed(11L);
+    int rows = 100000;
+    long zipfOnes = 0;
+    double normalSum = 0;
+    double normalSquares = 0;
+    long poissonSum = 0;
+    long weightedA = 0;
+    long weightedC = 0;
+    for (long row = 1; row <= rows; row++) {
+      List result = rowGenerator.generateRow(row);
+      long zipf = (Long) result.get(0);
+      assertTrue(zipf >= 1 && zipf <= 100);
+      zipfOnes += zipf == 1 ? 1 : 0;
+      double normal = (Double) result.get(1);
+      normalSum += normal;
+      normalSquares += normal * normal;
+      assertTrue((Double) result.get(2) > 0);
+      poissonSum += (Long) result.get(3);
+      weightedA += "a".equals(result.get(4)) ? 1 : 0;
+      weightedC += "c".equals(result.get(4)) ? 1 : 0;
+    }
+    // zipf(100:1.0): P(1) = 1 / H(100) = 0.193
+    assertEquals(0.193, (double) zipfOnes / rows, 0.01);
+    double normalMean = normalSum / rows;
+    assertEquals(50.0, normalMean, 0.2);
+    assertEquals(10.0, Math.sqrt(normalSquares / rows - normalMean * normalMean), 0.2);
+    assertEquals(4.0, (double) poissonSum / rows, 0.05);
+    assertEquals(0.7, (double) weightedA / rows, 0.01);
+    assertEquals(0.1, (double) weightedC / rows, 0.01);
+    // same seed, same values
+    assertEquals(rowGenerator.generateRowLine(42L),
+        new FakerRowGenerator().setFields(fields).setSeed(11L).generateRowLine(42L));
+  }
+
+  @Test
+  public void testGenerateRowWithEventTimeJitterUsesSeed() {
+    List<String> fields = Arrays.asList("eventTime(1704067200000:1000:50)");
+    RowGenerator seeded = new FakerRowGenerator().setFields(fields).setSeed(1L);
+    RowGenerator sameSeed = new FakerRowGenerator().setFields(fields).setSeed(1L);
+    RowGenerator otherSeed = new FakerRowGenerator().setFields(fields).setSeed(2L);
+    int differentRows = 0;
+    for (long row = 1; row <= 100; row++) {
+      assertEquals(seeded.generateRow(row), sameSeed.generateRow(row));
+      differentRows += seeded.generateRow(row).equals(otherSeed.generateRow(row)) ? 0 : 1;
+    }
+    assertTrue(differentRows > 50);
+  }
+
+  @Test
+  public void testResolveEventTimeNow() {
+    assertEquals(Arrays.asList("rowNumber", "eventTime(1704067200000:10:5)", "eventTime(2024-01-01T00:00:00Z:1:0)"),
+        FakerRowGenerator.resolveEventTimeNow(Arrays.asList("rowNumber", "eventTime(now:10:5)",
+            "eventTime(2024-01-01T00:00:00Z:1:0)"), Instant.ofEpochMilli(1704067200000L)));
+    // resolved once, when fields are set: same start for every row, on every call
+    rowGenerator.setFields(Arrays.asList("eventTime(now:1:0)"));
+    Instant first = (Instant) rowGenerator.generateRow(1L).get(0);
+    assertEquals(first.plusSeconds(9), rowGenerator.generateRow(10L).get(0));
+    assertEquals(FakerRowGenerator.FieldSpec.SpecType.FAKER_FIELD,
+        FakerRowGenerator.FieldSpec.parse("eventTime(now:1:0)").specType);  // not parsed as a different now each time
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateRowWithInvalidDistribution() {
+    // weights must have a positive sum, instead of generating empty values
+    rowGenerator.setFields(Arrays.asList("weighted(a=0,b=0)")).generateRow(1L);
+  }
+
+  @Test
+  public void testGenerateRowWithEventTime() {
+    rowGenerator.setFields(Arrays.asList("eventTime(2024-01-01T00:00:00Z:4:0)", "eventTime(1704067200000:1000:50)"));
+    Instant start = Instant.parse("2024-01-01T00:00:00Z");
+    assertEquals(start, rowGenerator.generateRow(1L).get(0));
+    assertEquals(start.plusMillis(250), rowGenerator.generateRow(2L).get(0));
+    assertEquals(start.plusSeconds(25), rowGenerator.generateRow(101L).get(0));
+    Instant previous = start;
+    for (long row = 1; row <= 1000; row++) {
+      List result = rowGenerator.generateRow(row);
+      Instant eventTime = (Instant) result.get(0);
+      assertFalse(eventTime.isBefore(previous));  // no jitter, non decreasing
+      previous = eventTime;
+      // 1000 per second, with up to 50ms jitter, same on every call
+      Instant jittered = (Instant) result.get(1);
+      long delayMillis = jittered.toEpochMilli() - start.plusMillis(row - 1).toEpochMilli();
+      assertTrue(delayMillis >= 0 && delayMillis < 50);
+      assertEquals(jittered, rowGenerator.generateRow(row).get(1));
+    }
+  }
+
+  @Test
+  public void testFormatRowLineSameAsGenerateRowLine() {
+    rowGenerator.setFields(Arrays.asList("rowNumber", "randomString(??, ##)", "dateBetween(2000-01-01:2030-12-31:dd/MM/yyyy)",
+        "timestampBetween(2024-01-01:2024-12-31)", "eventTime(2024-01-01T00:00:00Z:4:0)", "randomDouble(2:1:100)",
+        "name.fullName")).setSeed(3L);
+    for (long row = 1; row <= 100; row++) {
+      assertEquals(rowGenerator.generateRowLine(row), rowGenerator.formatRowLine(rowGenerator.generateRow(row)));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateRowWithCdcKeyBeforeFirstEvent() {
+    rowGenerator.setFields(Arrays.asList("cdcKey(1:1:0)"));
+    rowGenerator.generateRow(0L);
+  }
+
+  @Test
+  public void testGenerateRowWithCdcFields() {
+    rowGenerator.setFields(Arrays.asList("cdcOp(60:30:10)", "cdcKey(60:30:10:100)")).setSeed(5L);
+    // keys 1 to 100 exist before first event, inserts add new keys, deletes remove oldest, updates a live key
+    TreeSet<Long> liveKeys = new TreeSet<>();
+    for (long key = 1; key <= 100; key++) {
+      liveKeys.add(key);
+    }
+    int[] operations = new int[3];
+    for (long row = 1; row <= 10000; row++) {
+      List result = rowGenerator.generateRow(row);
+      long key = (long) result.get(1);
+      if ("c".equals(result.get(0))) {
+        assertTrue(liveKeys.add(key));
+        assertEquals(liveKeys.last().longValue(), key);
+        operations[0]++;
+      } else if ("u".equals(result.get(0))) {
+        assertTrue(liveKeys.contains(key));
+        operations[1]++;
+      } else {
+        assertEquals("d", result.get(0));
+        assertEquals(liveKeys.first().longValue(), key);
+        liveKeys.remove(key);
+        operations[2]++;
+      }
+      // recomputed from row number, same on every call
+      assertEquals(result, rowGenerator.generateRow(row));
+    }
+    assertArrayEquals(new int[] {6000, 3000, 1000}, operations);
+    assertEquals(100 + 6000 - 1000, liveKeys.size());
+    // updates only (no inserts) need initial keys, and deletes can't be more than inserts
+    assertEquals(FakerRowGenerator.FieldSpec.SpecType.CDC_KEY, FakerRowGenerator.FieldSpec.parse("cdcKey(0:1:0:10)").specType);
+    assertEquals(FakerRowGenerator.FieldSpec.SpecType.FAKER_FIELD, FakerRowGenerator.FieldSpec.parse("cdcKey(0:1:0)").specType);
+    assertEquals(FakerRowGenerator.FieldSpec.SpecType.FAKER_FIELD, FakerRowGenerator.FieldSpec.parse("cdcOp(1:1:2)").specType);
+  }
+
+  @Test
+  public void testCsvQuoterAppend() {
+    StringBuilder line = new StringBuilder();
+    CsvQuoter quoter = new CsvQuoter(",");
+    quoter.append(line, "plain");
+    quoter.append(line.append(','), "a,b");
+    quoter.append(line.append(','), "say \"hi\"");
+    quoter.append(line.append(','), "\"");
+    assertEquals("plain,\"a,b\",\"say \"\"hi\"\"\",\"\"\"\"", line.toString());
+    // multi char separator: the whole separator in the middle of a value, or part of it on its edges, needs quoting
+    line.setLength(0);
+    CsvQuoter multiCharQuoter = new CsvQuoter("||");
+    multiCharQuoter.append(line, "a|b");
+    multiCharQuoter.append(line.append("||"), "a||b");
+    assertEquals("a|b||\"a||b\"", line.toString());
+  }
+
+  @Test
+  public void testGenerateHeaderLineQuotesColumnNames() {
+    rowGenerator.setHeader(Arrays.asList("id", "name, full"));
+    assertEquals("id,\"name, full\"", rowGenerator.generateHeaderLine());
+    rowGenerator.setQuoting(false);
+    assertEquals("id,name, full", rowGenerator.generateHeaderLine());
+  }
 
+  @Test
+  public void testCsvQuoterNeedsQuoting() {
+    CsvQuoter quoter = new CsvQuoter(";");
+    assertFalse(quoter.needsQuoting("a,b ção"));
+    assertTrue(quoter.needsQuoting("a;b"));
+    assertTrue(quoter.needsQuoting("line\nbreak"));
+    assertTrue(quoter.needsQuoting("cr\r"));
+    assertTrue(new CsvQuoter("§").needsQuoting("a§b"));
+  }
+
+  @Test
+  public void testCsvQuoterNeedsQuotingPartOfMultiCharSeparator() {
+    CsvQuoter quoter = new CsvQuoter("<->");
+    assertFalse(quoter.needsQuoting("a<b->c"));
+    assertTrue(quoter.needsQuoting("a<"));
+    assertTrue(quoter.needsQuoting("a<-"));
+    assertTrue(quoter.needsQuoting(">a"));
+    assertTrue(quoter.needsQuoting("->a"));
+    assertTrue(quoter.needsQuoting("<"));
+    assertTrue(new CsvQuoter("||").needsQuoting("a|"));
+    assertTrue(new CsvQuoter("||").needsQuoting("|a"));
+    assertFalse(new CsvQuoter("||").needsQuoting("a|b"));
+  }
 
 }
@@ -0,0 +1,147 @@
+package org.blackaho.misc.datagencli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for output encoders (JsonLinesEncoder, FixedWidthEncoder, PgCopyEncoder and SqlInsertEncoder) and OutputBuffer.
+ */
+public class OutputEncoderTest {
+
+  private static String encode(OutputEncoder encoder, List values) {
+    OutputBuffer buffer = new OutputBuffer(16);
+    encoder.encodeRow(1L, values, buffer);
+    return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  public void testOutputBufferWriteLongAndUtf8() {
+    OutputBuffer buffer = new OutputBuffer(16);
+    buffer.writeLong(0L).write((byte) ' ').writeLong(-1234567890123L).write((byte) ' ').writeLong(Long.MIN_VALUE)
+        .write((byte) ' ').writeUtf8("aç€😀");
+    String expected = "0 -1234567890123 " + Long.MIN_VALUE + " aç€😀";
+    assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), buffer.toByteArray());
+  }
+
+  @Test
+  public void testJsonLinesEncoder() {
+    JsonLinesEncoder encoder = new JsonLinesEncoder(Arrays.asList("id", "name", "price", "k\"ey"));
+    assertNull(encoder.encodeHeader());
+    assertEquals("{\"id\":1,\"name\":\"John\",\"price\":12.5,\"k\\\"ey\":null}\n",
+        encode(encoder, Arrays.asList(1L, "John", 12.5, null)));
+  }
+
+  @Test
+  public void testJsonLinesEncoderEscapesStrings() {
+    JsonLinesEncoder encoder = new JsonLinesEncoder(Arrays.asList("s", "d", "t"));
+    assertEquals("{\"s\":\"a\\\"b\\\\c\\n\\t\\u0001ç€\",\"d\":null,\"t\":\"2024-01-01T00:00:00Z\"}\n",
+        encode(encoder, Arrays.asList("a\"b\\c\n\t\u0001ç€", Double.NaN, Instant.parse("2024-01-01T00:00:00Z"))));
+  }
+
+  @Test
+  public void testFixedWidthEncoder() {
+    FixedWidthEncoder encoder = new FixedWidthEncoder(new int[] {4, 6, 3}, Arrays.asList("id", "name", "value"));
+    assertEquals("id  name  val\n", new String(encoder.encodeHeader(), StandardCharsets.UTF_8));
+    assertEquals("12  João  1.5\n", encode(encoder, Arrays.asList(12L, "João", 1.5)));
+    assertEquals("1234Maximi123\n", encode(encoder, Arrays.asList(123456L, "Maximilian", 123456L)));
+  }
+
+  @Test
+  public void testFixedWidthEncoderTruncatesOnCodePoints() {
+    // a width ending inside a surrogate pair drops the whole code point and pads instead
+    FixedWidthEncoder encoder = new FixedWidthEncoder(new int[] {2, 1}, null);
+    assertEquals("a x\n", encode(encoder, Arrays.asList("a\uD83D\uDE00b", "x")));
+    assertEquals("a\uD83D\uDE00x\n",
+        encode(new FixedWidthEncoder(new int[] {3, 1}, null), Arrays.asList("a\uD83D\uDE00b", "x")));
+  }
+
+  @Test
+  public void testFixedWidthComputeWidths() {
+    List<List> sample = Arrays.asList(Arrays.asList(1L, "abc"), Arrays.asList(12345L, "a"));
+    assertArrayEquals(new int[] {5, 4}, FixedWidthEncoder.computeWidths(sample, Arrays.asList("id", "name"), 2));
+    assertArrayEquals(new int[] {5, 3}, FixedWidthEncoder.computeWidths(sample, null, 2));
+  }
+
+  private static String hex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder();
+    for (byte b : bytes) {
+      hex.append(String.format("%02x", b & 0xFF));
+    }
+    return hex.toString();
+  }
+
+  @Test
+  public void testPgCopyEncoderGoldenBytes() {
+    Instant timestamp = Instant.parse("2000-01-01T00:00:01Z");
+    PgCopyEncoder encoder = new PgCopyEncoder(Arrays.asList(1L, 2.5, timestamp, "ab"));
+    assertEquals("5047434f50590aff0d0a00" + "00000000" + "00000000", hex(encoder.encodeHeader()));
+    OutputBuffer buffer = new OutputBuffer(16);
+    encoder.encodeRow(1L, Arrays.asList(1L, 2.5, timestamp, "aç"), buffer);
+    assertEquals("0004" + "00000008" + "0000000000000001" + "00000008" + "4004000000000000"
+        + "00000008" + "00000000000f4240" + "00000003" + "61c3a7", hex(buffer.toByteArray()));
+    // values not matching column type (and nulls) are NULL
+    buffer.reset();
+    encoder.encodeRow(2L, Arrays.asList("x", null, 3L, null), buffer);
+    assertEquals("0004" + "ffffffff" + "ffffffff" + "ffffffff" + "ffffffff", hex(buffer.toByteArray()));
+    assertEquals("ffff", hex(encoder.encodeTrailer()));
+  }
+
+  @Test
+  public void testPgCopyEncoderDate() {
+    PgCopyEncoder encoder = new PgCopyEncoder(Arrays.asList(LocalDate.parse("2000-01-01")));
+    OutputBuffer buffer = new OutputBuffer(16);
+    encoder.encodeRow(1L, Arrays.asList(LocalDate.parse("1999-12-31")), buffer);
+    assertEquals("0001" + "00000004" + "ffffffff", hex(buffer.toByteArray()));
+  }
+
+  @Test
+  public void testPgCopyEncoderInferColumnTypesFromSample() {
+    List<List> sample = Arrays.asList(Arrays.asList(null, 1L, 1L, null), Arrays.asList(2.5, 2L, "x", null));
+    assertArrayEquals(new PgCopyEncoder.ColumnType[] {PgCopyEncoder.ColumnType.FLOAT8, PgCopyEncoder.ColumnType.INT8,
+        PgCopyEncoder.ColumnType.TEXT, PgCopyEncoder.ColumnType.TEXT}, PgCopyEncoder.inferColumnTypes(sample, 4));
+  }
+
+  @Test
+  public void testSqlInsertEncoderBatchesOnRowNumbers() {
+    SqlInsertEncoder encoder = new SqlInsertEncoder("t", Arrays.asList("id", "name", "ts"), 2);
+    assertNull(encoder.encodeHeader());
+    encoder.setRowRange(2L, 4L);
+    OutputBuffer buffer = new OutputBuffer(16);
+    encoder.encodeRow(2L, Arrays.asList(2L, "O'Neil", Instant.parse("2024-01-01T10:00:00.5Z")), buffer);
+    encoder.encodeRow(3L, Arrays.asList(3L, null, Double.NaN), buffer);
+    encoder.encodeRow(4L, Arrays.asList(4L, "a''b", 1.5), buffer);
+    assertEquals("INSERT INTO \"t\" (\"id\",\"name\",\"ts\") VALUES\n(2,'O''Neil','2024-01-01 10:00:00.500000');\n"
+        + "INSERT INTO \"t\" (\"id\",\"name\",\"ts\") VALUES\n(3,NULL,NULL),\n(4,'a''''b',1.5);\n",
+        new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testSqlInsertEncoderQuotesIdentifiers() {
+    SqlInsertEncoder encoder = new SqlInsertEncoder("app.people", Arrays.asList("name.fullName", "a\"b"), 10);
+    OutputBuffer buffer = new OutputBuffer(16);
+    encoder.encodeRow(1L, Arrays.asList("x", 1L), buffer);
+    assertEquals("INSERT INTO \"app\".\"people\" (\"name.fullName\",\"a\"\"b\") VALUES\n('x',1),\n",
+        new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+    assertTrue(SqlInsertEncoder.isValidTableName("people_2"));
+    assertFalse(SqlInsertEncoder.isValidTableName("people; DROP TABLE x"));
+    assertFalse(SqlInsertEncoder.isValidTableName("a.b.c"));
+    assertFalse(SqlInsertEncoder.isValidTableName(""));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSqlInsertEncoderInvalidTable() {
+    new SqlInsertEncoder("\"people\"", Arrays.asList("id"), 10);
+  }
+
+}
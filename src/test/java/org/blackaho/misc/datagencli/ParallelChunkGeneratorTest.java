@@ -0,0 +1,129 @@
+package org.blackaho.misc.datagencli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Unit tests for ParallelChunkGenerator.
+ */
+public class ParallelChunkGeneratorTest {
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void testGenerateChunkInRowNumberOrder() {
+    try (ParallelChunkGenerator chunkGenerator = new ParallelChunkGenerator(4)) {
+      String chunk = new String(chunkGenerator.generateChunk(11L, 1010L,
+          (rowNum, buffer) -> buffer.writeLong(rowNum).write((byte) '\n')), StandardCharsets.UTF_8);
+      String[] lines = chunk.split("\n");
+      assertEquals(1000, lines.length);
+      for (int i = 0; i < lines.length; i++) {
+        assertEquals(String.valueOf(11L + i), lines[i]);
+      }
+    }
+  }
+
+  @Test
+  public void testGenerateChunkOutputsEncodesEachRowToAllOutputs() {
+    try (ParallelChunkGenerator chunkGenerator = new ParallelChunkGenerator(4)) {
+      byte[][] chunks = chunkGenerator.generateChunkOutputs(1L, 1000L, 2, (rowNum, buffers) -> {
+        buffers[0].writeLong(rowNum).write((byte) '\n');
+        buffers[1].writeLong(-rowNum).write((byte) '\n');
+      });
+      assertEquals(2, chunks.length);
+      String[] lines = new String(chunks[0], StandardCharsets.UTF_8).split("\n");
+      String[] negatedLines = new String(chunks[1], StandardCharsets.UTF_8).split("\n");
+      assertEquals(1000, lines.length);
+      assertEquals(1000, negatedLines.length);
+      for (int i = 0; i < lines.length; i++) {
+        assertEquals(String.valueOf(1L + i), lines[i]);
+        assertEquals(String.valueOf(-1L - i), negatedLines[i]);
+      }
+    }
+  }
+
+  @Test
+  public void testChunkSizeAdaptsToCostOfRows() {
+    try (ParallelChunkGenerator cheapRows = new ParallelChunkGenerator(2);
+         ParallelChunkGenerator expensiveRows = new ParallelChunkGenerator(2)) {
+      assertEquals(ParallelChunkGenerator.INITIAL_CHUNK_SIZE_IN_ROWS, cheapRows.nextChunkSize());
+      cheapRows.generateChunk(1L, 10000L, (rowNum, buffer) -> buffer.writeLong(rowNum));
+      expensiveRows.generateChunk(1L, 100L, (rowNum, buffer) -> {
+        LockSupport.parkNanos(200000L);
+        buffer.writeLong(rowNum);
+      });
+      // 2 threads, each with 4 slices of ~2ms
+      assertTrue(expensiveRows.nextChunkSize() <= 2 * ParallelChunkGenerator.SLICES_PER_THREAD * 10);
+      assertTrue(cheapRows.nextChunkSize() > 100 * expensiveRows.nextChunkSize());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testGenerateChunkRethrowsExceptionOfRow() {
+    try (ParallelChunkGenerator chunkGenerator = new ParallelChunkGenerator(2)) {
+      chunkGenerator.generateChunk(1L, 100L, (rowNum, buffer) -> {
+        if (rowNum == 50L) {
+          throw new IllegalArgumentException("row 50");
+        }
+      });
+    }
+  }
+
+  @Test
+  public void testGenerateChunksWrittenInParallelInRowNumberOrder() throws Exception {
+    File outputFile = new File(tmpFolder.getRoot(), "out.txt");
+    try (ParallelChunkGenerator chunkGenerator = new ParallelChunkGenerator(4);
+         ParallelFileWriter writer = new ParallelFileWriter(outputFile, 1 << 20)) {
+      writer.append("header\n".getBytes(StandardCharsets.UTF_8));
+      chunkGenerator.generateChunks(1L, 50000L, (rowNum, buffer) -> buffer.writeLong(rowNum).write((byte) '\n'), writer);
+      writer.append("trailer\n".getBytes(StandardCharsets.UTF_8));
+    }
+    List<String> lines = Files.readAllLines(outputFile.toPath());
+    assertEquals(50002, lines.size());
+    assertEquals("header", lines.get(0));
+    for (int i = 1; i <= 50000; i++) {
+      assertEquals(String.valueOf(i), lines.get(i));
+    }
+    assertEquals("trailer", lines.get(50001));
+  }
+
+  @Test
+  public void testGenerateChunksAbortsWritersWaitingForFailedChunk() throws Exception {
+    File outputFile = new File(tmpFolder.getRoot(), "out.txt");
+    try (ParallelChunkGenerator chunkGenerator = new ParallelChunkGenerator(4);
+         ParallelFileWriter writer = new ParallelFileWriter(outputFile, 0L)) {
+      chunkGenerator.generateChunks(1L, 50000L, (rowNum, buffer) -> {
+        if (rowNum == 20000L) {
+          throw new IllegalStateException("row 20000");
+        }
+        buffer.writeLong(rowNum);
+      }, writer);
+      fail("exception of row 20000 expected");
+    } catch (IllegalStateException ex) {
+      assertEquals("row 20000", ex.getMessage());
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void testParallelFileWriterReserveAfterAbort() throws Exception {
+    try (ParallelFileWriter writer = new ParallelFileWriter(new File(tmpFolder.getRoot(), "out.txt"), 0L)) {
+      assertEquals(0L, writer.reserve(0L, 10));
+      writer.abort();
+      writer.reserve(2L, 10);
+    }
+  }
+
+}